@@ -1,18 +1,26 @@
 package org.personnal.client;
 
 import com.google.gson.Gson;
+import org.personnal.client.call.AudioDeviceManager;
+import org.personnal.client.call.CallQualityProfile;
+import org.personnal.client.call.PcmCodec;
+import org.personnal.client.network.IClientConnection;
+import org.personnal.client.network.NetworkConstants;
 import org.personnal.client.protocol.PeerRequest;
 import org.personnal.client.protocol.PeerResponse;
 import org.personnal.client.protocol.RequestType;
 
 import javax.sound.sampled.*;
-import java.io.*;
-import java.net.Socket;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Scanner;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
@@ -20,20 +28,22 @@ import java.util.concurrent.atomic.AtomicBoolean;
  */
 public class AudioCallClientTest {
     // Configuration du serveur
-    private static final String SERVER_HOST = "localhost";
-    private static final int SERVER_PORT = 5000; // Adaptez au port de votre serveur
+    private static final String SERVER_HOST = NetworkConstants.DEFAULT_HOST;
+    private static final int SERVER_PORT = NetworkConstants.DEFAULT_PORT; // Adaptez au port de votre serveur
 
-    // Configuration audio
-    private static final int BUFFER_SIZE = 1024;
-    private static final AudioFormat AUDIO_FORMAT = new AudioFormat(44100.0f, 16, 1, true, false);
+    // Configuration audio : PCM 44,1 kHz des trames envoyées par la signalisation,
+    // durée de trame et tampons des lignes selon le profil de qualité des préférences
+    private static final AudioFormat AUDIO_FORMAT = new AudioFormat(PcmCodec.CLOCK_RATE, 16, 1, true, false);
+    private final CallQualityProfile profile = AudioDeviceManager.getCallQualityProfile();
+    private final int frameBytes = profile.getFrameBytesAt(PcmCodec.CLOCK_RATE);
 
     // État
     private String username;
-    private Socket socket;
-    private BufferedReader reader;
-    private BufferedWriter writer;
+    private IClientConnection connection;
     private final Gson gson = new Gson();
     private final AtomicBoolean connected = new AtomicBoolean(false);
+    private final AtomicBoolean listening = new AtomicBoolean(false);
+    private volatile CompletableFuture<PeerResponse> pendingResponse;
     private final AtomicBoolean inCall = new AtomicBoolean(false);
     private String callPartner;
 
@@ -80,9 +90,24 @@ public class AudioCallClientTest {
      */
     private boolean connect() {
         try {
-            socket = new Socket(SERVER_HOST, SERVER_PORT);
-            reader = new BufferedReader(new InputStreamReader(socket.getInputStream()));
-            writer = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream()));
+            connection = IClientConnection.create();
+            connection.setFrameListener(new IClientConnection.FrameListener() {
+                @Override
+                public void onFrame(byte type, byte flags, ByteBuffer frame) {
+                    onServerFrame(StandardCharsets.UTF_8.decode(frame).toString());
+                }
+
+                @Override
+                public void onClosed(IOException cause) {
+                    if (connected.get()) {
+                        System.out.println(cause != null
+                                ? "❌ Erreur de lecture: " + cause.getMessage()
+                                : "⚠️ Connexion fermée par le serveur");
+                        connected.set(false);
+                    }
+                }
+            });
+            connection.connect(SERVER_HOST, SERVER_PORT);
             connected.set(true);
 
             // Initialiser les composants audio
@@ -129,8 +154,8 @@ public class AudioCallClientTest {
             micLine = (TargetDataLine) AudioSystem.getLine(micInfo);
             speakerLine = (SourceDataLine) AudioSystem.getLine(speakerInfo);
 
-            micLine.open(AUDIO_FORMAT);
-            speakerLine.open(AUDIO_FORMAT);
+            micLine.open(AUDIO_FORMAT, frameBytes * profile.getLineBufferFrames());
+            speakerLine.open(AUDIO_FORMAT, frameBytes * profile.getLineBufferFrames());
 
             micLine.start();
             speakerLine.start();
@@ -170,7 +195,7 @@ public class AudioCallClientTest {
 
         // Thread pour capturer et envoyer l'audio
         audioThreadPool.submit(() -> {
-            byte[] buffer = new byte[BUFFER_SIZE];
+            byte[] buffer = new byte[frameBytes];
 
             while (inCall.get() && micLine != null && micLine.isOpen()) {
                 try {
@@ -233,16 +258,12 @@ public class AudioCallClientTest {
             }
         }
 
-        // Fermer la socket
-        try {
-            if (socket != null && !socket.isClosed()) {
-                socket.close();
-            }
-            connected.set(false);
-            System.out.println("👋 Déconnecté du serveur");
-        } catch (IOException e) {
-            System.err.println("❌ Erreur lors de la déconnexion: " + e.getMessage());
+        // Fermer la connexion
+        connected.set(false);
+        if (connection != null) {
+            connection.close();
         }
+        System.out.println("👋 Déconnecté du serveur");
     }
 
     /**
@@ -270,9 +291,7 @@ public class AudioCallClientTest {
     private void sendRequest(PeerRequest request) {
         try {
             String jsonRequest = gson.toJson(request);
-            writer.write(jsonRequest);
-            writer.newLine();
-            writer.flush();
+            connection.send(ByteBuffer.wrap(jsonRequest.getBytes(StandardCharsets.UTF_8)));
         } catch (IOException e) {
             System.err.println("❌ Erreur d'envoi: " + e.getMessage());
             connected.set(false);
@@ -283,48 +302,38 @@ public class AudioCallClientTest {
      * Envoie une requête et attend la réponse
      */
     private PeerResponse sendRequestAndWaitResponse(PeerRequest request) {
+        CompletableFuture<PeerResponse> future = new CompletableFuture<>();
+        pendingResponse = future;
         try {
-            String jsonRequest = gson.toJson(request);
-            writer.write(jsonRequest);
-            writer.newLine();
-            writer.flush();
-
-            String jsonResponse = reader.readLine();
-            return gson.fromJson(jsonResponse, PeerResponse.class);
-        } catch (IOException e) {
+            sendRequest(request);
+            return future.get(10, TimeUnit.SECONDS);
+        } catch (Exception e) {
             System.err.println("❌ Erreur d'envoi/réception: " + e.getMessage());
-            connected.set(false);
             return null;
+        } finally {
+            pendingResponse = null;
         }
     }
 
     /**
-     * Démarre un thread pour écouter les réponses du serveur
+     * Démarre le traitement des réponses du serveur
      */
     private void startResponseListener() {
-        Thread listenerThread = new Thread(() -> {
-            try {
-                while (connected.get()) {
-                    String jsonResponse = reader.readLine();
-                    if (jsonResponse == null) {
-                        System.out.println("⚠️ Connexion fermée par le serveur");
-                        connected.set(false);
-                        break;
-                    }
-
-                    PeerResponse response = gson.fromJson(jsonResponse, PeerResponse.class);
-                    handleServerResponse(response);
-                }
-            } catch (IOException e) {
-                if (connected.get()) {
-                    System.err.println("❌ Erreur de lecture: " + e.getMessage());
-                    connected.set(false);
-                }
-            }
-        });
+        listening.set(true);
+    }
 
-        listenerThread.setDaemon(true);
-        listenerThread.start();
+    /**
+     * Reçoit une trame du serveur sur le thread du transport
+     */
+    private void onServerFrame(String jsonResponse) {
+        PeerResponse response = gson.fromJson(jsonResponse, PeerResponse.class);
+
+        CompletableFuture<PeerResponse> future = pendingResponse;
+        if (future != null) {
+            future.complete(response);
+        } else if (listening.get()) {
+            handleServerResponse(response);
+        }
     }
 
     /**
@@ -1,9 +1,13 @@
 package org.personnal.client;
 
+import org.personnal.client.database.ConversationKey;
 import org.personnal.client.database.DatabaseConnection;
+import org.personnal.client.database.DAO.ConversationSummaryDAO;
 
 import java.io.File;
 import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.Arrays;
@@ -12,6 +16,8 @@ import java.util.Arrays;
  * Classe utilitaire pour initialiser la base de données
  */
 public class DatabaseInitializer {
+    // Version du schéma, enregistrée dans PRAGMA user_version
+    private static final int SCHEMA_VERSION = 3;
 
     /**
      * Initialise la base de données si nécessaire
@@ -27,6 +33,7 @@ public class DatabaseInitializer {
 
             // Toujours créer les tables pour s'assurer qu'elles sont bien structurées
             createTables(conn);
+            migrate(conn);
 
             // Vérifier les tables après création
             verifyTables(conn);
@@ -49,8 +56,8 @@ public class DatabaseInitializer {
      */
     private static void verifyTables(Connection conn) {
         try (Statement stmt = conn.createStatement()) {
-            // Vérifier les tables users, messages et files
-            String[] tables = {"users", "messages", "files"};
+            // Vérifier les tables users, messages, files et conversation_summary
+            String[] tables = {"users", "messages", "files", "conversation_summary"};
 
             for (String table : tables) {
                 try {
@@ -65,6 +72,117 @@ public class DatabaseInitializer {
         }
     }
 
+    /**
+     * Met à jour le schéma d'une base existante jusqu'à {@link #SCHEMA_VERSION}
+     */
+    private static void migrate(Connection conn) throws SQLException {
+        int version;
+        try (Statement stmt = conn.createStatement(); ResultSet rs = stmt.executeQuery("PRAGMA user_version")) {
+            version = rs.next() ? rs.getInt(1) : 0;
+        }
+        if (version >= SCHEMA_VERSION) {
+            return;
+        }
+
+        conn.setAutoCommit(false);
+        try (Statement stmt = conn.createStatement()) {
+            if (version < 1) {
+                // Version 1 : clé de conversation et index (conversation_key, timestamp, id)
+                for (String table : new String[]{"messages", "files"}) {
+                    if (!hasColumn(conn, table, "conversation_key")) {
+                        stmt.execute("ALTER TABLE " + table + " ADD COLUMN conversation_key TEXT");
+                    }
+                    backfillConversationKeys(conn, table);
+                }
+
+                stmt.execute("CREATE INDEX IF NOT EXISTS idx_messages_conversation " +
+                        "ON messages(conversation_key, timestamp, id)");
+                stmt.execute("CREATE INDEX IF NOT EXISTS idx_files_conversation " +
+                        "ON files(conversation_key, timestamp, id)");
+                // Index partiels : seuls les éléments non lus y figurent
+                stmt.execute("CREATE INDEX IF NOT EXISTS idx_messages_unread " +
+                        "ON messages(receiver, sender) WHERE read = 0");
+                stmt.execute("CREATE INDEX IF NOT EXISTS idx_files_unread " +
+                        "ON files(receiver, sender) WHERE read = 0");
+
+                // Remplacés par les index ci-dessus
+                stmt.execute("DROP INDEX IF EXISTS idx_messages_sender");
+                stmt.execute("DROP INDEX IF EXISTS idx_messages_receiver");
+                stmt.execute("DROP INDEX IF EXISTS idx_files_sender");
+                stmt.execute("DROP INDEX IF EXISTS idx_files_receiver");
+            }
+
+            if (version < 2) {
+                // Version 2 : résumé des conversations tenu à jour à chaque écriture
+                stmt.execute(
+                        "CREATE TABLE IF NOT EXISTS conversation_summary (" +
+                                "owner TEXT NOT NULL, " +
+                                "contact TEXT NOT NULL, " +
+                                "unread_count INTEGER NOT NULL DEFAULT 0, " +
+                                "last_preview TEXT, " +
+                                "last_timestamp TEXT, " +
+                                "PRIMARY KEY (owner, contact)" +
+                                ") WITHOUT ROWID"
+                );
+                ConversationSummaryDAO.rebuild(conn);
+            }
+
+            if (version >= 1 && version < 3) {
+                // Version 3 : clé de conversation préfixée par la longueur du premier nom ;
+                // l'ancienne forme "a:b" confondait ("a:b", "c") et ("a", "b:c")
+                for (String table : new String[]{"messages", "files"}) {
+                    stmt.execute("UPDATE " + table + " SET conversation_key = NULL");
+                    backfillConversationKeys(conn, table);
+                }
+                ConversationSummaryDAO.rebuild(conn);
+            }
+
+            stmt.execute("PRAGMA user_version = " + SCHEMA_VERSION);
+            conn.commit();
+            System.out.println("Schéma de la base mis à jour en version " + SCHEMA_VERSION);
+        } catch (SQLException e) {
+            conn.rollback();
+            System.err.println("Erreur lors de la migration de la base de données: " + e.getMessage());
+            throw e;
+        } finally {
+            conn.setAutoCommit(true);
+        }
+    }
+
+    private static boolean hasColumn(Connection conn, String table, String column) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("PRAGMA table_info(" + table + ")")) {
+            while (rs.next()) {
+                if (column.equalsIgnoreCase(rs.getString("name"))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Calcule la clé des lignes existantes avec le même code que les insertions
+     */
+    private static void backfillConversationKeys(Connection conn, String table) throws SQLException {
+        try (Statement select = conn.createStatement();
+             ResultSet rs = select.executeQuery(
+                     "SELECT id, sender, receiver FROM " + table + " WHERE conversation_key IS NULL");
+             PreparedStatement update = conn.prepareStatement(
+                     "UPDATE " + table + " SET conversation_key = ? WHERE id = ?")) {
+            int count = 0;
+            while (rs.next()) {
+                update.setString(1, ConversationKey.of(rs.getString("sender"), rs.getString("receiver")));
+                update.setInt(2, rs.getInt("id"));
+                update.addBatch();
+                if (++count % 1000 == 0) {
+                    update.executeBatch();
+                }
+            }
+            update.executeBatch();
+        }
+    }
+
     /**
      * Crée les tables dans la base de données
      */
@@ -88,7 +206,8 @@ public class DatabaseInitializer {
                             "receiver TEXT NOT NULL, " +
                             "content TEXT NOT NULL, " +
                             "timestamp TEXT DEFAULT CURRENT_TIMESTAMP, " +
-                            "read BOOLEAN NOT NULL DEFAULT 0" +
+                            "read BOOLEAN NOT NULL DEFAULT 0, " +
+                            "conversation_key TEXT" +
                             ")"
             );
 
@@ -101,16 +220,13 @@ public class DatabaseInitializer {
                             "filename TEXT NOT NULL, " +
                             "filepath TEXT, " +
                             "timestamp TEXT DEFAULT CURRENT_TIMESTAMP, " +
-                            "read BOOLEAN NOT NULL DEFAULT 0" +
+                            "read BOOLEAN NOT NULL DEFAULT 0, " +
+                            "conversation_key TEXT" +
                             ")"
             );
 
             // Créer des index pour optimiser les recherches
             stmt.execute("CREATE INDEX IF NOT EXISTS idx_users_username ON users(username)");
-            stmt.execute("CREATE INDEX IF NOT EXISTS idx_messages_sender ON messages(sender)");
-            stmt.execute("CREATE INDEX IF NOT EXISTS idx_messages_receiver ON messages(receiver)");
-            stmt.execute("CREATE INDEX IF NOT EXISTS idx_files_sender ON files(sender)");
-            stmt.execute("CREATE INDEX IF NOT EXISTS idx_files_receiver ON files(receiver)");
 
             System.out.println("Tables et index créés avec succès");
         } catch (SQLException e) {
@@ -5,6 +5,8 @@ import javafx.scene.Scene;
 import javafx.scene.layout.StackPane;
 import javafx.stage.Stage;
 import org.personnal.client.DatabaseInitializer;
+import org.personnal.client.database.DAO.MessageWriteQueue;
+import org.personnal.client.database.DatabaseConnection;
 import org.personnal.client.UI.ChatView;
 import org.personnal.client.UI.LoginView;
 import org.personnal.client.UI.RegisterView;
@@ -161,6 +163,9 @@ public class MainClient extends Application {
         } catch (Exception e) {
             e.printStackTrace();
         }
+        // Enregistrer les messages en attente avant de fermer la base
+        MessageWriteQueue.shutdownIfStarted();
+        DatabaseConnection.shutdown();
     }
 
     public static void main(String[] args) {
@@ -11,6 +11,7 @@ import org.personnal.client.call.AudioCallManager;
 import org.personnal.client.controller.ChatController;
 import org.personnal.client.model.FileData;
 import org.personnal.client.model.Message;
+import org.personnal.client.model.TimelineItem;
 import org.personnal.client.model.User;
 import org.personnal.client.UI.components.ContactsPanel;
 import org.personnal.client.UI.components.MessagesPanel;
@@ -39,7 +40,7 @@ public class ChatView {
 
     // Listes observables partagées
     private final ObservableList<String> contacts = FXCollections.observableArrayList();
-    private final ObservableList<Message> messages = FXCollections.observableArrayList();
+    private final ObservableList<TimelineItem> messages = FXCollections.observableArrayList();
 
     // État actuel
     private String currentChatPartner = null;
@@ -199,7 +200,7 @@ public class ChatView {
 
             // Si c'est la conversation active, mettre à jour la vue
             if (partner.equals(currentChatPartner)) {
-                messages.add(message);
+                messages.add(TimelineItem.of(message));
                 messagesPanel.scrollToLastMessage();
             }
 
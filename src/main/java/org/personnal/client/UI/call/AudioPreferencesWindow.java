@@ -16,6 +16,7 @@ import javafx.stage.Stage;
 import javafx.util.Duration;
 import org.personnal.client.call.AudioDeviceManager;
 import org.personnal.client.call.AudioDeviceManager.AudioDeviceInfo;
+import org.personnal.client.call.CallQualityProfile;
 
 import javax.sound.sampled.*;
 import java.util.List;
@@ -32,6 +33,8 @@ public class AudioPreferencesWindow {
     private ComboBox<AudioDeviceInfo> outputDeviceComboBox;
     private Slider micVolumeSlider;
     private Slider speakerVolumeSlider;
+    private ComboBox<CallQualityProfile> callProfileComboBox;
+    private Label latencyEstimateLabel;
     private Slider silenceThresholdSlider;
     private CheckBox echoSuppressionCheckBox;
     private CheckBox noiseReductionCheckBox;
@@ -66,6 +69,9 @@ public class AudioPreferencesWindow {
         // Volume
         TitledPane volumePane = createVolumeSection();
 
+        // Qualité d'appel
+        TitledPane callQualityPane = createCallQualitySection();
+
         // Options avancées
         TitledPane advancedPane = createAdvancedSection();
 
@@ -91,6 +97,7 @@ public class AudioPreferencesWindow {
                 titleLabel,
                 devicesPane,
                 volumePane,
+                callQualityPane,
                 advancedPane,
                 buttonBox
         );
@@ -171,6 +178,38 @@ public class AudioPreferencesWindow {
         return volumePane;
     }
 
+    /**
+     * Crée la section du profil de qualité d'appel, avec la latence bouche-à-oreille estimée
+     */
+    private TitledPane createCallQualitySection() {
+        GridPane grid = new GridPane();
+        grid.setHgap(10);
+        grid.setVgap(10);
+        grid.setPadding(new Insets(10));
+
+        Label profileLabel = new Label("Profil:");
+        grid.add(profileLabel, 0, 0);
+
+        callProfileComboBox = new ComboBox<>(FXCollections.observableArrayList(CallQualityProfile.values()));
+        callProfileComboBox.setPrefWidth(300);
+        grid.add(callProfileComboBox, 1, 0);
+
+        latencyEstimateLabel = new Label();
+        latencyEstimateLabel.setStyle("-fx-font-size: 11px; -fx-text-fill: #6c757d;");
+        grid.add(latencyEstimateLabel, 0, 1, 2, 1);
+
+        callProfileComboBox.valueProperty().addListener((observable, oldProfile, profile) -> {
+            if (profile != null) {
+                latencyEstimateLabel.setText("Latence bouche-à-oreille estimée " + profile.nominalLatency());
+            }
+        });
+        callProfileComboBox.setValue(AudioDeviceManager.getCallQualityProfile());
+
+        TitledPane callQualityPane = new TitledPane("Qualité d'appel", grid);
+        callQualityPane.setCollapsible(false);
+        return callQualityPane;
+    }
+
     /**
      * Crée la section des options avancées
      */
@@ -243,6 +282,9 @@ public class AudioPreferencesWindow {
         AudioDeviceManager.setMicrophoneVolume((float) micVolumeSlider.getValue());
         AudioDeviceManager.setSpeakerVolume((float) speakerVolumeSlider.getValue());
 
+        // Enregistrer le profil de qualité, appliqué au prochain appel
+        AudioDeviceManager.setCallQualityProfile(callProfileComboBox.getValue());
+
         // Afficher un message de confirmation
         Alert alert = new Alert(Alert.AlertType.INFORMATION);
         alert.setTitle("Préférences audio");
@@ -301,7 +343,8 @@ public class AudioPreferencesWindow {
 
         // Variables pour le test audio
         AtomicBoolean testRunning = new AtomicBoolean(false);
-        AudioFormat format = new AudioFormat(44100, 16, 1, true, false);
+        // Fréquence du profil sélectionné ; tampons par défaut, l'indicateur ne lit le micro que toutes les 100 ms
+        AudioFormat format = callProfileComboBox.getValue().getAudioFormat();
         final TargetDataLine[] micLine = {null};
         final Timeline[] updateTimeline = {null};
 
@@ -342,16 +385,16 @@ public class AudioPreferencesWindow {
                                         int bytesRead = micLine[0].read(buffer, 0, buffer.length);
 
                                         if (bytesRead > 0) {
-                                            // Appliquer le volume
+                                            // Appliquer le volume sur place
                                             float volume = (float) micVolumeSlider.getValue();
-                                            byte[] volumeAdjustedBuffer = AudioDeviceManager.applyVolume(buffer, volume);
+                                            AudioDeviceManager.applyVolumeInPlace(buffer, bytesRead, volume);
 
                                             // Calculer le niveau audio
-                                            double level = calculateAudioLevel(volumeAdjustedBuffer);
+                                            double level = calculateAudioLevel(buffer);
                                             micLevelIndicator.setProgress(level);
 
                                             // Vérifier si ce n'est pas du silence
-                                            boolean isSilence = AudioDeviceManager.isSilence(volumeAdjustedBuffer, silenceThreshold);
+                                            boolean isSilence = AudioDeviceManager.isSilence(buffer, bytesRead, silenceThreshold);
 
                                             if (!isSilence) {
                                                 soundDetectedLabel.setText("Son détecté !");
@@ -15,6 +15,9 @@ import javafx.stage.Stage;
 import javafx.stage.StageStyle;
 import javafx.util.Duration;
 import org.personnal.client.call.AudioCallManager;
+import org.personnal.client.call.AudioPipelineStats;
+import org.personnal.client.call.JitterBufferStats;
+import org.personnal.client.call.LatencyBudget;
 import org.personnal.client.controller.ChatController;
 
 import java.util.Random;
@@ -37,6 +40,8 @@ public class CallWindow {
     private ToggleButton muteButton;
     private ToggleButton speakerButton;
     private ProgressBar audioLevelIndicator;
+    private Label callQualityLabel;
+    private Label jitterLabel;
 
     // État
     private boolean isIncoming;
@@ -44,6 +49,7 @@ public class CallWindow {
     private long callStartTime;
     private Thread timerThread;
     private Timeline audioLevelTimeline;
+    private Timeline qualityTimeline;
     private boolean isMuted = false;
     private boolean isSpeakerOn = true;
     private final Random random = new Random(); // Pour simuler les niveaux audio
@@ -81,6 +87,7 @@ public class CallWindow {
             }
             stopTimer();
             stopAudioLevelSimulation();
+            stopQualityMonitor();
         });
     }
 
@@ -149,10 +156,14 @@ public class CallWindow {
         audioControlsBox.getChildren().addAll(muteButton, speakerButton);
 
         // Étiquette pour la qualité de l'appel
-        Label callQualityLabel = new Label("Qualité de l'appel: En attente");
+        callQualityLabel = new Label("Qualité de l'appel: En attente");
         callQualityLabel.setStyle("-fx-font-size: 14px;");
 
-        centerBox.getChildren().addAll(audioControlsBox, callQualityLabel);
+        // Mesures du tampon de gigue : profondeur, gigue et pertes
+        jitterLabel = new Label("");
+        jitterLabel.setStyle("-fx-font-size: 11px; -fx-text-fill: #6c757d;");
+
+        centerBox.getChildren().addAll(audioControlsBox, callQualityLabel, jitterLabel);
         root.setCenter(centerBox);
 
         // Boutons pour accepter/rejeter/raccrocher
@@ -207,6 +218,7 @@ public class CallWindow {
 
                     // Démarrer la simulation du niveau audio
                     startAudioLevelSimulation();
+                    startQualityMonitor();
                     break;
 
                 case CALL_REJECTED:
@@ -219,6 +231,7 @@ public class CallWindow {
                     statusLabel.setText("Appel terminé");
                     stopTimer();
                     stopAudioLevelSimulation();
+                    stopQualityMonitor();
                     // Fermer la fenêtre après un délai
                     closeAfterDelay(2000);
                     break;
@@ -290,6 +303,7 @@ public class CallWindow {
         statusLabel.setText("Appel terminé");
         stopTimer();
         stopAudioLevelSimulation();
+        stopQualityMonitor();
 
         // Fermer la fenêtre après un délai
         closeAfterDelay(1000);
@@ -407,6 +421,51 @@ public class CallWindow {
         audioLevelTimeline.play();
     }
 
+    /**
+     * Affiche chaque seconde les mesures du tampon de gigue et la latence estimée
+     */
+    private void startQualityMonitor() {
+        stopQualityMonitor();
+
+        qualityTimeline = new Timeline(
+                new KeyFrame(Duration.seconds(1), event -> showQuality(callManager.getJitterStats(), callManager.getPipelineStats(),
+                        callManager.getLatencyBudget()))
+        );
+        qualityTimeline.setCycleCount(Timeline.INDEFINITE);
+        qualityTimeline.play();
+    }
+
+    private void showQuality(JitterBufferStats stats, AudioPipelineStats pipeline, LatencyBudget latency) {
+        if (stats.getReceived() == 0) {
+            return;
+        }
+
+        double lossRate = stats.getLossRate();
+        String quality;
+        if (lossRate < 0.01 && stats.getJitterMs() < 20) {
+            quality = "Bonne";
+        } else if (lossRate < 0.05 && stats.getJitterMs() < 50) {
+            quality = "Moyenne";
+        } else {
+            quality = "Mauvaise";
+        }
+        callQualityLabel.setText(String.format("Qualité de l'appel: %s · latence ≈ %.0f ms", quality, latency.getTotalMs()));
+        jitterLabel.setText(String.format("Tampon %.0f ms (cible %.0f ms) · gigue %.1f ms · pertes %.1f %%%n"
+                        + "Débordements micro %d / envoi %d / réception %d · manques sortie %d%n"
+                        + "Profil %s · bouche-à-oreille %s",
+                stats.getDepthMs(), stats.getTargetDelayMs(), stats.getJitterMs(), lossRate * 100,
+                pipeline.getCaptureOverruns(), pipeline.getSendQueueOverruns(),
+                pipeline.getReceiveQueueOverruns(), pipeline.getPlaybackUnderruns(),
+                callManager.getCallQualityProfile().getDisplayName(), latency));
+    }
+
+    private void stopQualityMonitor() {
+        if (qualityTimeline != null) {
+            qualityTimeline.stop();
+            qualityTimeline = null;
+        }
+    }
+
     /**
      * Arrête la simulation du niveau audio
      */
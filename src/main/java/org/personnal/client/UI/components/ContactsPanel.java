@@ -1,6 +1,7 @@
 package org.personnal.client.UI.components;
 
 import javafx.application.Platform;
+import javafx.collections.MapChangeListener;
 import javafx.collections.ObservableList;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
@@ -11,13 +12,13 @@ import javafx.scene.shape.Circle;
 import javafx.scene.text.Text;
 import javafx.util.Callback;
 import org.personnal.client.controller.ChatController;
-import org.personnal.client.model.Message;
+import org.personnal.client.model.ConversationSummary;
 import org.personnal.client.model.User;
 
-import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Consumer;
 
 /**
@@ -87,6 +88,10 @@ public class ContactsPanel {
             });
         });
 
+        // Un changement de statut poussé par le serveur met à jour la liste, sans interrogation
+        controller.getPresenceStatuses().addListener(
+                (MapChangeListener<String, Boolean>) change -> contactListView.refresh());
+
         // Assemblage du panneau gauche
         panel.setTop(userHeader);
         BorderPane.setMargin(userHeader, new Insets(0));
@@ -99,6 +104,8 @@ public class ContactsPanel {
         contactListView.getSelectionModel().selectedItemProperty().addListener(
                 (observable, oldValue, newValue) -> {
                     if (newValue != null) {
+                        // La conversation ouverte est marquée comme lue
+                        unreadCountCache.put(newValue, 0);
                         onContactSelected.accept(newValue);
                     }
                 }
@@ -167,13 +174,13 @@ public class ContactsPanel {
                     VBox.setMargin(onlineStatus, new Insets(5, 0, 0, 0));
 
                     // *** INDICATEUR DE MESSAGES NON LUS OPTIMISÉ ***
-                    boolean hasUnreadMessages = getCachedUnreadStatus(contact);
+                    int unread = getCachedUnreadCount(contact);
 
-                    if (hasUnreadMessages) {
+                    if (unread > 0) {
                         Circle unreadIndicator = new Circle(7);
                         unreadIndicator.getStyleClass().add("unread-badge");
 
-                        Text unreadCount = new Text("!");
+                        Text unreadCount = new Text(unread > 9 ? "9+" : String.valueOf(unread));
                         unreadCount.setFill(Color.WHITE);
                         StackPane unreadBadge = new StackPane(unreadIndicator, unreadCount);
                         contactBox.getChildren().add(unreadBadge);
@@ -188,47 +195,17 @@ public class ContactsPanel {
         };
     }
     private final Map<String, String> lastMessageCache = new ConcurrentHashMap<>();
-    private final Map<String, Boolean> unreadStatusCache = new ConcurrentHashMap<>();
+    private final Map<String, Integer> unreadCountCache = new ConcurrentHashMap<>();
+    // Les résumés de toutes les conversations sont lus en une fois, pas contact par contact
+    private final AtomicBoolean summariesRequested = new AtomicBoolean(false);
 
     /**
      * *** RÉCUPÉRATION OPTIMISÉE DU DERNIER MESSAGE ***
-     * Utilise un cache local pour éviter les requêtes fréquentes à la BD
+     * Lit le cache rempli par {@link #loadConversationSummaries()}
      */
     private String getCachedLastMessage(String contact) {
-        // Vérifier le cache d'abord
-        String cachedMessage = lastMessageCache.get(contact);
-        if (cachedMessage != null) {
-            return cachedMessage;
-        }
-
-        // Si pas en cache, récupérer de la BD en arrière-plan
-        CompletableFuture.runAsync(() -> {
-            try {
-                List<Message> contactMessages = controller.getMessageDAO().getMessagesWith(contact);
-                String lastMessage = "";
-
-                if (!contactMessages.isEmpty()) {
-                    Message lastMsg = contactMessages.get(contactMessages.size() - 1);
-                    lastMessage = lastMsg.getContent();
-
-                    // Tronquer le message s'il est trop long
-                    if (lastMessage.length() > 30) {
-                        lastMessage = lastMessage.substring(0, 27) + "...";
-                    }
-                }
-
-                // Mettre en cache
-                lastMessageCache.put(contact, lastMessage);
-
-                // Rafraîchir l'UI si nécessaire
-                Platform.runLater(() -> contactListView.refresh());
-
-            } catch (Exception e) {
-                System.err.println("Erreur lors de la récupération du dernier message pour " + contact + ": " + e.getMessage());
-            }
-        });
-
-        return ""; // Retourner vide en attendant
+        loadConversationSummaries();
+        return lastMessageCache.getOrDefault(contact, ""); // Vide en attendant
     }
 
     /**
@@ -241,34 +218,56 @@ public class ContactsPanel {
     }
 
     /**
-     * *** RÉCUPÉRATION OPTIMISÉE DU STATUT DE MESSAGES NON LUS ***
-     * Utilise un cache local pour éviter les requêtes fréquentes à la BD
+     * *** RÉCUPÉRATION OPTIMISÉE DU NOMBRE DE MESSAGES NON LUS ***
+     * Lit le cache rempli par {@link #loadConversationSummaries()}
      */
-    private boolean getCachedUnreadStatus(String contact) {
-        // Vérifier le cache d'abord
-        Boolean cached = unreadStatusCache.get(contact);
-        if (cached != null) {
-            return cached;
+    private int getCachedUnreadCount(String contact) {
+        loadConversationSummaries();
+        return unreadCountCache.getOrDefault(contact, 0); // Aucun en attendant
+    }
+
+    /**
+     * Charge en arrière-plan les résumés de toutes les conversations (une seule requête indexée)
+     * puis rafraîchit la liste. Ne fait rien si le chargement a déjà été demandé.
+     */
+    private void loadConversationSummaries() {
+        if (!summariesRequested.compareAndSet(false, true)) {
+            return;
         }
 
-        // Si pas en cache, récupérer en arrière-plan
         CompletableFuture.runAsync(() -> {
             try {
-                boolean hasUnread = controller.getMessageDAO().hasUnreadMessagesFrom(contact);
-                unreadStatusCache.put(contact, hasUnread);
-
-                // Rafraîchir l'UI si nécessaire
-                if (hasUnread) {
-                    Platform.runLater(() -> contactListView.refresh());
+                Map<String, ConversationSummary> summaries = controller.getConversationSummaries();
+                for (ConversationSummary summary : summaries.values()) {
+                    lastMessageCache.put(summary.getContact(), truncate(summary.getLastPreview()));
+                    unreadCountCache.put(summary.getContact(), summary.getUnreadCount());
                 }
 
+                // Rafraîchir l'UI
+                Platform.runLater(() -> contactListView.refresh());
+
             } catch (Exception e) {
-                System.err.println("Erreur lors de la vérification des messages non lus pour " + contact + ": " + e.getMessage());
-                unreadStatusCache.put(contact, false);
+                System.err.println("Erreur lors de la récupération des résumés de conversation: " + e.getMessage());
+                summariesRequested.set(false);
             }
         });
+    }
 
-        return false; // Retourner false en attendant
+    /**
+     * Vide les caches : les résumés seront relus au prochain affichage
+     */
+    private void clearSummaryCaches() {
+        lastMessageCache.clear();
+        unreadCountCache.clear();
+        summariesRequested.set(false);
+    }
+
+    private static String truncate(String message) {
+        if (message == null) {
+            return "";
+        }
+        // Tronquer le message s'il est trop long
+        return message.length() > 30 ? message.substring(0, 27) + "..." : message;
     }
 
 
@@ -333,8 +332,7 @@ public class ContactsPanel {
                 Map<String, Boolean> statuses = controller.refreshContactStatuses();
 
                 // Vider les caches locaux pour forcer le rafraîchissement
-                lastMessageCache.clear();
-                unreadStatusCache.clear();
+                clearSummaryCaches();
 
                 // Mettre à jour l'interface
                 Platform.runLater(() -> {
@@ -397,15 +395,11 @@ public class ContactsPanel {
      */
     public void updateContactWithLastMessage(String contact, String lastMessage, String currentChatPartner) {
         // Mettre à jour le cache du dernier message
-        String truncatedMessage = lastMessage;
-        if (truncatedMessage.length() > 30) {
-            truncatedMessage = truncatedMessage.substring(0, 27) + "...";
-        }
-        lastMessageCache.put(contact, truncatedMessage);
+        lastMessageCache.put(contact, truncate(lastMessage));
 
         // Mettre à jour le cache des messages non lus
         if (!contact.equals(currentChatPartner)) {
-            unreadStatusCache.put(contact, true);
+            unreadCountCache.merge(contact, 1, Integer::sum);
         }
 
         // Rafraîchir l'affichage
@@ -449,8 +443,7 @@ public class ContactsPanel {
      */
     public void refreshContactList() {
         // Vider les caches pour forcer le rafraîchissement
-        lastMessageCache.clear();
-        unreadStatusCache.clear();
+        clearSummaryCaches();
 
         // Rafraîchir l'affichage
         contactListView.refresh();
@@ -8,6 +8,7 @@ import javafx.collections.ObservableList;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
 import javafx.scene.control.*;
+import javafx.scene.control.skin.VirtualFlow;
 import javafx.scene.input.KeyCode;
 import javafx.scene.layout.*;
 import javafx.scene.paint.Color;
@@ -18,12 +19,14 @@ import javafx.scene.text.Text;
 import javafx.scene.text.TextFlow;
 import javafx.util.Callback;
 import org.personnal.client.controller.ChatController;
-import org.personnal.client.model.Message;
+import org.personnal.client.model.TimelineItem;
 
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
@@ -38,10 +41,10 @@ public class MessagesPanel {
 
     // Controller et données
     private final ChatController controller;
-    private final ObservableList<Message> messages;
+    private final ObservableList<TimelineItem> messages;
 
     // Composants UI
-    private ListView<Message> messageListView;
+    private ListView<TimelineItem> messageListView;
     private TextField messageField;
     private Button sendButton;
     private Button attachButton;
@@ -54,6 +57,8 @@ public class MessagesPanel {
 
     // État
     private String currentChatPartner = null;
+    // Chargement d'une page plus ancienne en cours
+    private boolean loadingHistory = false;
 
     // Pour l'affichage du statut de saisie
     private final ScheduledExecutorService typingScheduler = Executors.newSingleThreadScheduledExecutor();
@@ -61,13 +66,13 @@ public class MessagesPanel {
     private Label typingIndicator;
 
     // Ensemble des cellules actuellement visibles pour optimiser les mises à jour
-    private final Set<ListCell<Message>> visibleCells = new HashSet<>();
+    private final Set<ListCell<TimelineItem>> visibleCells = new HashSet<>();
     private final StringProperty currentChatPartnerProperty = new SimpleStringProperty(null);
     private final Runnable onCallButtonClicked;
     /**
      * Constructeur du panneau de messages
      */
-    public MessagesPanel(ChatController controller, ObservableList<Message> messages,
+    public MessagesPanel(ChatController controller, ObservableList<TimelineItem> messages,
                          Runnable onSendMessage, Runnable onCallButtonClicked) {
         this.panel = new BorderPane();
         this.controller = controller;
@@ -93,6 +98,8 @@ public class MessagesPanel {
         messageListView.getStyleClass().add("message-list");
         messageListView.setCellFactory(createMessageCellFactory());
         VBox.setVgrow(messageListView, Priority.ALWAYS);
+        // Le VirtualFlow n'existe qu'une fois le skin créé
+        messageListView.skinProperty().addListener((obs, oldSkin, newSkin) -> installHistoryLoader());
 
         // Zone de saisie et envoi de message
         footerPane = createMessageInputBox();
@@ -102,6 +109,50 @@ public class MessagesPanel {
         panel.setBottom(footerPane);
     }
 
+    /**
+     * Charge la page précédente de l'historique quand l'utilisateur remonte en haut de la liste
+     */
+    private void installHistoryLoader() {
+        if (!(messageListView.lookup(".virtual-flow") instanceof VirtualFlow)) {
+            return;
+        }
+        VirtualFlow<?> flow = (VirtualFlow<?>) messageListView.lookup(".virtual-flow");
+        flow.positionProperty().addListener((obs, oldPos, newPos) -> {
+            // Seul un défilement de l'utilisateur déclenche le chargement, pas le remplacement de la liste
+            boolean userScroll = messageListView.isHover() || messageListView.isFocused();
+            if (newPos.doubleValue() <= 0 && oldPos.doubleValue() > 0 && userScroll) {
+                loadOlderMessages();
+            }
+        });
+    }
+
+    /**
+     * Lit la page précédente en arrière-plan, puis l'insère en tête de liste sur le thread JavaFX
+     */
+    private void loadOlderMessages() {
+        if (loadingHistory || currentChatPartner == null || messages.isEmpty()) {
+            return;
+        }
+        loadingHistory = true;
+        TimelineItem topBefore = messages.get(0);
+
+        CompletableFuture.supplyAsync(controller::loadOlderMessages)
+                .whenComplete((older, error) -> Platform.runLater(() -> {
+                    loadingHistory = false;
+                    if (error != null) {
+                        System.err.println("Erreur lors du chargement de l'historique: " + error.getMessage());
+                        return;
+                    }
+                    // Conversation changée ou rechargée pendant la lecture : la page ne la concerne plus
+                    if (older.isEmpty() || messages.isEmpty() || messages.get(0) != topBefore) {
+                        return;
+                    }
+                    messages.addAll(0, older);
+                    // Garder à l'écran le message qui était en haut avant le chargement
+                    messageListView.scrollTo(older.size());
+                }));
+    }
+
     /**
      * Crée l'en-tête de la conversation
      */
@@ -145,10 +196,10 @@ public class MessagesPanel {
     /**
      * Crée la fabrique de cellules pour la liste des messages
      */
-    private Callback<ListView<Message>, ListCell<Message>> createMessageCellFactory() {
-        return listView -> new ListCell<Message>() {
+    private Callback<ListView<TimelineItem>, ListCell<TimelineItem>> createMessageCellFactory() {
+        return listView -> new ListCell<TimelineItem>() {
             @Override
-            protected void updateItem(Message message, boolean empty) {
+            protected void updateItem(TimelineItem message, boolean empty) {
                 super.updateItem(message, empty);
 
                 if (empty || message == null) {
@@ -184,10 +235,9 @@ public class MessagesPanel {
                     }
 
                     // Contenu du message
-                    if (message.getContent().startsWith("Fichier: ")) {
+                    if (message.isFile()) {
                         // Affichage spécial pour les fichiers
-                        String fileName = message.getContent().substring("Fichier: ".length());
-                        HBox fileBox = createFileDisplay(fileName, message.getIdMessage());
+                        HBox fileBox = createFileDisplay(message.getFilename(), message.getId());
                         fileBox.getStyleClass().add("file-box");
                         messageBox.getChildren().add(fileBox);
                     } else {
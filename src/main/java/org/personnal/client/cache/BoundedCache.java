@@ -0,0 +1,206 @@
+package org.personnal.client.cache;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * Cache en mémoire borné, commun aux couches réseau, base de données et contrôleur.
+ * <ul>
+ *   <li>taille maximale : la moins récemment utilisée des entrées est évincée ;</li>
+ *   <li>durée de vie : une entrée expirée n'est plus retournée (0 = sans expiration) ;</li>
+ *   <li>rechargement anticipé : une entrée lue après {@code refreshAfterMs} est rechargée en arrière-plan,
+ *       la valeur courante restant servie jusqu'à l'arrivée de la nouvelle ;</li>
+ *   <li>compteurs de succès, d'échecs, d'évictions et d'expirations ({@link #getStats()}).</li>
+ * </ul>
+ * Les entrées expirées sont retirées à la lecture et, depuis la plus ancienne, à chaque insertion :
+ * aucun parcours complet n'est nécessaire.
+ */
+public final class BoundedCache<K, V> {
+    private final String name;
+    private final int maxSize;
+    private final long ttlMs;
+
+    // Rechargement anticipé, désactivé si reloader est null
+    private long refreshAfterMs;
+    private Function<K, CompletableFuture<V>> reloader;
+
+    private final LinkedHashMap<K, Entry<V>> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long expirations;
+    private long refreshes;
+
+    public BoundedCache(String name, int maxSize, long ttlMs) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("Taille maximale invalide : " + maxSize);
+        }
+        this.name = name;
+        this.maxSize = maxSize;
+        this.ttlMs = ttlMs;
+    }
+
+    /**
+     * Active le rechargement anticipé : une entrée plus ancienne que refreshAfterMs est rechargée
+     * par reloader lors de sa lecture. Un rechargement en échec ou de valeur null laisse l'entrée inchangée :
+     * reloader doit donc signaler une erreur par un résultat en échec, jamais par une valeur de repli.
+     */
+    public synchronized BoundedCache<K, V> refreshAhead(long refreshAfterMs, Function<K, CompletableFuture<V>> reloader) {
+        this.refreshAfterMs = refreshAfterMs;
+        this.reloader = reloader;
+        return this;
+    }
+
+    /**
+     * Valeur en cache, null si absente ou expirée
+     */
+    public V get(K key) {
+        V value;
+        boolean refresh = false;
+        synchronized (this) {
+            Entry<V> entry = entries.get(key);
+            long now = System.currentTimeMillis();
+            if (entry == null) {
+                misses++;
+                return null;
+            }
+            if (entry.isExpired(now)) {
+                entries.remove(key);
+                expirations++;
+                misses++;
+                return null;
+            }
+
+            hits++;
+            value = entry.value;
+            if (reloader != null && !entry.refreshing && now - entry.writeTime >= refreshAfterMs) {
+                entry.refreshing = true;
+                refreshes++;
+                refresh = true;
+            }
+        }
+
+        if (refresh) {
+            reload(key);
+        }
+        return value;
+    }
+
+    private void reload(K key) {
+        CompletableFuture<V> future;
+        try {
+            future = reloader.apply(key);
+        } catch (RuntimeException e) {
+            future = CompletableFuture.failedFuture(e);
+        }
+
+        future.whenComplete((value, throwable) -> {
+            if (throwable == null && value != null) {
+                put(key, value);
+                return;
+            }
+            // Échec : un prochain accès pourra relancer le rechargement
+            synchronized (this) {
+                Entry<V> entry = entries.get(key);
+                if (entry != null) {
+                    entry.refreshing = false;
+                }
+            }
+        });
+    }
+
+    public void put(K key, V value) {
+        put(key, value, ttlMs);
+    }
+
+    /**
+     * Ajoute une entrée avec une durée de vie propre (par exemple plus courte pour un résultat d'erreur)
+     */
+    public synchronized void put(K key, V value, long entryTtlMs) {
+        long now = System.currentTimeMillis();
+        entries.put(key, new Entry<>(value, now, entryTtlMs > 0 ? now + entryTtlMs : Long.MAX_VALUE));
+        evictIfNeeded(now);
+    }
+
+    /**
+     * Ajoute une entrée seulement si la clé n'a pas de valeur valide, sans jamais remplacer une bonne valeur
+     * par un résultat d'erreur
+     */
+    public synchronized void putIfAbsent(K key, V value, long entryTtlMs) {
+        Entry<V> entry = entries.get(key);
+        if (entry == null || entry.isExpired(System.currentTimeMillis())) {
+            put(key, value, entryTtlMs);
+        }
+    }
+
+    public synchronized void putAll(Map<? extends K, ? extends V> values) {
+        values.forEach((key, value) -> put(key, value));
+    }
+
+    private void evictIfNeeded(long now) {
+        Iterator<Entry<V>> it = entries.values().iterator();
+        while (it.hasNext()) {
+            Entry<V> eldest = it.next();
+            if (eldest.isExpired(now)) {
+                it.remove();
+                expirations++;
+            } else if (entries.size() > maxSize) {
+                it.remove();
+                evictions++;
+            } else {
+                break;
+            }
+        }
+    }
+
+    public synchronized void invalidate(K key) {
+        entries.remove(key);
+    }
+
+    public synchronized void invalidateAll() {
+        entries.clear();
+    }
+
+    /**
+     * Retire toutes les entrées expirées, y compris celles qui ne sont pas en tête
+     */
+    public synchronized void cleanUp() {
+        long now = System.currentTimeMillis();
+        Iterator<Entry<V>> it = entries.values().iterator();
+        while (it.hasNext()) {
+            if (it.next().isExpired(now)) {
+                it.remove();
+                expirations++;
+            }
+        }
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized CacheStats getStats() {
+        return new CacheStats(name, entries.size(), hits, misses, evictions, expirations, refreshes);
+    }
+
+    private static final class Entry<V> {
+        private final V value;
+        private final long writeTime;
+        private final long expiryTime;
+        private boolean refreshing;
+
+        private Entry(V value, long writeTime, long expiryTime) {
+            this.value = value;
+            this.writeTime = writeTime;
+            this.expiryTime = expiryTime;
+        }
+
+        private boolean isExpired(long now) {
+            return now > expiryTime;
+        }
+    }
+}
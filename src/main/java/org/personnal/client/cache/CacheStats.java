@@ -0,0 +1,46 @@
+package org.personnal.client.cache;
+
+/**
+ * Compteurs d'un {@link BoundedCache} à un instant donné
+ */
+public final class CacheStats {
+    private final String name;
+    private final int size;
+    private final long hits;
+    private final long misses;
+    private final long evictions;
+    private final long expirations;
+    private final long refreshes;
+
+    CacheStats(String name, int size, long hits, long misses, long evictions, long expirations, long refreshes) {
+        this.name = name;
+        this.size = size;
+        this.hits = hits;
+        this.misses = misses;
+        this.evictions = evictions;
+        this.expirations = expirations;
+        this.refreshes = refreshes;
+    }
+
+    public String getName() { return name; }
+    public int getSize() { return size; }
+    public long getHits() { return hits; }
+    public long getMisses() { return misses; }
+    // Entrées retirées parce que le cache était plein
+    public long getEvictions() { return evictions; }
+    // Entrées retirées parce que leur durée de vie était dépassée
+    public long getExpirations() { return expirations; }
+    // Rechargements anticipés déclenchés avant expiration
+    public long getRefreshes() { return refreshes; }
+
+    public double getHitRate() {
+        long requests = hits + misses;
+        return requests == 0 ? 0.0 : (double) hits / requests;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Cache %s : %d entrées, %d succès, %d échecs (%.0f %%), %d évictions, %d expirations, %d rechargements",
+                name, size, hits, misses, getHitRate() * 100, evictions, expirations, refreshes);
+    }
+}
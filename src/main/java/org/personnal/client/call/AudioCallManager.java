@@ -5,24 +5,46 @@ import org.personnal.client.protocol.PeerRequest;
 import org.personnal.client.protocol.PeerResponse;
 import org.personnal.client.protocol.RequestType;
 import org.personnal.client.network.ClientSocketManager;
+import org.personnal.client.network.NetworkConstants;
 
 import javax.sound.sampled.*;
 import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
 import java.util.function.Consumer;
 
 /**
  * Gestionnaire d'appels audio pour l'interface graphique
- * Coordonne les appels audio entre utilisateurs
+ * Coordonne les appels audio entre utilisateurs : la signalisation passe par la connexion de chat,
+ * l'audio par un canal média séparé ({@link MediaTransport})
  */
 public class AudioCallManager {
-    // Configuration audio
-    private static final int BUFFER_SIZE = 1024;
-    private static final AudioFormat AUDIO_FORMAT = new AudioFormat(44100.0f, 16, 1, true, false);
+    // Configuration audio : durée de trame, fréquence et tampons des lignes viennent du profil de qualité
+    // Tampon de gigue : jusqu'à 400 ms de trames en attente de lecture, quelle que soit leur durée
+    private static final int JITTER_BUFFER_MS = 400;
+    // Pendant un silence, rappel du niveau de bruit (et de l'adresse auprès du relais) toutes les 500 ms
+    private static final long SILENCE_REFRESH_MS = 500;
+    // Anneaux entre les threads audio et réseau : 16 trames, de 160 à 640 ms selon le profil
+    private static final int RING_CAPACITY = 16;
+    // Attente maximale de l'arrêt des boucles audio en fin d'appel
+    private static final long AUDIO_TASKS_STOP_TIMEOUT_MS = 1000;
+    // Attente maximale, par un nouvel appel, de la fermeture du précédent (vidage du haut-parleur compris)
+    private static final long TEARDOWN_WAIT_TIMEOUT_MS = 2 * AUDIO_TASKS_STOP_TIMEOUT_MS;
 
     // État
     private final ChatController controller;
@@ -30,6 +52,8 @@ public class AudioCallManager {
     private String callPartner;
     private CallStatus callStatus = CallStatus.IDLE;
     private final AtomicBoolean audioTransmissionActive = new AtomicBoolean(false);
+    private final AtomicBoolean mediaEstablished = new AtomicBoolean(false);
+    private static final SecureRandom sessionRandom = new SecureRandom();
 
     // Écouteur d'événements d'appel
     private Consumer<CallEvent> callEventListener;
@@ -38,6 +62,40 @@ public class AudioCallManager {
     private TargetDataLine micLine;
     private SourceDataLine speakerLine;
     private ExecutorService audioThreadPool;
+    // Boucles de capture, d'envoi et de lecture de l'appel en cours
+    private volatile Future<?>[] audioTasks;
+    // Fermeture des lignes et attente des boucles, hors du thread JavaFX qui termine l'appel
+    private final ExecutorService teardownExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "AudioCall-teardown");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private volatile CompletableFuture<Void> sessionTeardown = CompletableFuture.completedFuture(null);
+
+    // Profil de l'appel en cours, relu dans les préférences à l'ouverture des lignes
+    private volatile CallQualityProfile profile;
+
+    // Canal média de l'appel en cours
+    private volatile MediaTransport mediaTransport;
+    private volatile JitterBuffer jitterBuffer;
+    // Transmission discontinue : seules les trames de parole sont envoyées
+    private volatile VoiceActivityDetector voiceDetector;
+
+    // Volumes des préférences, lus à l'ouverture des lignes et appliqués sur place à chaque trame
+    private volatile float microphoneGain = 1.0f;
+    private volatile float speakerGain = 1.0f;
+
+    // Codec d'envoi : PCM jusqu'à la réponse de l'appelé, puis celui qu'il a retenu
+    private volatile AudioCodec sendCodec;
+    // Décodeurs par type de charge utile, utilisés par le seul thread de réception
+    private final AudioCodec[] decoders = new AudioCodec[8];
+
+    // Anneaux de l'appel en cours : micro → envoi et réception → lecture
+    private volatile AudioFrameRing captureRing;
+    private volatile AudioFrameRing receiveRing;
+    // Un seul thread écrit chaque compteur
+    private volatile long captureOverruns;
+    private volatile long playbackUnderruns;
 
     /**
      * Événements d'appel
@@ -69,6 +127,7 @@ public class AudioCallManager {
     public AudioCallManager(ChatController controller) throws IOException {
         this.controller = controller;
         this.socketManager = ClientSocketManager.getInstance();
+        applyProfile(AudioDeviceManager.getCallQualityProfile());
         initializeAudio();
     }
 
@@ -78,38 +137,65 @@ public class AudioCallManager {
     private void initializeAudio() {
         try {
             // Vérifier si le format audio est supporté
-            DataLine.Info micInfo = new DataLine.Info(TargetDataLine.class, AUDIO_FORMAT);
-            DataLine.Info speakerInfo = new DataLine.Info(SourceDataLine.class, AUDIO_FORMAT);
+            AudioFormat format = profile.getAudioFormat();
+            DataLine.Info micInfo = new DataLine.Info(TargetDataLine.class, format);
+            DataLine.Info speakerInfo = new DataLine.Info(SourceDataLine.class, format);
 
             if (!AudioSystem.isLineSupported(micInfo) || !AudioSystem.isLineSupported(speakerInfo)) {
                 System.err.println("❌ Format audio non supporté par votre système");
                 return;
             }
 
-            // Créer le pool de threads pour l'audio
-            audioThreadPool = Executors.newFixedThreadPool(2);
+            // Threads de capture, d'envoi et de lecture ; la réception a le sien dans MediaTransport
+            audioThreadPool = Executors.newFixedThreadPool(3, runnable -> {
+                Thread thread = new Thread(runnable, "AudioCall");
+                thread.setDaemon(true);
+                thread.setPriority(Thread.MAX_PRIORITY);
+                return thread;
+            });
         } catch (Exception e) {
             System.err.println("❌ Erreur d'initialisation audio: " + e.getMessage());
         }
     }
 
     /**
-     * Ouvre les lignes audio pour un appel
+     * Dimensionne le tampon de gigue, la détection de voix et le codec d'envoi pour un profil
+     */
+    private void applyProfile(CallQualityProfile callProfile) {
+        int jitterCapacity = Math.max(2 * JitterBuffer.MIN_TARGET_FRAMES, JITTER_BUFFER_MS / callProfile.getFrameMs());
+        jitterBuffer = new JitterBuffer(jitterCapacity, callProfile.getFrameBytes(),
+                callProfile.getMaxReceivedFrameBytes(), callProfile.getSampleRate());
+        voiceDetector = new VoiceActivityDetector(callProfile.getFrameMs());
+        sendCodec = new PcmCodec(callProfile.getSampleRate());
+        profile = callProfile;
+    }
+
+    /**
+     * Ouvre les lignes audio pour un appel, au format et avec les tampons du profil choisi
      */
     private boolean openAudioLines() {
+        awaitSessionTeardown();
         try {
-            DataLine.Info micInfo = new DataLine.Info(TargetDataLine.class, AUDIO_FORMAT);
-            DataLine.Info speakerInfo = new DataLine.Info(SourceDataLine.class, AUDIO_FORMAT);
+            applyProfile(AudioDeviceManager.getCallQualityProfile());
+            AudioFormat format = profile.getAudioFormat();
+            DataLine.Info micInfo = new DataLine.Info(TargetDataLine.class, format);
+            DataLine.Info speakerInfo = new DataLine.Info(SourceDataLine.class, format);
 
             micLine = (TargetDataLine) AudioSystem.getLine(micInfo);
             speakerLine = (SourceDataLine) AudioSystem.getLine(speakerInfo);
 
-            micLine.open(AUDIO_FORMAT);
-            speakerLine.open(AUDIO_FORMAT);
+            // Tampons explicites : ceux des pilotes par défaut ajoutent souvent plusieurs centaines de millisecondes
+            micLine.open(format, profile.getLineBufferBytes());
+            speakerLine.open(format, profile.getLineBufferBytes());
 
             micLine.start();
             speakerLine.start();
+            System.out.println("🎚️ Profil " + profile + " : tampons micro " + micLine.getBufferSize()
+                    + " o, haut-parleur " + speakerLine.getBufferSize() + " o, latence estimée "
+                    + profile.nominalLatency());
 
+            microphoneGain = AudioDeviceManager.getMicrophoneVolume();
+            speakerGain = AudioDeviceManager.getSpeakerVolume();
             return true;
         } catch (LineUnavailableException e) {
             System.err.println("❌ Erreur lors de l'ouverture des lignes audio: " + e.getMessage());
@@ -136,53 +222,321 @@ public class AudioCallManager {
     }
 
     /**
-     * Démarre la capture et l'envoi audio
+     * Adresse du relais média : l'hôte du serveur, sauf indication contraire de la propriété système
+     */
+    private InetSocketAddress mediaRelayAddress() {
+        String configured = System.getProperty(NetworkConstants.MEDIA_RELAY_PROPERTY);
+        if ("local".equalsIgnoreCase(configured)) {
+            LocalMediaRelay.ensureStarted(NetworkConstants.MEDIA_RELAY_PORT);
+            return new InetSocketAddress("127.0.0.1", NetworkConstants.MEDIA_RELAY_PORT);
+        }
+        if (configured != null && configured.contains(":")) {
+            int separator = configured.lastIndexOf(':');
+            return new InetSocketAddress(configured.substring(0, separator),
+                    Integer.parseInt(configured.substring(separator + 1)));
+        }
+        return new InetSocketAddress(socketManager.getServerHost(), NetworkConstants.MEDIA_RELAY_PORT);
+    }
+
+    /**
+     * Ouvre le canal média de la session négociée
+     */
+    private boolean openMediaTransport(int session) {
+        closeMediaTransport();
+        try {
+            mediaTransport = MediaTransport.open(mediaRelayAddress(), session, this::onMediaPacket);
+            return true;
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println("❌ Impossible d'ouvrir le canal média: " + e.getMessage());
+            return false;
+        }
+    }
+
+    private void closeMediaTransport() {
+        MediaTransport transport = mediaTransport;
+        mediaTransport = null;
+        if (transport != null) {
+            transport.close();
+        }
+    }
+
+    /**
+     * Démarre la capture et l'envoi audio sur le canal média.
+     * Quatre threads, reliés deux à deux par un {@link AudioFrameRing} sans verrou :
+     * <pre>
+     *  capture (micro) → anneau → envoi (détection de voix, codage, UDP)
+     *  réception (UDP, décodage) → anneau → lecture (tampon de gigue, haut-parleur)
+     * </pre>
+     * Un envoi lent ne bloque donc plus la lecture du micro, ni une lecture lente la réception :
+     * une trame qui ne trouve pas de place est comptée et jetée.
+     * En régime établi, aucune boucle n'alloue : emplacements des anneaux et tampons créés au démarrage,
+     * gain appliqué sur place, codecs et tampon de gigue à tampons réutilisés.
      */
     private void startAudioTransmission() {
-        if (callStatus != CallStatus.CONNECTED || micLine == null || speakerLine == null) {
+        if (callStatus != CallStatus.CONNECTED || micLine == null || speakerLine == null || mediaTransport == null) {
             return;
         }
+        if (audioTransmissionActive.getAndSet(true)) {
+            return;
+        }
+
+        CallQualityProfile callProfile = profile;
+        AudioFrameRing toSend = new AudioFrameRing(RING_CAPACITY, callProfile.getFrameBytes());
+        AudioFrameRing toPlay = new AudioFrameRing(RING_CAPACITY, jitterBuffer.getMaxFrameBytes());
+        captureRing = toSend;
+        receiveRing = toPlay;
+
+        audioTasks = new Future<?>[]{
+                audioThreadPool.submit(() -> captureLoop(toSend, callProfile)),
+                audioThreadPool.submit(() -> sendLoop(toSend, callProfile)),
+                audioThreadPool.submit(() -> playbackLoop(toPlay, callProfile))
+        };
+    }
 
-        audioTransmissionActive.set(true);
+    /**
+     * Attend la fin des boucles audio, une fois le drapeau baissé et les lignes fermées (ce qui débloque
+     * une lecture ou une écriture en cours). Une boucle qui dépasse le délai est interrompue.
+     * Les trois threads du pool sont ainsi libres pour l'appel suivant, et l'état partagé
+     * (tampon de gigue, détection de voix, décodeurs) n'est remis à zéro qu'après leur arrêt.
+     */
+    private void awaitAudioTasks() {
+        Future<?>[] tasks = audioTasks;
+        audioTasks = null;
+        if (tasks == null) {
+            return;
+        }
 
-        // Thread pour capturer et envoyer l'audio
-        audioThreadPool.submit(() -> {
-            byte[] buffer = new byte[BUFFER_SIZE];
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(AUDIO_TASKS_STOP_TIMEOUT_MS);
+        for (Future<?> task : tasks) {
+            try {
+                task.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                System.err.println("⚠️ Une boucle audio ne s'est pas arrêtée à temps, interruption");
+                task.cancel(true);
+            } catch (ExecutionException e) {
+                System.err.println("❌ Boucle audio terminée sur une erreur: " + e.getCause());
+            } catch (CancellationException ignored) {
+                // Déjà annulée
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                task.cancel(true);
+            }
+        }
+    }
 
-            while (audioTransmissionActive.get() && micLine != null && micLine.isOpen()) {
-                try {
-                    int bytesRead = micLine.read(buffer, 0, buffer.length);
+    /**
+     * Lit le micro directement dans les emplacements de l'anneau d'envoi
+     */
+    private void captureLoop(AudioFrameRing ring, CallQualityProfile callProfile) {
+        int frameBytes = callProfile.getFrameBytes();
+        byte[] discarded = new byte[frameBytes];
+        long capturedSamples = 0;
+        int frameSize = callProfile.getAudioFormat().getFrameSize();
+
+        while (audioTransmissionActive.get()) {
+            TargetDataLine line = micLine;
+            if (line == null || !line.isOpen()) {
+                break;
+            }
+            try {
+                // Ligne pleine : le pilote a déjà perdu des échantillons
+                if (line.available() >= line.getBufferSize()) {
+                    captureOverruns++;
+                }
 
-                    if (bytesRead > 0) {
-                        // Encoder les données audio en base64 et les envoyer
-                        String audioData = java.util.Base64.getEncoder().encodeToString(buffer);
-                        sendCallSignal("audio-data", audioData);
+                int slot = ring.claim();
+                // Anneau plein : la ligne doit quand même être vidée
+                byte[] target = slot >= 0 ? ring.data(slot) : discarded;
+                int bytesRead = line.read(target, 0, frameBytes);
+                if (bytesRead > 0) {
+                    if (slot >= 0) {
+                        AudioDeviceManager.applyVolumeInPlace(target, bytesRead, microphoneGain);
+                        ring.publish(bytesRead, 0, capturedSamples, (byte) 0);
                     }
-                } catch (Exception e) {
-                    if (audioTransmissionActive.get()) {
-                        System.err.println("❌ Erreur lors de la capture audio: " + e.getMessage());
+                    capturedSamples += bytesRead / frameSize;
+                }
+            } catch (Exception e) {
+                if (audioTransmissionActive.get()) {
+                    System.err.println("❌ Erreur lors de la capture audio: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Code et envoie les trames capturées, hors du thread du micro
+     */
+    private void sendLoop(AudioFrameRing ring, CallQualityProfile callProfile) {
+        byte[] encoded = new byte[MediaPacket.MAX_PAYLOAD_SIZE];
+        byte[] noiseLevel = new byte[MediaPacket.SILENCE_PAYLOAD_SIZE];
+        VoiceActivityDetector detector = voiceDetector;
+        long frameNanos = callProfile.getFrameMs() * 1_000_000L;
+        long sampleRate = (long) callProfile.getSampleRate();
+        int sequence = 0;
+        int silenceRefreshFrames = (int) Math.max(1, SILENCE_REFRESH_MS / callProfile.getFrameMs());
+        int silentFrames = 0;
+
+        while (audioTransmissionActive.get()) {
+            int slot = ring.peek();
+            if (slot < 0) {
+                LockSupport.parkNanos(frameNanos / 4);
+                continue;
+            }
+
+            try {
+                MediaTransport transport = mediaTransport;
+                if (transport != null) {
+                    byte[] frame = ring.data(slot);
+                    int frameLength = ring.length(slot);
+                    AudioCodec codec = sendCodec;
+                    // Horodatage à l'horloge du codec, comme en RTP ; il avance aussi pendant le silence,
+                    // la gigue reste donc mesurable à la reprise
+                    int timestamp = (int) (ring.timestamp(slot) * (long) codec.getClockRate() / sampleRate);
+
+                    if (detector.isSpeech(frame, frameLength)) {
+                        // Trame codée, numérotée : aucune trame audio ne passe par la connexion de chat
+                        int length = codec.encode(frame, frameLength, encoded);
+                        transport.send((byte) 0, codec.getPayloadType(), sequence++, timestamp, encoded, 0, length);
+                        silentFrames = 0;
+                    } else if (silentFrames++ % silenceRefreshFrames == 0) {
+                        // Début ou rappel du silence : le destinataire joue du bruit de confort à ce niveau
+                        MediaPacket.writeNoiseLevel(noiseLevel, detector.getNoiseFloor());
+                        transport.send(MediaPacket.FLAG_SILENCE, codec.getPayloadType(), sequence++, timestamp,
+                                noiseLevel, 0, noiseLevel.length);
                     }
                 }
+            } catch (Exception e) {
+                if (audioTransmissionActive.get()) {
+                    System.err.println("❌ Erreur lors de l'envoi audio: " + e.getMessage());
+                }
+            } finally {
+                ring.release();
             }
-        });
+        }
     }
 
     /**
-     * Traite les données audio reçues
-     * @param audioData Les données audio encodées en base64
+     * Range les trames reçues dans le tampon de gigue et en donne une à la ligne de sortie dès qu'elle en manque.
+     * La ligne ne garde d'avance qu'un tampon du profil, moins une trame : le reste de l'attente est dans
+     * le tampon de gigue, qui l'ajuste à la gigue mesurée.
      */
-    private void processAudioData(String audioData) {
-        if (callStatus != CallStatus.CONNECTED || speakerLine == null || !speakerLine.isOpen()) {
+    private void playbackLoop(AudioFrameRing ring, CallQualityProfile callProfile) {
+        JitterBuffer buffer = jitterBuffer;
+        byte[] frame = new byte[buffer.getMaxFrameBytes()];
+        long frameNanos = callProfile.getFrameMs() * 1_000_000L;
+        int playoutLead = (callProfile.getLineBufferFrames() - 1) * callProfile.getFrameBytes();
+        boolean playing = false;
+
+        while (audioTransmissionActive.get()) {
+            SourceDataLine line = speakerLine;
+            if (line == null || !line.isOpen()) {
+                break;
+            }
+
+            for (int slot = ring.peek(); slot >= 0; slot = ring.peek()) {
+                buffer.offer(ring.sequence(slot), ring.timestamp(slot) / 1000.0,
+                        (ring.flags(slot) & MediaPacket.FLAG_SILENCE) != 0, ring.data(slot), ring.length(slot));
+                ring.release();
+            }
+
+            int available = line.available();
+            if (line.getBufferSize() - available > playoutLead) {
+                LockSupport.parkNanos(frameNanos / 4);
+                continue;
+            }
+            // Ligne vide alors que la lecture avait commencé : le haut-parleur a manqué de données
+            if (playing && available >= line.getBufferSize()) {
+                playbackUnderruns++;
+            }
+
+            int length = buffer.poll(frame);
+            AudioDeviceManager.applyVolumeInPlace(frame, length, speakerGain);
+            line.write(frame, 0, length);
+            playing = true;
+        }
+    }
+
+    /**
+     * Décode un paquet reçu du canal média dans l'anneau de lecture, sur le thread de réception
+     */
+    private void onMediaPacket(ByteBuffer packet) {
+        SourceDataLine line = speakerLine;
+        AudioFrameRing ring = receiveRing;
+        AudioCodec decoder = decoderFor(MediaPacket.payloadType(packet));
+        if (callStatus != CallStatus.CONNECTED || line == null || !line.isOpen() || ring == null || decoder == null) {
             return;
         }
 
-        try {
-            // Décoder et jouer l'audio
-            byte[] decodedData = java.util.Base64.getDecoder().decode(audioData);
-            speakerLine.write(decodedData, 0, decodedData.length);
-        } catch (Exception e) {
-            System.err.println("❌ Erreur lors du traitement des données audio: " + e.getMessage());
+        if (!mediaEstablished.getAndSet(true)) {
+            System.out.println("🎧 Premier paquet audio reçu de " + callPartner + " (" + decoder.getName() + ")");
+            notifyCallEvent(CallEvent.MEDIA_ESTABLISHED);
         }
+
+        int slot = ring.claim();
+        if (slot < 0) {
+            return;
+        }
+
+        byte[] target = ring.data(slot);
+        int length;
+        byte flags = MediaPacket.flags(packet);
+        if ((flags & MediaPacket.FLAG_SILENCE) != 0) {
+            length = Math.min(packet.remaining(), target.length);
+            packet.get(target, 0, length);
+        } else {
+            length = decoder.decode(packet, target);
+        }
+        // Horodatage en microsecondes, selon l'horloge du codec
+        long mediaTimeMicros = (long) ((MediaPacket.timestamp(packet) & 0xFFFFFFFFL) * 1_000_000.0 / decoder.getClockRate());
+        ring.publish(length, MediaPacket.sequence(packet), mediaTimeMicros, flags);
+    }
+
+    /**
+     * Décodeur du type de charge utile, créé à sa première réception ; null si le type est inconnu
+     */
+    private AudioCodec decoderFor(byte payloadType) {
+        if (payloadType < 0 || payloadType >= decoders.length) {
+            return null;
+        }
+        AudioCodec decoder = decoders[payloadType];
+        if (decoder == null) {
+            decoder = AudioCodecs.forPayloadType(payloadType, profile.getSampleRate());
+            decoders[payloadType] = decoder;
+        }
+        return decoder;
+    }
+
+    /**
+     * Mesures du tampon de gigue de l'appel en cours (profondeur, gigue, pertes)
+     */
+    public JitterBufferStats getJitterStats() {
+        return jitterBuffer.getStats();
+    }
+
+    /**
+     * Profil de qualité de l'appel en cours, ou de l'appel suivant hors appel
+     */
+    public CallQualityProfile getCallQualityProfile() {
+        return profile;
+    }
+
+    /**
+     * Latence bouche-à-oreille estimée de l'appel en cours, avec la profondeur visée du tampon de gigue
+     */
+    public LatencyBudget getLatencyBudget() {
+        return profile.latencyBudget(jitterBuffer.getStats().getTargetDelayMs());
+    }
+
+    /**
+     * Débordements et manques des lignes audio et des anneaux de l'appel en cours
+     */
+    public AudioPipelineStats getPipelineStats() {
+        AudioFrameRing toSend = captureRing;
+        AudioFrameRing toPlay = receiveRing;
+        return new AudioPipelineStats(captureOverruns,
+                toSend != null ? toSend.getOverruns() : 0,
+                toPlay != null ? toPlay.getOverruns() : 0,
+                playbackUnderruns);
     }
 
     /**
@@ -238,14 +592,10 @@ public class AudioCallManager {
             PeerRequest request = new PeerRequest(RequestType.CALL, payload);
             socketManager.sendRequest(request);
 
-            // Ouvrir les lignes audio
+            // Ouvrir les lignes audio ; la transmission démarre à la réception de l'offre de l'appelant
             if (openAudioLines()) {
                 callStatus = CallStatus.CONNECTED;
                 notifyCallEvent(CallEvent.CALL_ACCEPTED);
-
-                // Démarrer la transmission audio
-                startAudioTransmission();
-
                 return true;
             } else {
                 callStatus = CallStatus.ERROR;
@@ -325,13 +675,60 @@ public class AudioCallManager {
     }
 
     /**
-     * Ferme la session d'appel
+     * Ferme la session d'appel. Seul le changement d'état a lieu sur le thread appelant (souvent le thread
+     * JavaFX) : le vidage du haut-parleur, l'arrêt des boucles et la remise à zéro se font en arrière-plan.
      */
     private void closeCallSession() {
         audioTransmissionActive.set(false);
+        mediaEstablished.set(false);
         callStatus = CallStatus.IDLE;
         callPartner = null;
+        closeMediaTransport();
+        sessionTeardown = CompletableFuture.runAsync(this::releaseCallResources, teardownExecutor)
+                .whenComplete((ignored, error) -> {
+                    if (error != null) {
+                        System.err.println("❌ Erreur lors de la fermeture de l'appel: " + error.getMessage());
+                    }
+                });
+    }
+
+    /**
+     * Ferme les lignes, attend les boucles audio puis remet à zéro l'état partagé de l'appel
+     */
+    private void releaseCallResources() {
         closeAudioLines();
+        awaitAudioTasks();
+        System.out.println("📊 " + jitterBuffer.getStats());
+        System.out.println("📊 " + getPipelineStats());
+        System.out.printf("📊 Activité vocale : %.0f %% des trames du micro transmises%n", voiceDetector.getActivityRate() * 100);
+        jitterBuffer.reset();
+        voiceDetector.reset();
+        Arrays.fill(decoders, null);
+        captureRing = null;
+        receiveRing = null;
+        captureOverruns = 0;
+        playbackUnderruns = 0;
+        sendCodec = new PcmCodec(profile.getSampleRate());
+    }
+
+    /**
+     * Un appel qui suit de près le précédent attend la fin de sa fermeture : les lignes audio
+     * et l'état partagé ne sont rouverts qu'une fois libérés
+     */
+    private void awaitSessionTeardown() {
+        CompletableFuture<Void> teardown = sessionTeardown;
+        if (teardown.isDone()) {
+            return;
+        }
+        try {
+            teardown.get(TEARDOWN_WAIT_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            System.err.println("⚠️ La fermeture de l'appel précédent n'est pas terminée");
+        } catch (ExecutionException e) {
+            // Déjà signalée par la fermeture
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
     }
 
     /**
@@ -377,16 +774,14 @@ public class AudioCallManager {
             case "call-accepted":
                 callStatus = CallStatus.CONNECTED;
 
-                // Ouvrir les lignes audio
-                if (openAudioLines()) {
-                    // Démarrer la transmission audio
-                    startAudioTransmission();
+                // Ouvrir les lignes audio et le canal média, puis proposer la session à l'appelé
+                int session = sessionRandom.nextInt(Integer.MAX_VALUE - 1) + 1;
+                if (openAudioLines() && openMediaTransport(session)) {
                     notifyCallEvent(CallEvent.CALL_ACCEPTED);
-
-                    // Simuler l'envoi d'une offre SDP
-                    String fakeSdp = "{\"type\":\"offer\",\"sdp\":\"v=0\\r\\no=- 12345 2 IN IP4 127.0.0.1\\r\\ns=-\\r\\nt=0 0\\r\\na=group:BUNDLE audio\\r\\n\"}";
-                    sendCallSignal("offer", fakeSdp);
+                    sendCallSignal("offer", new MediaDescription("offer", session, AudioCodecs.SUPPORTED).toSignal());
+                    startAudioTransmission();
                 } else {
+                    closeMediaTransport();
                     callStatus = CallStatus.ERROR;
                     notifyCallEvent(CallEvent.CALL_ERROR);
                 }
@@ -404,20 +799,58 @@ public class AudioCallManager {
                 notifyCallEvent(CallEvent.CALL_ENDED);
                 break;
 
-            case "audio-data":
-                // Traiter les données audio
-                processAudioData(eventData.get("data"));
+            case "offer":
+                handleOffer(MediaDescription.fromSignal(eventData.get("data")));
                 break;
 
-            case "offer":
             case "answer":
+                handleAnswer(MediaDescription.fromSignal(eventData.get("data")));
+                break;
+
             case "ice-candidate":
-                // Traiter les signaux WebRTC
                 System.out.println("📡 Signal " + action + " reçu");
                 break;
         }
     }
 
+    /**
+     * L'appelé rejoint la session proposée par l'appelant et lui répond
+     */
+    private void handleOffer(MediaDescription offer) {
+        if (callStatus != CallStatus.CONNECTED || offer == null) {
+            System.out.println("📡 Offre ignorée : pas d'appel connecté ou pas de canal média proposé");
+            return;
+        }
+
+        String codecName = AudioCodecs.negotiate(offer.getCodecs());
+        System.out.println("📡 Offre reçue (session " + offer.getSession() + ", codec " + codecName + ")");
+        if (openMediaTransport(offer.getSession())) {
+            sendCodec = AudioCodecs.create(codecName, profile.getSampleRate());
+            sendCallSignal("answer", new MediaDescription("answer", offer.getSession(),
+                    Collections.singletonList(codecName)).toSignal());
+            startAudioTransmission();
+        } else {
+            callStatus = CallStatus.ERROR;
+            notifyCallEvent(CallEvent.CALL_ERROR);
+        }
+    }
+
+    /**
+     * L'appelant passe au codec retenu par l'appelé
+     */
+    private void handleAnswer(MediaDescription answer) {
+        if (answer == null || answer.getCodecs().isEmpty()) {
+            System.out.println("📡 Réponse reçue, envoi en " + sendCodec.getName());
+            return;
+        }
+
+        AudioCodec codec = AudioCodecs.create(answer.getCodecs().get(0), profile.getSampleRate());
+        if (codec != null) {
+            sendCodec = codec;
+        }
+        System.out.println("📡 Réponse reçue, envoi en " + sendCodec.getName());
+    }
+
     /**
      * Définit l'écouteur d'événements d'appel
      * @param listener L'écouteur à définir
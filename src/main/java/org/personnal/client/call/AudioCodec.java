@@ -0,0 +1,45 @@
+package org.personnal.client.call;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Codec audio d'un appel, négocié par les signaux "offer" et "answer" ({@link AudioCodecs}).
+ * Les trames PCM sont au format de capture et de lecture de l'appel (16 bits signé little-endian, mono) ;
+ * le codec gère lui-même un éventuel changement de fréquence.
+ * Une instance garde l'état d'un seul sens de transmission : une pour l'envoi, une par type reçu.
+ * Les tampons sont fournis par l'appelant et réutilisés d'une trame à l'autre.
+ */
+public interface AudioCodec {
+
+    /**
+     * Nom échangé dans la signalisation, par exemple "ima-adpcm/16000"
+     */
+    String getName();
+
+    /**
+     * Type de charge utile porté par chaque paquet ({@link MediaPacket#payloadType})
+     */
+    byte getPayloadType();
+
+    /**
+     * Fréquence de l'horloge des horodatages des paquets
+     */
+    float getClockRate();
+
+    /**
+     * Encode length octets de PCM dans out
+     * @return Taille de la charge utile, au plus {@link MediaPacket#MAX_PAYLOAD_SIZE}
+     */
+    int encode(byte[] pcm, int length, byte[] out);
+
+    /**
+     * Décode la charge utile (de position à limit) en PCM dans pcm
+     * @return Nombre d'octets PCM écrits
+     */
+    int decode(ByteBuffer payload, byte[] pcm);
+
+    /**
+     * Oublie l'état accumulé, par exemple entre deux appels
+     */
+    void reset();
+}
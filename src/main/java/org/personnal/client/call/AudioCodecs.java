@@ -0,0 +1,69 @@
+package org.personnal.client.call;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Codecs connus du client et négociation entre l'offre de l'appelant et les préférences de l'appelé
+ */
+public final class AudioCodecs {
+    /**
+     * Codecs proposés dans l'offre, du préféré au moins préféré
+     */
+    public static final List<String> SUPPORTED = Arrays.asList(ImaAdpcmCodec.NAME, MuLawCodec.NAME, PcmCodec.NAME);
+
+    private AudioCodecs() {
+    }
+
+    /**
+     * @param audioRate Fréquence de capture et de lecture de l'appel
+     * @return Le codec, ou null s'il est inconnu
+     */
+    public static AudioCodec create(String name, float audioRate) {
+        if (name == null) {
+            return null;
+        }
+        switch (name) {
+            case ImaAdpcmCodec.NAME:
+                return new ImaAdpcmCodec(audioRate);
+            case MuLawCodec.NAME:
+                return new MuLawCodec(audioRate);
+            case PcmCodec.NAME:
+                return new PcmCodec(audioRate);
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Décodeur d'un type de charge utile reçu, null s'il est inconnu
+     */
+    public static AudioCodec forPayloadType(byte payloadType, float audioRate) {
+        switch (payloadType) {
+            case ImaAdpcmCodec.PAYLOAD_TYPE:
+                return new ImaAdpcmCodec(audioRate);
+            case MuLawCodec.PAYLOAD_TYPE:
+                return new MuLawCodec(audioRate);
+            case MediaPacket.PAYLOAD_PCM:
+                return new PcmCodec(audioRate);
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Premier codec de l'offre que ce client sait décoder.
+     * Une offre sans liste de codecs vient d'un client qui n'envoie que du PCM.
+     */
+    public static String negotiate(List<String> offered) {
+        if (offered == null || offered.isEmpty()) {
+            return PcmCodec.NAME;
+        }
+        for (String name : offered) {
+            if (SUPPORTED.contains(name)) {
+                return name;
+            }
+        }
+        return PcmCodec.NAME;
+    }
+}
@@ -15,6 +15,7 @@ public class AudioDeviceManager {
     private static final String PREF_SPEAKER_DEVICE = "preferred_speaker_device";
     private static final String PREF_MIC_VOLUME = "mic_volume";
     private static final String PREF_SPEAKER_VOLUME = "speaker_volume";
+    private static final String PREF_CALL_PROFILE = "call_quality_profile";
 
     private static final Preferences prefs = Preferences.userNodeForPackage(AudioDeviceManager.class);
 
@@ -212,31 +213,57 @@ public class AudioDeviceManager {
         return prefs.getFloat(PREF_SPEAKER_VOLUME, 1.0f);
     }
 
+    /**
+     * Règle le profil de qualité des prochains appels
+     */
+    public static void setCallQualityProfile(CallQualityProfile profile) {
+        if (profile != null) {
+            prefs.put(PREF_CALL_PROFILE, profile.name());
+        }
+    }
+
+    /**
+     * Obtient le profil de qualité des appels
+     * @return Le profil enregistré, ou le profil équilibré par défaut
+     */
+    public static CallQualityProfile getCallQualityProfile() {
+        return CallQualityProfile.fromName(prefs.get(PREF_CALL_PROFILE, null));
+    }
+
     /**
      * Applique le volume à un échantillon audio
      * @param sample Échantillon audio
      * @param volume Volume à appliquer (0.0 à 1.0)
-     * @return Échantillon modifié
+     * @return Copie modifiée de l'échantillon
      */
     public static byte[] applyVolume(byte[] sample, float volume) {
-        // Pour un format PCM 16 bits signé little-endian
-        byte[] result = new byte[sample.length];
+        byte[] result = sample.clone();
+        applyVolumeInPlace(result, result.length, volume);
+        return result;
+    }
+
+    /**
+     * Applique le volume sur place aux length premiers octets, sans allocation :
+     * c'est la forme utilisée par les boucles de capture et de lecture des appels
+     * @param volume Gain à appliquer (1.0 laisse le tampon inchangé)
+     */
+    public static void applyVolumeInPlace(byte[] sample, int length, float volume) {
+        if (volume == 1.0f) {
+            return;
+        }
 
-        for (int i = 0; i < sample.length; i += 2) {
-            if (i + 1 < sample.length) {
-                // Convertir les 2 octets en un short (16 bits)
-                short audioSample = (short) ((sample[i+1] << 8) | (sample[i] & 0xFF));
+        // Pour un format PCM 16 bits signé little-endian
+        for (int i = 0; i + 1 < length; i += 2) {
+            // Convertir les 2 octets en un short (16 bits)
+            int audioSample = (short) ((sample[i+1] << 8) | (sample[i] & 0xFF));
 
-                // Appliquer le volume
-                audioSample = (short) (audioSample * volume);
+            // Appliquer le volume, en saturant plutôt qu'en débordant
+            audioSample = Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, (int) (audioSample * volume)));
 
-                // Reconvertir en octets
-                result[i] = (byte) (audioSample & 0xFF);
-                result[i+1] = (byte) ((audioSample >> 8) & 0xFF);
-            }
+            // Reconvertir en octets
+            sample[i] = (byte) (audioSample & 0xFF);
+            sample[i+1] = (byte) ((audioSample >> 8) & 0xFF);
         }
-
-        return result;
     }
 
     /**
@@ -246,23 +273,32 @@ public class AudioDeviceManager {
      * @return true si l'échantillon est considéré comme du silence
      */
     public static boolean isSilence(byte[] sample, float threshold) {
-        // Calculer la valeur RMS (Root Mean Square) de l'échantillon
-        long sum = 0;
+        return isSilence(sample, sample.length, threshold);
+    }
 
-        for (int i = 0; i < sample.length; i += 2) {
-            if (i + 1 < sample.length) {
-                short audioSample = (short) ((sample[i+1] << 8) | (sample[i] & 0xFF));
-                sum += audioSample * audioSample;
-            }
-        }
+    /**
+     * Détecte si les length premiers octets d'un tampon contiennent du silence
+     */
+    public static boolean isSilence(byte[] sample, int length, float threshold) {
+        return rms(sample, length) < threshold;
+    }
 
-        // Calculer la valeur RMS
-        double rms = Math.sqrt(sum / (sample.length / 2));
+    /**
+     * Niveau RMS (Root Mean Square) des length premiers octets, normalisé entre 0 et 1
+     */
+    public static double rms(byte[] sample, int length) {
+        int samples = length / 2;
+        if (samples == 0) {
+            return 0.0;
+        }
 
-        // Normaliser entre 0 et 1
-        double normalizedRms = rms / 32768.0; // 32768 est la valeur max pour un short (16 bits)
+        long sum = 0;
+        for (int i = 0; i + 1 < length; i += 2) {
+            short audioSample = (short) ((sample[i+1] << 8) | (sample[i] & 0xFF));
+            sum += audioSample * audioSample;
+        }
 
-        // Comparer au seuil
-        return normalizedRms < threshold;
+        // 32768 est la valeur max pour un short (16 bits)
+        return Math.sqrt((double) sum / samples) / 32768.0;
     }
-}
\ No newline at end of file
+}
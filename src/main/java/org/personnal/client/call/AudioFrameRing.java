@@ -0,0 +1,157 @@
+package org.personnal.client.call;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Anneau sans verrou entre un seul producteur et un seul consommateur de trames audio
+ * (capture → envoi, réception → lecture).
+ * Les emplacements sont alloués à la construction ; producteur et consommateur y écrivent et lisent
+ * directement, sans copie intermédiaire :
+ * <pre>
+ *  producteur : int slot = claim();  ... écrire dans data(slot) ...  publish(longueur, séquence, horodatage, drapeaux)
+ *  consommateur : int slot = peek();  ... lire data(slot), length(slot) ...  release()
+ * </pre>
+ * Seuls les compteurs de position sont partagés (écriture ordonnée, lecture volatile) ; chaque côté garde
+ * une copie de la position de l'autre et ne la relit que lorsque l'anneau lui semble plein ou vide.
+ */
+public final class AudioFrameRing {
+    private final int capacity;
+    private final int mask;
+    private final byte[][] data;
+    private final int[] lengths;
+    private final int[] sequences;
+    private final long[] timestamps;
+    private final byte[] flags;
+
+    // Prochain emplacement à lire, avancé par le consommateur
+    private final AtomicLong head = new AtomicLong();
+    // Prochain emplacement à écrire, avancé par le producteur
+    private final AtomicLong tail = new AtomicLong();
+    private long cachedHead;   // Vue du producteur
+    private long cachedTail;   // Vue du consommateur
+
+    // Trames refusées faute de place (le consommateur ne suit pas), écrit par le seul producteur
+    private volatile long overruns;
+
+    /**
+     * @param capacity Nombre d'emplacements, arrondi à la puissance de deux supérieure
+     * @param frameBytes Taille maximale d'une trame
+     */
+    public AudioFrameRing(int capacity, int frameBytes) {
+        int size = capacity <= 2 ? 2 : Integer.highestOneBit(capacity - 1) << 1;
+        this.capacity = size;
+        this.mask = size - 1;
+        this.data = new byte[size][frameBytes];
+        this.lengths = new int[size];
+        this.sequences = new int[size];
+        this.timestamps = new long[size];
+        this.flags = new byte[size];
+    }
+
+    // --- Producteur ---
+
+    /**
+     * Réserve l'emplacement suivant
+     * @return Son index, ou -1 si l'anneau est plein (la trame est comptée comme perdue)
+     */
+    public int claim() {
+        long t = tail.get();
+        if (t - cachedHead >= capacity) {
+            cachedHead = head.get();
+            if (t - cachedHead >= capacity) {
+                overruns++;
+                return -1;
+            }
+        }
+        return (int) (t & mask);
+    }
+
+    /**
+     * Rend visible au consommateur l'emplacement réservé par {@link #claim()}
+     */
+    public void publish(int length, int sequence, long timestamp, byte frameFlags) {
+        long t = tail.get();
+        int slot = (int) (t & mask);
+        lengths[slot] = length;
+        sequences[slot] = sequence;
+        timestamps[slot] = timestamp;
+        flags[slot] = frameFlags;
+        tail.lazySet(t + 1);
+    }
+
+    /**
+     * Copie une trame dans l'emplacement suivant
+     * @return false si l'anneau est plein
+     */
+    public boolean offer(byte[] frame, int offset, int length, int sequence, long timestamp, byte frameFlags) {
+        int slot = claim();
+        if (slot < 0) {
+            return false;
+        }
+        System.arraycopy(frame, offset, data[slot], 0, length);
+        publish(length, sequence, timestamp, frameFlags);
+        return true;
+    }
+
+    // --- Consommateur ---
+
+    /**
+     * @return Index de la plus ancienne trame publiée, ou -1 si l'anneau est vide
+     */
+    public int peek() {
+        long h = head.get();
+        if (h >= cachedTail) {
+            cachedTail = tail.get();
+            if (h >= cachedTail) {
+                return -1;
+            }
+        }
+        return (int) (h & mask);
+    }
+
+    /**
+     * Libère l'emplacement retourné par {@link #peek()} pour le producteur
+     */
+    public void release() {
+        head.lazySet(head.get() + 1);
+    }
+
+    // --- Emplacements ---
+
+    public byte[] data(int slot) {
+        return data[slot];
+    }
+
+    public int length(int slot) {
+        return lengths[slot];
+    }
+
+    public int sequence(int slot) {
+        return sequences[slot];
+    }
+
+    public long timestamp(int slot) {
+        return timestamps[slot];
+    }
+
+    public byte flags(int slot) {
+        return flags[slot];
+    }
+
+    // --- Mesures ---
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Trames en attente, approximatif lu hors des deux threads
+     */
+    public int size() {
+        return (int) Math.max(0, tail.get() - head.get());
+    }
+
+    public long getOverruns() {
+        return overruns;
+    }
+}
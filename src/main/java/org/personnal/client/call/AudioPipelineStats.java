@@ -0,0 +1,33 @@
+package org.personnal.client.call;
+
+/**
+ * Débordements et manques de la chaîne audio d'un appel, à un instant donné
+ */
+public final class AudioPipelineStats {
+    private final long captureOverruns;
+    private final long sendQueueOverruns;
+    private final long receiveQueueOverruns;
+    private final long playbackUnderruns;
+
+    AudioPipelineStats(long captureOverruns, long sendQueueOverruns, long receiveQueueOverruns, long playbackUnderruns) {
+        this.captureOverruns = captureOverruns;
+        this.sendQueueOverruns = sendQueueOverruns;
+        this.receiveQueueOverruns = receiveQueueOverruns;
+        this.playbackUnderruns = playbackUnderruns;
+    }
+
+    // Ligne du micro pleine au moment de la lecture : des échantillons ont été perdus
+    public long getCaptureOverruns() { return captureOverruns; }
+    // Trames du micro jetées parce que l'envoi ne suivait pas
+    public long getSendQueueOverruns() { return sendQueueOverruns; }
+    // Paquets reçus jetés parce que la lecture ne suivait pas
+    public long getReceiveQueueOverruns() { return receiveQueueOverruns; }
+    // Ligne de sortie vide avant l'écriture d'une trame : coupure audible
+    public long getPlaybackUnderruns() { return playbackUnderruns; }
+
+    @Override
+    public String toString() {
+        return String.format("Micro : %d débordements, file d'envoi : %d, file de réception : %d, sortie : %d manques",
+                captureOverruns, sendQueueOverruns, receiveQueueOverruns, playbackUnderruns);
+    }
+}
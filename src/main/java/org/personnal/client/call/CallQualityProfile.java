@@ -0,0 +1,127 @@
+package org.personnal.client.call;
+
+import javax.sound.sampled.AudioFormat;
+import java.util.Locale;
+
+/**
+ * Profils de qualité d'appel, choisis dans les préférences audio : durée de trame, fréquence
+ * d'échantillonnage et taille des tampons des lignes audio sont réglées ensemble.
+ * <ul>
+ *   <li>faible latence : trames de 10 ms, au prix de deux fois plus de paquets ; lignes de 3 trames,
+ *       le minimum pour que le pilote ne manque pas de données entre deux réveils du thread de lecture ;</li>
+ *   <li>équilibré : trames de 20 ms et lignes de 2 trames ;</li>
+ *   <li>faible débit : capture à 16 kHz et trames de 40 ms, quatre fois moins d'en-têtes que le profil
+ *       faible latence mais une latence plus élevée.</li>
+ * </ul>
+ * Les deux correspondants peuvent avoir des profils différents : chaque codec travaille à sa propre horloge
+ * et le tampon de gigue accepte des trames jusqu'à {@link #MAX_FRAME_MS}.
+ */
+public enum CallQualityProfile {
+    LOW_LATENCY("Faible latence", 44100f, 10, 3),
+    BALANCED("Équilibré", 44100f, 20, 2),
+    LOW_BANDWIDTH("Faible débit", 16000f, 40, 2);
+
+    public static final CallQualityProfile DEFAULT = BALANCED;
+    // Plus longue trame qu'un correspondant peut envoyer, quel que soit son profil
+    public static final int MAX_FRAME_MS = 40;
+
+    private final String displayName;
+    private final float sampleRate;
+    private final int frameMs;
+    private final int lineBufferFrames;
+
+    CallQualityProfile(String displayName, float sampleRate, int frameMs, int lineBufferFrames) {
+        this.displayName = displayName;
+        this.sampleRate = sampleRate;
+        this.frameMs = frameMs;
+        this.lineBufferFrames = lineBufferFrames;
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+
+    public float getSampleRate() {
+        return sampleRate;
+    }
+
+    public int getFrameMs() {
+        return frameMs;
+    }
+
+    /**
+     * Taille des tampons du micro et du haut-parleur, en trames
+     */
+    public int getLineBufferFrames() {
+        return lineBufferFrames;
+    }
+
+    /**
+     * PCM 16 bits signé mono little-endian, à la fréquence du profil
+     */
+    public AudioFormat getAudioFormat() {
+        return new AudioFormat(sampleRate, 16, 1, true, false);
+    }
+
+    /**
+     * Taille d'une trame capturée, en octets
+     */
+    public int getFrameBytes() {
+        return bytesFor(sampleRate, frameMs);
+    }
+
+    /**
+     * Taille d'une trame du profil à une autre fréquence, pour les clients qui envoient
+     * du PCM à 44,1 kHz par la signalisation
+     */
+    public int getFrameBytesAt(float audioRate) {
+        return bytesFor(audioRate, frameMs);
+    }
+
+    public int getLineBufferBytes() {
+        return getFrameBytes() * lineBufferFrames;
+    }
+
+    /**
+     * Taille d'une trame reçue une fois décodée à la fréquence du profil : la plus longue trame possible,
+     * avec de la marge pour le rééchantillonnage
+     */
+    public int getMaxReceivedFrameBytes() {
+        return bytesFor(sampleRate, MAX_FRAME_MS) * 2;
+    }
+
+    private static int bytesFor(float audioRate, int durationMs) {
+        return Math.round(audioRate * durationMs / 1000f) * 2;
+    }
+
+    /**
+     * Budget de latence avec le délai mesuré du tampon de gigue
+     */
+    public LatencyBudget latencyBudget(double jitterDelayMs) {
+        return new LatencyBudget(frameMs, LatencyBudget.ASSUMED_NETWORK_MS, jitterDelayMs, lineBufferFrames * frameMs);
+    }
+
+    /**
+     * Budget de latence avant l'appel, tampon de gigue à sa profondeur minimale
+     */
+    public LatencyBudget nominalLatency() {
+        return latencyBudget(JitterBuffer.MIN_TARGET_FRAMES * frameMs);
+    }
+
+    /**
+     * @return Le profil de ce nom, ou {@link #DEFAULT} s'il est inconnu
+     */
+    public static CallQualityProfile fromName(String name) {
+        for (CallQualityProfile profile : values()) {
+            if (profile.name().equals(name)) {
+                return profile;
+            }
+        }
+        return DEFAULT;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.FRANCE, "%s (%d ms, %.1f kHz)", displayName, frameMs, sampleRate / 1000);
+    }
+}
@@ -3,27 +3,26 @@ package org.personnal.client.call;
 import com.google.gson.Gson;
 import javafx.application.Platform;
 import org.personnal.client.controller.ChatController;
+import org.personnal.client.network.IClientConnection;
 import org.personnal.client.protocol.PeerRequest;
 import org.personnal.client.protocol.RequestType;
 
-import java.io.*;
-import java.net.Socket;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 import java.util.function.Consumer;
 
 public class CallSocketManager {
-    private Socket socket;
-    private BufferedReader reader;
-    private BufferedWriter writer;
+    private IClientConnection connection;
     private final Gson gson = new Gson();
     private final String serverHost;
     private final int serverPort;
     private final String username;
 
     private volatile boolean connected = false;
-    private Thread listenerThread;
 
     // Écouteur d'événements pour les réponses
     private Consumer<Map<String, String>> responseListener;
@@ -40,13 +39,24 @@ public class CallSocketManager {
 
     public boolean connect() {
         try {
-            socket = new Socket(serverHost, serverPort);
-            reader = new BufferedReader(new InputStreamReader(socket.getInputStream()));
-            writer = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream()));
-            connected = true;
+            connection = IClientConnection.create();
+            connection.setFrameListener(new IClientConnection.FrameListener() {
+                @Override
+                public void onFrame(byte type, byte flags, ByteBuffer frame) {
+                    // Traiter la réponse
+                    processResponse(StandardCharsets.UTF_8.decode(frame).toString());
+                }
 
-            // Démarrer le thread d'écoute
-            startListenerThread();
+                @Override
+                public void onClosed(IOException cause) {
+                    if (cause != null && connected) {
+                        System.err.println("❌ Erreur de lecture pour les appels: " + cause.getMessage());
+                    }
+                    connected = false;
+                }
+            });
+            connection.connect(serverHost, serverPort);
+            connected = true;
 
             return true;
         } catch (IOException e) {
@@ -55,31 +65,6 @@ public class CallSocketManager {
         }
     }
 
-    private void startListenerThread() {
-        listenerThread = new Thread(() -> {
-            try {
-                while (connected) {
-                    String jsonResponse = reader.readLine();
-                    if (jsonResponse == null) {
-                        break; // Connexion fermée
-                    }
-
-                    // Traiter la réponse
-                    processResponse(jsonResponse);
-                }
-            } catch (IOException e) {
-                if (connected) {
-                    System.err.println("❌ Erreur de lecture pour les appels: " + e.getMessage());
-                }
-            } finally {
-                disconnect();
-            }
-        });
-
-        listenerThread.setDaemon(true);
-        listenerThread.start();
-    }
-
     private void processResponse(String jsonResponse) {
         try {
             // Extraire les données pertinentes
@@ -121,9 +106,7 @@ public class CallSocketManager {
             PeerRequest request = new PeerRequest(RequestType.CALL, payload);
             String jsonRequest = gson.toJson(request);
 
-            writer.write(jsonRequest);
-            writer.newLine();
-            writer.flush();
+            connection.send(ByteBuffer.wrap(jsonRequest.getBytes(StandardCharsets.UTF_8)));
         } catch (IOException e) {
             System.err.println("❌ Erreur d'envoi pour les appels: " + e.getMessage());
             disconnect();
@@ -133,12 +116,8 @@ public class CallSocketManager {
     public void disconnect() {
         connected = false;
 
-        try {
-            if (socket != null && !socket.isClosed()) {
-                socket.close();
-            }
-        } catch (IOException e) {
-            System.err.println("❌ Erreur de déconnexion pour les appels: " + e.getMessage());
+        if (connection != null) {
+            connection.close();
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,144 @@
+package org.personnal.client.call;
+
+import java.nio.ByteBuffer;
+
+/**
+ * IMA ADPCM à 16 kHz : 4 bits par échantillon, soit 64 kbit/s.
+ * Chaque paquet commence par l'état du codeur (prédiction, index du pas) et le nombre d'échantillons :
+ * il se décode seul, une perte ne désynchronise pas les paquets suivants.
+ * <pre>
+ *  prédiction (2) | index (1) | échantillons (2) | deux échantillons par octet, poids faible en premier
+ * </pre>
+ */
+public class ImaAdpcmCodec extends ResamplingCodec {
+    public static final String NAME = "ima-adpcm/16000";
+    public static final byte PAYLOAD_TYPE = 2;
+    private static final float RATE = 16000f;
+    private static final int HEADER_SIZE = 5;
+
+    private static final int[] INDEX_TABLE = {-1, -1, -1, -1, 2, 4, 6, 8, -1, -1, -1, -1, 2, 4, 6, 8};
+    private static final int[] STEP_TABLE = {
+            7, 8, 9, 10, 11, 12, 13, 14, 16, 17, 19, 21, 23, 25, 28, 31, 34, 37, 41, 45,
+            50, 55, 60, 66, 73, 80, 88, 97, 107, 118, 130, 143, 157, 173, 190, 209, 230, 253, 279, 307,
+            337, 371, 408, 449, 494, 544, 598, 658, 724, 796, 876, 963, 1060, 1166, 1282, 1411, 1552, 1707, 1878, 2066,
+            2272, 2499, 2749, 3024, 3327, 3660, 4026, 4428, 4871, 5358, 5894, 6484, 7132, 7845, 8630, 9493, 10442, 11487, 12635, 13899,
+            15289, 16818, 18500, 20350, 22385, 24623, 27086, 29794, 32767
+    };
+
+    // État du codeur, conservé d'un paquet à l'autre à l'envoi
+    private int predictor;
+    private int index;
+
+    public ImaAdpcmCodec(float audioRate) {
+        super(audioRate, RATE);
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public byte getPayloadType() {
+        return PAYLOAD_TYPE;
+    }
+
+    @Override
+    protected int encodeSamples(short[] samples, int count, byte[] out) {
+        out[0] = (byte) (predictor >> 8);
+        out[1] = (byte) predictor;
+        out[2] = (byte) index;
+        out[3] = (byte) (count >> 8);
+        out[4] = (byte) count;
+
+        int position = HEADER_SIZE;
+        for (int i = 0; i < count; i++) {
+            int code = encodeSample(samples[i]);
+            if ((i & 1) == 0) {
+                out[position] = (byte) code;
+            } else {
+                out[position++] |= (byte) (code << 4);
+            }
+        }
+        return HEADER_SIZE + (count + 1) / 2;
+    }
+
+    private int encodeSample(int sample) {
+        int step = STEP_TABLE[index];
+        int diff = sample - predictor;
+        int code = 0;
+        if (diff < 0) {
+            code = 8;
+            diff = -diff;
+        }
+
+        // Quantification sur 3 bits de l'écart, reconstruite comme le fera le décodeur
+        int delta = step >> 3;
+        if (diff >= step) {
+            code |= 4;
+            diff -= step;
+            delta += step;
+        }
+        step >>= 1;
+        if (diff >= step) {
+            code |= 2;
+            diff -= step;
+            delta += step;
+        }
+        step >>= 1;
+        if (diff >= step) {
+            code |= 1;
+            delta += step;
+        }
+
+        predictor = clamp((code & 8) != 0 ? predictor - delta : predictor + delta);
+        index = Math.max(0, Math.min(STEP_TABLE.length - 1, index + INDEX_TABLE[code]));
+        return code;
+    }
+
+    @Override
+    protected int decodeSamples(ByteBuffer payload, short[] samples) {
+        if (payload.remaining() < HEADER_SIZE) {
+            return 0;
+        }
+        int value = (short) (((payload.get() & 0xFF) << 8) | (payload.get() & 0xFF));
+        int stepIndex = Math.max(0, Math.min(STEP_TABLE.length - 1, payload.get() & 0xFF));
+        int count = Math.min(((payload.get() & 0xFF) << 8) | (payload.get() & 0xFF), payload.remaining() * 2);
+
+        int data = 0;
+        for (int i = 0; i < count; i++) {
+            int code;
+            if ((i & 1) == 0) {
+                data = payload.get() & 0xFF;
+                code = data & 0x0F;
+            } else {
+                code = data >> 4;
+            }
+
+            int step = STEP_TABLE[stepIndex];
+            int delta = step >> 3;
+            if ((code & 4) != 0) delta += step;
+            if ((code & 2) != 0) delta += step >> 1;
+            if ((code & 1) != 0) delta += step >> 2;
+            value = clamp((code & 8) != 0 ? value - delta : value + delta);
+            stepIndex = Math.max(0, Math.min(STEP_TABLE.length - 1, stepIndex + INDEX_TABLE[code]));
+            samples[i] = (short) value;
+        }
+        return count;
+    }
+
+    @Override
+    protected int maxDecodedSamples(int payloadLength) {
+        return Math.max(0, (payloadLength - HEADER_SIZE) * 2);
+    }
+
+    @Override
+    protected void resetState() {
+        predictor = 0;
+        index = 0;
+    }
+
+    private static int clamp(int value) {
+        return Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, value));
+    }
+}
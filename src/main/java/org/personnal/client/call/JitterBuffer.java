@@ -0,0 +1,312 @@
+package org.personnal.client.call;
+
+import java.util.Arrays;
+
+/**
+ * Tampon de gigue de la lecture d'un appel.
+ * <ul>
+ *   <li>les trames sont remises dans l'ordre de leur numéro de séquence ;</li>
+ *   <li>la profondeur visée suit la gigue mesurée (estimation de la RFC 3550), entre
+ *       {@link #MIN_TARGET_FRAMES} et la moitié de la capacité ;</li>
+ *   <li>une trame perdue est masquée : la précédente est répétée en s'atténuant, puis vient le silence ;</li>
+ *   <li>une trame arrivée après son heure de lecture est jetée ; au-delà de la profondeur visée,
+ *       la plus ancienne est sautée pour ramener la latence ;</li>
+ *   <li>un paquet de silence (transmission discontinue) fait jouer du bruit de confort au niveau annoncé
+ *       jusqu'à la reprise de la parole, sans compter de pertes.</li>
+ * </ul>
+ * {@link #offer} et {@link #poll} sont appelés par le thread de lecture, qui reçoit les trames du thread
+ * de réception par un {@link AudioFrameRing} ; seules les mesures sont lues d'un autre thread.
+ * Les trames sont copiées dans des emplacements alloués une fois pour toutes, jusqu'à {@link #getMaxFrameBytes()} :
+ * le correspondant peut utiliser une autre durée de trame ({@link CallQualityProfile}), la durée d'une trame
+ * suit donc celle des dernières trames reçues.
+ */
+public class JitterBuffer {
+    public static final int MIN_TARGET_FRAMES = 2;
+    // Écart toléré au-dessus de la profondeur visée avant de sauter une trame
+    private static final int SHRINK_HYSTERESIS_FRAMES = 2;
+    // Atténuation de la trame répétée à chaque perte consécutive
+    private static final float CONCEALMENT_FADE = 0.6f;
+    private static final int MAX_CONCEALED_REPEATS = 3;
+
+    private final int capacity;
+    private final int nominalFrameBytes;
+    private final int maxFrameBytes;
+    private final float sampleRate;
+    // Taille et durée des trames du correspondant, suivies à chaque trame reçue
+    private int frameBytes;
+    private float frameMs;
+
+    private final byte[][] slots;
+    private final int[] slotLengths;
+    private final int[] slotSequences;
+    private final boolean[] filled;
+    private final boolean[] silence;
+    private final byte[] lastFrame;
+    private int lastFrameLength;
+
+    private boolean started;
+    private boolean primed;
+    private int nextSequence;
+    private int highestSequence;
+    private int consecutiveLosses;
+
+    // Bruit de confort pendant un silence annoncé par l'émetteur
+    private boolean comfortNoise;
+    private int comfortAmplitude;
+    private int noiseSeed = 0x2545F491;
+
+    // Gigue en millisecondes, lissée sur 16 paquets
+    private double jitterMs;
+    private double lastTransitMs;
+    private boolean hasTransit;
+    private int targetFrames = MIN_TARGET_FRAMES;
+
+    private long received;
+    private long played;
+    private long lost;
+    private long late;
+    private long duplicates;
+    private long concealed;
+    private long underruns;
+    private long skipped;
+    private long comfortFrames;
+
+    /**
+     * @param capacity Nombre maximal de trames en attente
+     * @param frameBytes Taille nominale d'une trame PCM 16 bits mono, avant la première trame reçue
+     * @param maxFrameBytes Taille maximale d'une trame reçue, une fois décodée
+     * @param sampleRate Fréquence d'échantillonnage de la lecture
+     */
+    public JitterBuffer(int capacity, int frameBytes, int maxFrameBytes, float sampleRate) {
+        if (capacity < 2 * MIN_TARGET_FRAMES) {
+            throw new IllegalArgumentException("Capacité du tampon de gigue trop faible : " + capacity);
+        }
+        this.capacity = capacity;
+        this.nominalFrameBytes = frameBytes;
+        this.maxFrameBytes = Math.max(frameBytes, maxFrameBytes);
+        this.sampleRate = sampleRate;
+        this.frameBytes = frameBytes;
+        this.frameMs = frameBytes / 2 * 1000f / sampleRate;
+        this.slots = new byte[capacity][maxFrameBytes];
+        this.slotLengths = new int[capacity];
+        this.slotSequences = new int[capacity];
+        this.filled = new boolean[capacity];
+        this.silence = new boolean[capacity];
+        this.lastFrame = new byte[maxFrameBytes];
+    }
+
+    /**
+     * Range une trame reçue (copiée depuis data).
+     * @param mediaTimeMs Horodatage du paquet converti en millisecondes, selon l'horloge de son codec
+     * @param silenceFrame true pour un paquet de silence, dont la charge utile est le niveau du bruit de fond
+     */
+    public synchronized void offer(int sequence, double mediaTimeMs, boolean silenceFrame, byte[] data, int length) {
+        received++;
+        updateJitter(mediaTimeMs);
+
+        if (!started) {
+            started = true;
+            nextSequence = sequence;
+            highestSequence = sequence;
+        }
+
+        int ahead = sequence - nextSequence;
+        if (ahead < 0) {
+            // Son tour de lecture est passé (déjà masquée ou sautée)
+            late++;
+            return;
+        }
+        if (ahead >= capacity) {
+            // Trou plus grand que le tampon : on repart de cette trame
+            resync(sequence);
+        }
+
+        int index = slotIndex(sequence);
+        if (filled[index] && slotSequences[index] == sequence) {
+            duplicates++;
+            return;
+        }
+
+        int copied = Math.min(length, maxFrameBytes);
+        if (!silenceFrame && copied >= 2 && copied != frameBytes) {
+            // Le silence et le bruit de confort durent autant qu'une trame du correspondant
+            frameBytes = copied;
+            frameMs = copied / 2 * 1000f / sampleRate;
+        }
+        System.arraycopy(data, 0, slots[index], 0, copied);
+        slotLengths[index] = copied;
+        slotSequences[index] = sequence;
+        silence[index] = silenceFrame;
+        filled[index] = true;
+        if (sequence - highestSequence > 0) {
+            highestSequence = sequence;
+        }
+    }
+
+    /**
+     * Trame suivante à jouer, écrite dans out ({@link #getMaxFrameBytes()} octets au moins). Ne bloque jamais :
+     * pendant le remplissage ou en cas de perte, une trame de masquage ou de silence est produite.
+     * @return Nombre d'octets écrits
+     */
+    public synchronized int poll(byte[] out) {
+        if (!primed) {
+            if (!started || depth() < targetFrames) {
+                return comfortNoise ? comfortNoise(out) : conceal(out);
+            }
+            primed = true;
+        }
+
+        // Latence trop élevée par rapport à la gigue : sauter la plus ancienne trame
+        if (depth() > targetFrames + SHRINK_HYSTERESIS_FRAMES) {
+            filled[slotIndex(nextSequence)] = false;
+            nextSequence++;
+            skipped++;
+        }
+
+        int index = slotIndex(nextSequence);
+        if (filled[index] && slotSequences[index] == nextSequence && silence[index]) {
+            // Silence : bruit de confort, puis remplissage jusqu'à la profondeur visée à la reprise
+            byte[] level = slots[index];
+            comfortAmplitude = slotLengths[index] >= MediaPacket.SILENCE_PAYLOAD_SIZE
+                    ? ((level[0] & 0xFF) << 8) | (level[1] & 0xFF) : 0;
+            comfortNoise = true;
+            filled[index] = false;
+            nextSequence++;
+            lastFrameLength = 0;
+            consecutiveLosses = 0;
+            primed = false;
+            return comfortNoise(out);
+        }
+        if (filled[index] && slotSequences[index] == nextSequence) {
+            int length = slotLengths[index];
+            System.arraycopy(slots[index], 0, out, 0, length);
+            System.arraycopy(slots[index], 0, lastFrame, 0, length);
+            lastFrameLength = length;
+            filled[index] = false;
+            nextSequence++;
+            consecutiveLosses = 0;
+            comfortNoise = false;
+            played++;
+            return length;
+        }
+
+        if (highestSequence - nextSequence > 0) {
+            // Des trames suivantes sont arrivées : celle-ci est perdue
+            nextSequence++;
+            lost++;
+        } else {
+            // Plus rien en attente : remplir à nouveau jusqu'à la profondeur visée
+            primed = false;
+            underruns++;
+        }
+        return conceal(out);
+    }
+
+    /**
+     * Répète la dernière trame en l'atténuant, puis produit du silence
+     */
+    private int conceal(byte[] out) {
+        consecutiveLosses++;
+        if (lastFrameLength == 0 || consecutiveLosses > MAX_CONCEALED_REPEATS) {
+            Arrays.fill(out, 0, frameBytes, (byte) 0);
+            return frameBytes;
+        }
+
+        concealed++;
+        float gain = (float) Math.pow(CONCEALMENT_FADE, consecutiveLosses);
+        for (int i = 0; i + 1 < lastFrameLength; i += 2) {
+            int sample = (short) ((lastFrame[i] & 0xFF) | (lastFrame[i + 1] << 8));
+            int scaled = (int) (sample * gain);
+            out[i] = (byte) scaled;
+            out[i + 1] = (byte) (scaled >> 8);
+        }
+        return lastFrameLength;
+    }
+
+    /**
+     * Bruit blanc à l'amplitude annoncée par l'émetteur (générateur xorshift, sans allocation)
+     */
+    private int comfortNoise(byte[] out) {
+        comfortFrames++;
+        int seed = noiseSeed;
+        for (int i = 0; i + 1 < frameBytes; i += 2) {
+            seed ^= seed << 13;
+            seed ^= seed >>> 17;
+            seed ^= seed << 5;
+            // Valeur uniforme dans [-amplitude, amplitude] : RMS d'environ amplitude / 1,7
+            int sample = (int) (((long) (seed >> 16) * comfortAmplitude * 2) >> 16);
+            out[i] = (byte) sample;
+            out[i + 1] = (byte) (sample >> 8);
+        }
+        noiseSeed = seed;
+        return frameBytes;
+    }
+
+    /**
+     * Estimation de la gigue selon la RFC 3550 : variation du temps de transit, lissée sur 16 paquets
+     */
+    private void updateJitter(double mediaTimeMs) {
+        double transitMs = System.nanoTime() / 1_000_000.0 - mediaTimeMs;
+        if (hasTransit) {
+            double delta = Math.abs(transitMs - lastTransitMs);
+            jitterMs += (delta - jitterMs) / 16.0;
+            int wanted = (int) Math.ceil(3 * jitterMs / frameMs) + 1;
+            targetFrames = Math.max(MIN_TARGET_FRAMES, Math.min(capacity / 2, wanted));
+        }
+        lastTransitMs = transitMs;
+        hasTransit = true;
+    }
+
+    private void resync(int sequence) {
+        Arrays.fill(filled, false);
+        lost += sequence - nextSequence;
+        nextSequence = sequence;
+        highestSequence = sequence;
+        primed = false;
+    }
+
+    private int slotIndex(int sequence) {
+        return Math.floorMod(sequence, capacity);
+    }
+
+    /**
+     * Trames entre la prochaine à lire et la plus récente reçue, manquantes comprises
+     */
+    private int depth() {
+        return started ? Math.max(0, highestSequence - nextSequence + 1) : 0;
+    }
+
+    /**
+     * Vide le tampon, par exemple en fin d'appel
+     */
+    public synchronized void reset() {
+        Arrays.fill(filled, false);
+        started = false;
+        primed = false;
+        hasTransit = false;
+        jitterMs = 0;
+        targetFrames = MIN_TARGET_FRAMES;
+        consecutiveLosses = 0;
+        lastFrameLength = 0;
+        comfortNoise = false;
+        frameBytes = nominalFrameBytes;
+        frameMs = nominalFrameBytes / 2 * 1000f / sampleRate;
+        received = played = lost = late = duplicates = concealed = underruns = skipped = comfortFrames = 0;
+    }
+
+    public synchronized float getFrameMs() {
+        return frameMs;
+    }
+
+    /**
+     * Taille minimale du tampon passé à {@link #poll}
+     */
+    public int getMaxFrameBytes() {
+        return maxFrameBytes;
+    }
+
+    public synchronized JitterBufferStats getStats() {
+        return new JitterBufferStats(depth(), targetFrames, frameMs, jitterMs,
+                received, played, lost, late, duplicates, concealed, underruns, skipped, comfortFrames);
+    }
+}
@@ -0,0 +1,75 @@
+package org.personnal.client.call;
+
+/**
+ * Mesures d'un {@link JitterBuffer} à un instant donné
+ */
+public final class JitterBufferStats {
+    private final int depth;
+    private final int targetDepth;
+    private final float frameMs;
+    private final double jitterMs;
+    private final long received;
+    private final long played;
+    private final long lost;
+    private final long late;
+    private final long duplicates;
+    private final long concealed;
+    private final long underruns;
+    private final long skipped;
+    private final long comfortFrames;
+
+    JitterBufferStats(int depth, int targetDepth, float frameMs, double jitterMs, long received, long played,
+                      long lost, long late, long duplicates, long concealed, long underruns, long skipped,
+                      long comfortFrames) {
+        this.depth = depth;
+        this.targetDepth = targetDepth;
+        this.frameMs = frameMs;
+        this.jitterMs = jitterMs;
+        this.received = received;
+        this.played = played;
+        this.lost = lost;
+        this.late = late;
+        this.duplicates = duplicates;
+        this.concealed = concealed;
+        this.underruns = underruns;
+        this.skipped = skipped;
+        this.comfortFrames = comfortFrames;
+    }
+
+    // Trames en attente de lecture
+    public int getDepth() { return depth; }
+    // Profondeur visée, déduite de la gigue
+    public int getTargetDepth() { return targetDepth; }
+    public double getDepthMs() { return depth * frameMs; }
+    public double getTargetDelayMs() { return targetDepth * frameMs; }
+    public double getJitterMs() { return jitterMs; }
+    public long getReceived() { return received; }
+    public long getPlayed() { return played; }
+    // Trames jamais arrivées à temps, remplacées par du masquage
+    public long getLost() { return lost; }
+    // Trames arrivées après leur heure de lecture, jetées
+    public long getLate() { return late; }
+    public long getDuplicates() { return duplicates; }
+    public long getConcealed() { return concealed; }
+    // Tampon vidé : la lecture attend de retrouver la profondeur visée
+    public long getUnderruns() { return underruns; }
+    // Trames sautées pour réduire la latence
+    public long getSkipped() { return skipped; }
+    // Trames de bruit de confort jouées pendant les silences de l'émetteur
+    public long getComfortFrames() { return comfortFrames; }
+
+    /**
+     * Part des trames attendues qui n'ont pas pu être jouées (perdues ou en retard)
+     */
+    public double getLossRate() {
+        long expected = played + lost;
+        return expected == 0 ? 0.0 : (double) lost / expected;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Gigue %.1f ms, tampon %d/%d trames (%.0f ms), %d reçues, %d perdues (%.1f %%), %d en retard, %d masquées, %d sautées, %d de bruit de confort",
+                jitterMs, depth, targetDepth, getDepthMs(), received, lost, getLossRate() * 100, late, concealed, skipped,
+                comfortFrames);
+    }
+}
@@ -0,0 +1,41 @@
+package org.personnal.client.call;
+
+/**
+ * Estimation de la latence bouche-à-oreille d'un appel, étape par étape :
+ * <pre>
+ *  capture (une trame) + réseau (aller simple par le relais) + tampon de gigue + ligne de sortie
+ * </pre>
+ * Le codage et le rééchantillonnage ne retardent que de quelques échantillons et sont négligés.
+ * Le temps de réseau n'est pas mesurable sans horloge commune : il est supposé ({@link #ASSUMED_NETWORK_MS}).
+ */
+public final class LatencyBudget {
+    // Aller simple client → relais → client sur un réseau ordinaire
+    public static final double ASSUMED_NETWORK_MS = 40;
+
+    private final double captureMs;
+    private final double networkMs;
+    private final double jitterBufferMs;
+    private final double playoutMs;
+
+    LatencyBudget(double captureMs, double networkMs, double jitterBufferMs, double playoutMs) {
+        this.captureMs = captureMs;
+        this.networkMs = networkMs;
+        this.jitterBufferMs = jitterBufferMs;
+        this.playoutMs = playoutMs;
+    }
+
+    public double getCaptureMs() { return captureMs; }
+    public double getNetworkMs() { return networkMs; }
+    public double getJitterBufferMs() { return jitterBufferMs; }
+    public double getPlayoutMs() { return playoutMs; }
+
+    public double getTotalMs() {
+        return captureMs + networkMs + jitterBufferMs + playoutMs;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("≈ %.0f ms (capture %.0f, réseau ~%.0f, gigue %.0f, lecture %.0f)",
+                getTotalMs(), captureMs, networkMs, jitterBufferMs, playoutMs);
+    }
+}
@@ -0,0 +1,48 @@
+package org.personnal.client.call;
+
+/**
+ * Changement de fréquence d'échantillonnage par interpolation linéaire, continu d'une trame à l'autre :
+ * la phase et le dernier échantillon de la trame précédente sont conservés.
+ * Le nombre d'échantillons produits varie donc d'une unité selon la trame.
+ */
+final class LinearResampler {
+    // Pas de lecture dans l'entrée pour un échantillon de sortie
+    private final double step;
+    // Position du prochain échantillon de sortie, relative au début de la trame courante (-1 = dernier de la précédente)
+    private double phase;
+    private short previous;
+
+    LinearResampler(float inputRate, float outputRate) {
+        this.step = inputRate / outputRate;
+    }
+
+    /**
+     * Nombre maximal d'échantillons produits pour count échantillons en entrée
+     */
+    int maxOutput(int count) {
+        return (int) Math.ceil(count / step) + 1;
+    }
+
+    int process(short[] in, int count, short[] out) {
+        if (count == 0) {
+            return 0;
+        }
+        int produced = 0;
+        while (phase < count - 1) {
+            int index = (int) Math.floor(phase);
+            double fraction = phase - index;
+            int a = index < 0 ? previous : in[index];
+            int b = in[index + 1];
+            out[produced++] = (short) Math.round(a + (b - a) * fraction);
+            phase += step;
+        }
+        phase -= count;
+        previous = in[count - 1];
+        return produced;
+    }
+
+    void reset() {
+        phase = 0;
+        previous = 0;
+    }
+}
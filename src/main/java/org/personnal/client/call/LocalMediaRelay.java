@@ -0,0 +1,136 @@
+package org.personnal.client.call;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousCloseException;
+import java.nio.channels.DatagramChannel;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Relais média local, en remplacement du relais du serveur quand celui-ci n'en propose pas
+ * (deux clients sur la même machine, développement).
+ * Chaque session associe les deux premières adresses qui s'y annoncent ; un paquet reçu de l'une est
+ * renvoyé tel quel à l'autre.
+ * Une adresse muette depuis {@value #PEER_IDLE_MS} ms perd sa place (les clients se rappellent au relais
+ * au moins toutes les 500 ms, même en silence), et une session sans trafic est oubliée.
+ */
+public final class LocalMediaRelay {
+    private static final long PEER_IDLE_MS = 10_000;
+
+    private static LocalMediaRelay instance;
+
+    private final DatagramChannel channel;
+    // Utilisées par le seul thread du relais
+    private final Map<Integer, Session> sessions = new HashMap<>();
+    private long nextSweep;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(MediaPacket.HEADER_SIZE + MediaPacket.MAX_PAYLOAD_SIZE);
+
+    private LocalMediaRelay(int port) throws IOException {
+        channel = DatagramChannel.open();
+        try {
+            channel.bind(new InetSocketAddress("127.0.0.1", port));
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        Thread thread = new Thread(this::relayLoop, "LocalMediaRelay");
+        thread.setDaemon(true);
+        thread.start();
+        System.out.println("🔁 Relais média local démarré sur le port " + port);
+    }
+
+    /**
+     * Démarre le relais local s'il ne tourne pas déjà.
+     * Si le port est occupé (relais lancé par un autre client de la machine), celui-ci est utilisé.
+     */
+    public static synchronized void ensureStarted(int port) {
+        if (instance != null) {
+            return;
+        }
+        try {
+            instance = new LocalMediaRelay(port);
+        } catch (IOException e) {
+            System.out.println("🔁 Relais média local déjà présent sur le port " + port);
+        }
+    }
+
+    private void relayLoop() {
+        while (channel.isOpen()) {
+            try {
+                buffer.clear();
+                SocketAddress source = channel.receive(buffer);
+                buffer.flip();
+                if (!MediaPacket.isValid(buffer)) {
+                    continue;
+                }
+
+                long now = System.currentTimeMillis();
+                boolean register = (MediaPacket.flags(buffer) & MediaPacket.FLAG_REGISTER) != 0;
+                SocketAddress target = peerOf(MediaPacket.session(buffer), source, register, now);
+                if (target != null && !register) {
+                    channel.send(buffer, target);
+                }
+                if (now >= nextSweep) {
+                    sessions.values().removeIf(session -> session.isIdle(now));
+                    nextSweep = now + PEER_IDLE_MS;
+                }
+            } catch (AsynchronousCloseException e) {
+                break;
+            } catch (IOException e) {
+                System.err.println("❌ Erreur du relais média local: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Enregistre la source dans sa session et retourne l'autre participant, null s'il n'est pas encore connu.
+     * Une place est libérée par un participant muet, ou reprise par une nouvelle annonce quand la session
+     * est complète : un client qui change d'adresse (nouveau port local) retrouve ainsi son correspondant.
+     */
+    private SocketAddress peerOf(int sessionId, SocketAddress source, boolean register, long now) {
+        Session session = sessions.computeIfAbsent(sessionId, s -> new Session());
+        for (int i = 0; i < 2; i++) {
+            if (source.equals(session.peers[i])) {
+                session.lastSeen[i] = now;
+                return session.activePeer(1 - i, now);
+            }
+        }
+
+        int slot = -1;
+        for (int i = 0; i < 2 && slot < 0; i++) {
+            if (session.peers[i] == null || now - session.lastSeen[i] > PEER_IDLE_MS) {
+                slot = i;
+            }
+        }
+        if (slot < 0 && register) {
+            // Session complète : la nouvelle adresse remplace le participant entendu le moins récemment
+            slot = session.lastSeen[0] <= session.lastSeen[1] ? 0 : 1;
+        }
+        if (slot < 0) {
+            // Un troisième participant n'est pas relayé
+            return null;
+        }
+        session.peers[slot] = source;
+        session.lastSeen[slot] = now;
+        return session.activePeer(1 - slot, now);
+    }
+
+    /**
+     * Les deux adresses d'une session et le moment où chacune a été entendue pour la dernière fois
+     */
+    private static final class Session {
+        final SocketAddress[] peers = new SocketAddress[2];
+        final long[] lastSeen = new long[2];
+
+        SocketAddress activePeer(int slot, long now) {
+            return peers[slot] != null && now - lastSeen[slot] <= PEER_IDLE_MS ? peers[slot] : null;
+        }
+
+        boolean isIdle(long now) {
+            return now - lastSeen[0] > PEER_IDLE_MS && now - lastSeen[1] > PEER_IDLE_MS;
+        }
+    }
+}
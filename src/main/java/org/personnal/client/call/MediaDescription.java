@@ -0,0 +1,81 @@
+package org.personnal.client.call;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonSyntaxException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Description du canal média échangée dans les signaux "offer" et "answer".
+ * L'appelant choisit la session et liste ses codecs par préférence ;
+ * l'appelé reprend la session et répond avec le codec retenu ({@link AudioCodecs#negotiate}).
+ */
+public final class MediaDescription {
+    private final String type;
+    private final int session;
+    private final List<String> codecs;
+
+    public MediaDescription(String type, int session, List<String> codecs) {
+        this.type = type;
+        this.session = session;
+        this.codecs = codecs;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public int getSession() {
+        return session;
+    }
+
+    /**
+     * Codecs proposés (offre) ou retenu (réponse) ; vide pour un client qui n'envoie que du PCM
+     */
+    public List<String> getCodecs() {
+        return codecs;
+    }
+
+    public String toSignal() {
+        JsonObject json = new JsonObject();
+        json.addProperty("type", type);
+        json.addProperty("transport", "udp");
+        json.addProperty("session", session);
+        JsonArray codecArray = new JsonArray();
+        codecs.forEach(codecArray::add);
+        json.add("codecs", codecArray);
+        return json.toString();
+    }
+
+    /**
+     * @return La description, ou null si le signal ne décrit pas de canal média (ancien client)
+     */
+    public static MediaDescription fromSignal(String data) {
+        if (data == null) {
+            return null;
+        }
+        try {
+            JsonObject json = JsonParser.parseString(data).getAsJsonObject();
+            if (!json.has("session")) {
+                return null;
+            }
+            String type = json.has("type") ? json.get("type").getAsString() : null;
+
+            List<String> codecs = Collections.emptyList();
+            if (json.has("codecs") && json.get("codecs").isJsonArray()) {
+                codecs = new ArrayList<>();
+                for (JsonElement codec : json.getAsJsonArray("codecs")) {
+                    codecs.add(codec.getAsString());
+                }
+            }
+            return new MediaDescription(type, json.get("session").getAsInt(), codecs);
+        } catch (JsonSyntaxException | IllegalStateException | NumberFormatException | UnsupportedOperationException e) {
+            return null;
+        }
+    }
+}
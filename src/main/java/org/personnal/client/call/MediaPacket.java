@@ -0,0 +1,93 @@
+package org.personnal.client.call;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Format binaire d'un paquet audio du canal média.
+ * <pre>
+ *  0      1      2      3      4              8              12             16
+ *  +------+------+------+------+--------------+--------------+--------------+---------
+ *  | ver. | drap.| type | rés. | session      | séquence     | horodatage   | charge utile
+ *  +------+------+------+------+--------------+--------------+--------------+---------
+ * </pre>
+ * La session identifie l'appel auprès du relais ; la séquence augmente de 1 par paquet
+ * et l'horodatage compte les échantillons depuis le début de l'appel.
+ * Les accesseurs lisent aux positions absolues : le tampon n'est ni copié ni déplacé.
+ */
+public final class MediaPacket {
+    public static final byte VERSION = 1;
+    public static final int HEADER_SIZE = 16;
+    // Les trames codées tiennent dans un datagramme sans fragmentation IP (1400 octets) ; seul le PCM
+    // en trames de 20 ou 40 ms (jusqu'à 3528 octets, CallQualityProfile) est fragmenté
+    public static final int MAX_PAYLOAD_SIZE = 4096 - HEADER_SIZE;
+
+    // Paquet sans audio, envoyé pour se faire connaître du relais
+    public static final byte FLAG_REGISTER = 0x01;
+    // Début ou rappel d'un silence (transmission discontinue) : la charge utile porte sur 2 octets
+    // le niveau du bruit de fond, que le destinataire reproduit en bruit de confort
+    public static final byte FLAG_SILENCE = 0x02;
+    public static final int SILENCE_PAYLOAD_SIZE = 2;
+
+    // Type de charge utile : PCM 16 bits signé little-endian
+    public static final byte PAYLOAD_PCM = 0;
+
+    private MediaPacket() {
+    }
+
+    /**
+     * Écrit l'en-tête à la position courante du tampon, qui avance de {@link #HEADER_SIZE}
+     */
+    public static void writeHeader(ByteBuffer buffer, byte flags, byte payloadType, int session, int sequence, int timestamp) {
+        buffer.put(VERSION);
+        buffer.put(flags);
+        buffer.put(payloadType);
+        buffer.put((byte) 0);
+        buffer.putInt(session);
+        buffer.putInt(sequence);
+        buffer.putInt(timestamp);
+    }
+
+    /**
+     * Vérifie qu'un datagramme reçu (entre 0 et limit) est un paquet média lisible
+     */
+    public static boolean isValid(ByteBuffer packet) {
+        return packet.limit() >= HEADER_SIZE && packet.get(0) == VERSION;
+    }
+
+    public static byte flags(ByteBuffer packet) {
+        return packet.get(1);
+    }
+
+    public static byte payloadType(ByteBuffer packet) {
+        return packet.get(2);
+    }
+
+    public static int session(ByteBuffer packet) {
+        return packet.getInt(4);
+    }
+
+    public static int sequence(ByteBuffer packet) {
+        return packet.getInt(8);
+    }
+
+    public static int timestamp(ByteBuffer packet) {
+        return packet.getInt(12);
+    }
+
+    public static boolean isSilence(ByteBuffer packet) {
+        return (flags(packet) & FLAG_SILENCE) != 0;
+    }
+
+    /**
+     * Écrit un niveau de bruit normalisé (0 à 1) dans la charge utile d'un paquet de silence
+     */
+    public static void writeNoiseLevel(byte[] payload, double level) {
+        int amplitude = (int) Math.min(32767, Math.max(0, Math.round(level * 32768)));
+        payload[0] = (byte) (amplitude >> 8);
+        payload[1] = (byte) amplitude;
+    }
+
+    public static int payloadLength(ByteBuffer packet) {
+        return packet.limit() - HEADER_SIZE;
+    }
+}
@@ -0,0 +1,163 @@
+package org.personnal.client.call;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.AsynchronousCloseException;
+import java.nio.channels.DatagramChannel;
+
+/**
+ * Canal média d'un appel : les trames audio circulent en UDP vers le relais, en binaire
+ * ({@link MediaPacket}), sans passer par la connexion de chat qui ne porte plus que la signalisation.
+ * Les paquets reçus sont remis à l'écouteur sur le thread de réception, jamais sur le thread JavaFX.
+ */
+public class MediaTransport implements Closeable {
+
+    /**
+     * Reçoit les paquets audio de la session.
+     * Le tampon n'est valide que pendant l'appel : la charge utile va de {@link MediaPacket#HEADER_SIZE} à limit.
+     */
+    public interface Listener {
+        void onMediaPacket(ByteBuffer packet);
+    }
+
+    private static final int SOCKET_BUFFER_SIZE = 64 * 1024;
+
+    private final DatagramChannel channel;
+    private final InetSocketAddress relay;
+    private final int session;
+    private final Listener listener;
+    private final ByteBuffer sendBuffer = ByteBuffer.allocateDirect(MediaPacket.HEADER_SIZE + MediaPacket.MAX_PAYLOAD_SIZE)
+            .order(ByteOrder.BIG_ENDIAN);
+    private final ByteBuffer receiveBuffer = ByteBuffer.allocateDirect(MediaPacket.HEADER_SIZE + MediaPacket.MAX_PAYLOAD_SIZE)
+            .order(ByteOrder.BIG_ENDIAN);
+    private final Thread receiveThread;
+    private volatile boolean running = true;
+
+    // Un seul thread écrit chaque compteur
+    private volatile long packetsSent;
+    private volatile long packetsReceived;
+    private volatile long packetsDiscarded;
+
+    private MediaTransport(DatagramChannel channel, InetSocketAddress relay, int session, Listener listener) {
+        this.channel = channel;
+        this.relay = relay;
+        this.session = session;
+        this.listener = listener;
+        this.receiveThread = new Thread(this::receiveLoop, "MediaTransport-receive");
+        this.receiveThread.setDaemon(true);
+    }
+
+    /**
+     * Ouvre le canal vers le relais et s'y fait connaître pour la session donnée
+     */
+    public static MediaTransport open(InetSocketAddress relay, int session, Listener listener) throws IOException {
+        DatagramChannel channel = DatagramChannel.open();
+        try {
+            channel.setOption(StandardSocketOptions.SO_RCVBUF, SOCKET_BUFFER_SIZE);
+            channel.setOption(StandardSocketOptions.SO_SNDBUF, SOCKET_BUFFER_SIZE);
+            channel.bind(new InetSocketAddress(0));
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+
+        MediaTransport transport = new MediaTransport(channel, relay, session, listener);
+        transport.receiveThread.start();
+        transport.register();
+        System.out.println("🎧 Canal média ouvert vers " + relay + " (session " + session + ")");
+        return transport;
+    }
+
+    /**
+     * Annonce l'adresse locale au relais, avant le premier paquet audio
+     */
+    public void register() throws IOException {
+        send(MediaPacket.FLAG_REGISTER, MediaPacket.PAYLOAD_PCM, 0, 0, null, 0, 0);
+    }
+
+    /**
+     * Envoie une trame audio. Un datagramme perdu n'est pas renvoyé.
+     */
+    public void send(byte flags, byte payloadType, int sequence, int timestamp,
+                     byte[] data, int offset, int length) throws IOException {
+        if (length > MediaPacket.MAX_PAYLOAD_SIZE) {
+            throw new IOException("Trame audio trop grande : " + length + " octets");
+        }
+        synchronized (sendBuffer) {
+            sendBuffer.clear();
+            MediaPacket.writeHeader(sendBuffer, flags, payloadType, session, sequence, timestamp);
+            if (length > 0) {
+                sendBuffer.put(data, offset, length);
+            }
+            sendBuffer.flip();
+            channel.send(sendBuffer, relay);
+            packetsSent++;
+        }
+    }
+
+    private void receiveLoop() {
+        while (running) {
+            try {
+                receiveBuffer.clear();
+                SocketAddress source = channel.receive(receiveBuffer);
+                receiveBuffer.flip();
+
+                // Seul le relais parle sur ce canal, et uniquement pour cette session
+                if (!relay.equals(source) || !MediaPacket.isValid(receiveBuffer)
+                        || MediaPacket.session(receiveBuffer) != session
+                        || (MediaPacket.flags(receiveBuffer) & MediaPacket.FLAG_REGISTER) != 0) {
+                    packetsDiscarded++;
+                    continue;
+                }
+
+                packetsReceived++;
+                receiveBuffer.position(MediaPacket.HEADER_SIZE);
+                listener.onMediaPacket(receiveBuffer);
+            } catch (AsynchronousCloseException e) {
+                break;
+            } catch (IOException e) {
+                if (running) {
+                    System.err.println("❌ Erreur de réception média: " + e.getMessage());
+                }
+            } catch (RuntimeException e) {
+                System.err.println("❌ Erreur lors du traitement d'un paquet média: " + e.getMessage());
+            }
+        }
+    }
+
+    public int getSession() {
+        return session;
+    }
+
+    public long getPacketsSent() {
+        return packetsSent;
+    }
+
+    public long getPacketsReceived() {
+        return packetsReceived;
+    }
+
+    public long getPacketsDiscarded() {
+        return packetsDiscarded;
+    }
+
+    @Override
+    public void close() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        try {
+            channel.close();
+        } catch (IOException e) {
+            System.err.println("❌ Erreur lors de la fermeture du canal média: " + e.getMessage());
+        }
+        System.out.println("🎧 Canal média fermé (" + packetsSent + " paquets envoyés, "
+                + packetsReceived + " reçus, " + packetsDiscarded + " ignorés)");
+    }
+}
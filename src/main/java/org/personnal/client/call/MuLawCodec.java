@@ -0,0 +1,81 @@
+package org.personnal.client.call;
+
+import java.nio.ByteBuffer;
+
+/**
+ * μ-law (G.711) à 16 kHz : un octet par échantillon, soit 128 kbit/s
+ */
+public class MuLawCodec extends ResamplingCodec {
+    public static final String NAME = "pcmu/16000";
+    public static final byte PAYLOAD_TYPE = 1;
+    private static final float RATE = 16000f;
+
+    private static final int BIAS = 0x84;
+    private static final int CLIP = 32635;
+
+    public MuLawCodec(float audioRate) {
+        super(audioRate, RATE);
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public byte getPayloadType() {
+        return PAYLOAD_TYPE;
+    }
+
+    @Override
+    protected int encodeSamples(short[] samples, int count, byte[] out) {
+        for (int i = 0; i < count; i++) {
+            out[i] = encode(samples[i]);
+        }
+        return count;
+    }
+
+    @Override
+    protected int decodeSamples(ByteBuffer payload, short[] samples) {
+        int count = payload.remaining();
+        for (int i = 0; i < count; i++) {
+            samples[i] = decode(payload.get());
+        }
+        return count;
+    }
+
+    @Override
+    protected int maxDecodedSamples(int payloadLength) {
+        return payloadLength;
+    }
+
+    @Override
+    protected void resetState() {
+        // Sans état
+    }
+
+    static byte encode(short sample) {
+        int value = sample;
+        int sign = (value >> 8) & 0x80;
+        if (sign != 0) {
+            value = -value;
+        }
+        value = Math.min(value, CLIP) + BIAS;
+
+        int exponent = 7;
+        for (int mask = 0x4000; (value & mask) == 0 && exponent > 0; mask >>= 1) {
+            exponent--;
+        }
+        int mantissa = (value >> (exponent + 3)) & 0x0F;
+        return (byte) ~(sign | (exponent << 4) | mantissa);
+    }
+
+    static short decode(byte encoded) {
+        int value = ~encoded & 0xFF;
+        int sign = value & 0x80;
+        int exponent = (value >> 4) & 0x07;
+        int mantissa = value & 0x0F;
+        int magnitude = (((mantissa << 3) + BIAS) << exponent) - BIAS;
+        return (short) (sign != 0 ? -magnitude : magnitude);
+    }
+}
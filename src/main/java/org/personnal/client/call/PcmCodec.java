@@ -0,0 +1,80 @@
+package org.personnal.client.call;
+
+import java.nio.ByteBuffer;
+
+/**
+ * PCM brut à 44,1 kHz : format historique, retenu quand l'autre client ne propose aucun codec.
+ * Copie directe quand l'appel est capturé à 44,1 kHz, rééchantillonnage sinon (profil faible débit).
+ */
+public class PcmCodec extends ResamplingCodec {
+    public static final String NAME = "pcm/44100";
+    public static final float CLOCK_RATE = 44100f;
+
+    private final boolean passThrough;
+
+    /**
+     * @param audioRate Fréquence de capture et de lecture de l'appel
+     */
+    public PcmCodec(float audioRate) {
+        super(audioRate, CLOCK_RATE);
+        this.passThrough = audioRate == CLOCK_RATE;
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public byte getPayloadType() {
+        return MediaPacket.PAYLOAD_PCM;
+    }
+
+    @Override
+    public int encode(byte[] pcm, int length, byte[] out) {
+        if (!passThrough) {
+            return super.encode(pcm, length, out);
+        }
+        System.arraycopy(pcm, 0, out, 0, length);
+        return length;
+    }
+
+    @Override
+    public int decode(ByteBuffer payload, byte[] pcm) {
+        if (!passThrough) {
+            return super.decode(payload, pcm);
+        }
+        int length = Math.min(payload.remaining(), pcm.length);
+        payload.get(pcm, 0, length);
+        return length;
+    }
+
+    @Override
+    protected int encodeSamples(short[] samples, int count, byte[] out) {
+        int length = Math.min(count, out.length / 2);
+        for (int i = 0; i < length; i++) {
+            out[2 * i] = (byte) samples[i];
+            out[2 * i + 1] = (byte) (samples[i] >> 8);
+        }
+        return length * 2;
+    }
+
+    @Override
+    protected int decodeSamples(ByteBuffer payload, short[] samples) {
+        int count = Math.min(payload.remaining() / 2, samples.length);
+        for (int i = 0; i < count; i++) {
+            samples[i] = (short) ((payload.get() & 0xFF) | (payload.get() << 8));
+        }
+        return count;
+    }
+
+    @Override
+    protected int maxDecodedSamples(int payloadLength) {
+        return payloadLength / 2;
+    }
+
+    @Override
+    protected void resetState() {
+        // Sans état propre
+    }
+}
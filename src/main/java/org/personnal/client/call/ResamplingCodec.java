@@ -0,0 +1,138 @@
+package org.personnal.client.call;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Base des codecs qui travaillent à une autre fréquence que la capture :
+ * filtre passe-bas puis sous-échantillonnage à l'envoi, sur-échantillonnage au décodage
+ * (et l'inverse pour un codec plus rapide que la capture).
+ * Les sous-classes ne voient que des échantillons à la fréquence du codec.
+ */
+public abstract class ResamplingCodec implements AudioCodec {
+    private final float codecRate;
+    private final LinearResampler downsampler;
+    private final LinearResampler upsampler;
+    private final LowPassFilter antiAliasing;
+
+    // Tampons de travail, dimensionnés à la première trame
+    private short[] input = new short[0];
+    private short[] codecSamples = new short[0];
+    private short[] output = new short[0];
+
+    /**
+     * @param audioRate Fréquence de capture et de lecture de l'appel
+     * @param codecRate Fréquence de travail du codec
+     */
+    protected ResamplingCodec(float audioRate, float codecRate) {
+        this.codecRate = codecRate;
+        this.downsampler = new LinearResampler(audioRate, codecRate);
+        this.upsampler = new LinearResampler(codecRate, audioRate);
+        // Coupure sous la moitié de la fréquence du codec, pour ne pas replier les aigus dans la voix
+        this.antiAliasing = audioRate > codecRate ? new LowPassFilter(audioRate, codecRate * 0.45f) : null;
+    }
+
+    @Override
+    public float getClockRate() {
+        return codecRate;
+    }
+
+    @Override
+    public int encode(byte[] pcm, int length, byte[] out) {
+        int count = length / 2;
+        if (input.length < count) {
+            input = new short[count];
+            codecSamples = new short[downsampler.maxOutput(count)];
+        }
+        for (int i = 0; i < count; i++) {
+            input[i] = (short) ((pcm[2 * i] & 0xFF) | (pcm[2 * i + 1] << 8));
+        }
+        if (antiAliasing != null) {
+            antiAliasing.process(input, count);
+        }
+        int samples = downsampler.process(input, count, codecSamples);
+        return encodeSamples(codecSamples, samples, out);
+    }
+
+    @Override
+    public int decode(ByteBuffer payload, byte[] pcm) {
+        int maxSamples = maxDecodedSamples(payload.remaining());
+        if (codecSamples.length < maxSamples) {
+            codecSamples = new short[maxSamples];
+        }
+        int samples = decodeSamples(payload, codecSamples);
+
+        int maxOutput = upsampler.maxOutput(samples);
+        if (output.length < maxOutput) {
+            output = new short[maxOutput];
+        }
+        int count = Math.min(upsampler.process(codecSamples, samples, output), pcm.length / 2);
+        for (int i = 0; i < count; i++) {
+            pcm[2 * i] = (byte) output[i];
+            pcm[2 * i + 1] = (byte) (output[i] >> 8);
+        }
+        return count * 2;
+    }
+
+    @Override
+    public void reset() {
+        downsampler.reset();
+        upsampler.reset();
+        if (antiAliasing != null) {
+            antiAliasing.reset();
+        }
+        resetState();
+    }
+
+    /**
+     * @return Taille de la charge utile écrite dans out
+     */
+    protected abstract int encodeSamples(short[] samples, int count, byte[] out);
+
+    /**
+     * @return Nombre d'échantillons décodés dans samples
+     */
+    protected abstract int decodeSamples(ByteBuffer payload, short[] samples);
+
+    /**
+     * Nombre maximal d'échantillons contenus dans une charge utile de cette taille
+     */
+    protected abstract int maxDecodedSamples(int payloadLength);
+
+    protected abstract void resetState();
+
+    /**
+     * Filtre passe-bas de Butterworth du second ordre (biquad), appliqué sur place
+     */
+    private static final class LowPassFilter {
+        private final double b0, b1, b2, a1, a2;
+        private double x1, x2, y1, y2;
+
+        private LowPassFilter(float sampleRate, float cutoff) {
+            double w = 2 * Math.PI * cutoff / sampleRate;
+            double alpha = Math.sin(w) / Math.sqrt(2);
+            double cos = Math.cos(w);
+            double a0 = 1 + alpha;
+            b0 = (1 - cos) / 2 / a0;
+            b1 = (1 - cos) / a0;
+            b2 = b0;
+            a1 = -2 * cos / a0;
+            a2 = (1 - alpha) / a0;
+        }
+
+        private void process(short[] samples, int count) {
+            for (int i = 0; i < count; i++) {
+                double x = samples[i];
+                double y = b0 * x + b1 * x1 + b2 * x2 - a1 * y1 - a2 * y2;
+                x2 = x1;
+                x1 = x;
+                y2 = y1;
+                y1 = y;
+                samples[i] = (short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, Math.round(y)));
+            }
+        }
+
+        private void reset() {
+            x1 = x2 = y1 = y2 = 0;
+        }
+    }
+}
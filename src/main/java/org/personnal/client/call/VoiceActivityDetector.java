@@ -0,0 +1,93 @@
+package org.personnal.client.call;
+
+/**
+ * Détection d'activité vocale sur les trames du micro, pour la transmission discontinue.
+ * <ul>
+ *   <li>le seuil suit le bruit de fond : une trame est de la parole si son niveau dépasse
+ *       {@link #SPEECH_TO_NOISE_RATIO} fois le plancher de bruit (niveau RMS, {@link AudioDeviceManager#rms}) ;</li>
+ *   <li>le plancher descend vite vers un niveau plus bas et ne remonte que lentement,
+ *       très lentement pendant la parole ;</li>
+ *   <li>après la dernière trame de parole, la parole est maintenue pendant {@link #HANGOVER_MS}
+ *       pour ne pas couper les fins de mots.</li>
+ * </ul>
+ */
+public class VoiceActivityDetector {
+    public static final double SPEECH_TO_NOISE_RATIO = 3.0;   // Environ 10 dB au-dessus du bruit
+    public static final long HANGOVER_MS = 200;
+    // Seuil minimal : en dessous, même un micro très propre est considéré comme silencieux
+    private static final double MIN_THRESHOLD = 0.002;
+    private static final double INITIAL_NOISE_FLOOR = 0.005;
+    private static final double FLOOR_ATTACK = 0.5;     // Descente vers un bruit plus faible
+    private static final double FLOOR_RELEASE = 0.02;   // Remontée vers un bruit plus fort
+    // Remontée pendant la parole : un bruit de fond devenu plus fort finit par ne plus passer pour de la parole
+    private static final double FLOOR_SPEECH_RELEASE = 0.001;
+
+    private final int hangoverFrames;
+    private double noiseFloor = INITIAL_NOISE_FLOOR;
+    private double level;
+    private int hangoverLeft;
+
+    private long frames;
+    private long speechFrames;
+
+    public VoiceActivityDetector(float frameMs) {
+        this.hangoverFrames = Math.max(1, Math.round(HANGOVER_MS / frameMs));
+    }
+
+    /**
+     * @return true si la trame doit être transmise (parole ou queue de parole)
+     */
+    public boolean isSpeech(byte[] frame, int length) {
+        frames++;
+        level = AudioDeviceManager.rms(frame, length);
+        double threshold = Math.max(MIN_THRESHOLD, noiseFloor * SPEECH_TO_NOISE_RATIO);
+
+        // Même critère que AudioDeviceManager.isSilence, sans recalculer le niveau
+        if (level >= threshold) {
+            noiseFloor += (level - noiseFloor) * FLOOR_SPEECH_RELEASE;
+            hangoverLeft = hangoverFrames;
+            speechFrames++;
+            return true;
+        }
+
+        // Silence : le plancher suit le bruit de fond
+        double rate = level < noiseFloor ? FLOOR_ATTACK : FLOOR_RELEASE;
+        noiseFloor += (level - noiseFloor) * rate;
+
+        if (hangoverLeft > 0) {
+            hangoverLeft--;
+            speechFrames++;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Niveau du bruit de fond, normalisé entre 0 et 1, transmis au destinataire pour le bruit de confort
+     */
+    public double getNoiseFloor() {
+        return noiseFloor;
+    }
+
+    /**
+     * Niveau de la dernière trame analysée, normalisé entre 0 et 1
+     */
+    public double getLevel() {
+        return level;
+    }
+
+    /**
+     * Part des trames transmises depuis le début de l'appel
+     */
+    public double getActivityRate() {
+        return frames == 0 ? 0.0 : (double) speechFrames / frames;
+    }
+
+    public void reset() {
+        noiseFloor = INITIAL_NOISE_FLOOR;
+        level = 0;
+        hangoverLeft = 0;
+        frames = 0;
+        speechFrames = 0;
+    }
+}
@@ -4,6 +4,7 @@ import javax.sound.sampled.*;
 import java.io.ByteArrayOutputStream;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.locks.LockSupport;
 import java.util.function.BiConsumer;
 
 public class WebRTCManager {
@@ -12,7 +13,7 @@ public class WebRTCManager {
 
     // État de la connexion
     private boolean isInitialized = false;
-    private boolean isRecording = false;
+    private volatile boolean isRecording = false;
     private boolean isPlaying = false;
 
     // Composants audio
@@ -23,15 +24,21 @@ public class WebRTCManager {
     // Thread pool pour la gestion des flux audio
     private ExecutorService audioThreadPool;
 
-    // Taille du buffer audio
-    private static final int BUFFER_SIZE = 1024;
+    // Durée de trame et tampons des lignes du profil de qualité choisi
+    private final CallQualityProfile profile;
+    private final int frameBytes;
+    // Trames en attente d'envoi
+    private static final int RING_CAPACITY = 16;
 
     public WebRTCManager(BiConsumer<String, String> signalSender) {
         this.signalSender = signalSender;
         this.audioThreadPool = Executors.newFixedThreadPool(2);
 
-        // Format audio: 44.1kHz, 16bit, mono, signé, little-endian
-        this.audioFormat = new AudioFormat(44100.0f, 16, 1, true, false);
+        // Format audio: 44.1kHz, 16bit, mono, signé, little-endian, celui des trames envoyées par la signalisation ;
+        // seules la durée des trames et la taille des tampons suivent le profil
+        this.audioFormat = new AudioFormat(PcmCodec.CLOCK_RATE, 16, 1, true, false);
+        this.profile = AudioDeviceManager.getCallQualityProfile();
+        this.frameBytes = profile.getFrameBytesAt(PcmCodec.CLOCK_RATE);
     }
 
     /**
@@ -113,7 +120,7 @@ public class WebRTCManager {
 
         try {
             // Ouvrir et démarrer la ligne du microphone
-            micLine.open(audioFormat);
+            micLine.open(audioFormat, frameBytes * profile.getLineBufferFrames());
             micLine.start();
 
             // Marquer comme en cours d'enregistrement
@@ -122,21 +129,25 @@ public class WebRTCManager {
             // Démarrer la lecture
             startAudioPlayback();
 
-            // Démarrer un thread pour capturer et envoyer l'audio
+            // Un thread lit le micro, l'autre envoie : un envoi lent ne bloque plus la capture
+            AudioFrameRing ring = new AudioFrameRing(RING_CAPACITY, frameBytes);
+            audioThreadPool.submit(() -> sendCapturedAudio(ring));
             audioThreadPool.submit(() -> {
                 try {
-                    byte[] buffer = new byte[BUFFER_SIZE];
+                    byte[] discarded = new byte[frameBytes];
                     while (isRecording) {
-                        // Lire depuis le microphone
-                        int bytesRead = micLine.read(buffer, 0, buffer.length);
-
-                        if (bytesRead > 0) {
-                            // Dans une vraie implémentation WebRTC, nous encoderions et enverrions ces données
-                            // Pour notre simulation, nous pouvons simplement les envoyer en base64
-                            String audioData = java.util.Base64.getEncoder().encodeToString(buffer);
-                            signalSender.accept("audio-data", audioData);
+                        // Lire depuis le microphone, directement dans l'anneau s'il reste de la place
+                        int slot = ring.claim();
+                        byte[] target = slot >= 0 ? ring.data(slot) : discarded;
+                        int bytesRead = micLine.read(target, 0, frameBytes);
+
+                        if (bytesRead > 0 && slot >= 0) {
+                            ring.publish(bytesRead, 0, 0, (byte) 0);
                         }
                     }
+                    if (ring.getOverruns() > 0) {
+                        System.err.println("Trames audio perdues faute d'envoi assez rapide: " + ring.getOverruns());
+                    }
                 } catch (Exception e) {
                     System.err.println("Erreur de capture audio: " + e.getMessage());
                     e.printStackTrace();
@@ -156,6 +167,33 @@ public class WebRTCManager {
         }
     }
 
+    /**
+     * Envoie les trames capturées, sur un thread distinct de celui du micro
+     */
+    private void sendCapturedAudio(AudioFrameRing ring) {
+        while (isRecording) {
+            int slot = ring.peek();
+            if (slot < 0) {
+                LockSupport.parkNanos(1_000_000);
+                continue;
+            }
+            try {
+                // Dans une vraie implémentation WebRTC, nous encoderions et enverrions ces données
+                // Pour notre simulation, nous pouvons simplement les envoyer en base64
+                byte[] frame = ring.data(slot);
+                int length = ring.length(slot);
+                String audioData = length == frame.length
+                        ? java.util.Base64.getEncoder().encodeToString(frame)
+                        : java.util.Base64.getEncoder().encodeToString(java.util.Arrays.copyOf(frame, length));
+                signalSender.accept("audio-data", audioData);
+            } catch (Exception e) {
+                System.err.println("Erreur d'envoi audio: " + e.getMessage());
+            } finally {
+                ring.release();
+            }
+        }
+    }
+
     /**
      * Démarre la lecture audio vers les haut-parleurs
      */
@@ -166,7 +204,7 @@ public class WebRTCManager {
 
         try {
             // Ouvrir et démarrer la ligne des haut-parleurs
-            speakerLine.open(audioFormat);
+            speakerLine.open(audioFormat, frameBytes * profile.getLineBufferFrames());
             speakerLine.start();
 
             // Marquer comme en cours de lecture
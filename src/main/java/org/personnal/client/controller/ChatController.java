@@ -3,15 +3,21 @@ package org.personnal.client.controller;
 import javafx.application.Platform;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
+import javafx.collections.ObservableMap;
 import javafx.scene.control.Alert;
 import javafx.stage.FileChooser;
 import org.personnal.client.MainClient;
+import org.personnal.client.cache.BoundedCache;
 import org.personnal.client.call.AudioCallManager;
 import org.personnal.client.database.DAO.*;
+import org.personnal.client.model.ConversationSummary;
 import org.personnal.client.model.FileData;
 import org.personnal.client.model.Message;
+import org.personnal.client.model.TimelineItem;
 import org.personnal.client.model.User;
 import org.personnal.client.network.ClientSocketManager;
+import org.personnal.client.network.FileTransferSender;
+import org.personnal.client.network.NetworkConstants;
 import org.personnal.client.protocol.PeerRequest;
 import org.personnal.client.protocol.PeerResponse;
 import org.personnal.client.protocol.RequestType;
@@ -27,19 +33,27 @@ import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.function.Consumer;
 
 public class ChatController {
     private final MainClient app;
     private final String currentUsername;
     private final ClientSocketManager socketManager;
+    private final FileTransferSender fileTransferSender;
     private final ObservableList<String> contacts = FXCollections.observableArrayList();
     private final ObservableList<User> usersList = FXCollections.observableArrayList();
     private String currentChatPartner;
 
+    // Historique paginé de la conversation ouverte
+    private static final int HISTORY_PAGE_SIZE = 50;
+    private ConversationHistory conversationHistory;
+
     // DAOs pour accéder à la base de données locale
     private final IUserDAO userDAO;
     private final IMessageDAO messageDAO;
     private final IFileDAO fileDAO;
+    private final ITimelineDAO timelineDAO;
+    private final IConversationSummaryDAO conversationSummaryDAO;
 
     // Référence à la vue de chat
     private ChatView chatView;
@@ -48,10 +62,14 @@ public class ChatController {
     private final ExecutorService fileTransferExecutor = Executors.newFixedThreadPool(2);
 
     // Cache des utilisateurs pour éviter des requêtes répétées à la base de données
-    private final Map<String, User> userCache = new ConcurrentHashMap<>();
+    private static final int CONTACT_CACHE_MAX_SIZE = 1000;
+    private final BoundedCache<String, User> userCache =
+            new BoundedCache<>("contacts", CONTACT_CACHE_MAX_SIZE, 0);
 
-    // Cache des statuts en ligne
-    private final Map<String, Boolean> onlineStatusCache = new ConcurrentHashMap<>();
+    // Cache des statuts en ligne, même durée de vie que celui du gestionnaire de socket
+    private static final long ONLINE_STATUS_CACHE_DURATION = 60000;
+    private final BoundedCache<String, Boolean> onlineStatusCache =
+            new BoundedCache<>("statuts des contacts", CONTACT_CACHE_MAX_SIZE, ONLINE_STATUS_CACHE_DURATION);
 
     // Répertoire pour stocker les fichiers reçus
     private final String filesDirectory;
@@ -60,16 +78,22 @@ public class ChatController {
     private volatile boolean refreshingContactList = false;
     // Ajouter un attribut pour le gestionnaire d'appels
     private AudioCallManager audioCallManager;
+    // Prévient l'utilisateur des messages que la base a refusés après plusieurs tentatives
+    private final Consumer<List<Message>> lostMessagesListener = lost ->
+            showNotification(lost.size() + " message(s) n'ont pas pu être enregistrés dans l'historique local.");
 
     public ChatController(MainClient app, String currentUsername) throws IOException {
         this.app = app;
         this.currentUsername = currentUsername;
         this.socketManager = ClientSocketManager.getInstance();
+        this.fileTransferSender = new FileTransferSender(socketManager);
 
         // Initialiser les DAOs
         this.userDAO = new UserDAO();
         this.messageDAO = new MessageDAO();
         this.fileDAO = new FileDAO();
+        this.timelineDAO = new TimelineDAO();
+        this.conversationSummaryDAO = new ConversationSummaryDAO();
 
         // Initialiser le gestionnaire d'appels
         this.audioCallManager = new AudioCallManager(this);
@@ -115,11 +139,12 @@ public class ChatController {
         // Démarrer le listener de messages
         socketManager.startMessageListener(chatView, currentUsername);
 
-        // Charger les statuts des contacts en arrière-plan
-        preloadContactStatuses();
+        MessageWriteQueue writeQueue = MessageWriteQueue.getInstance();
+        writeQueue.removeFailureListener(lostMessagesListener);
+        writeQueue.addFailureListener(lostMessagesListener);
 
-        // Démarrer la mise à jour périodique
-        startPeriodicStatusUpdate();
+        // Statuts des contacts poussés par le serveur, ou interrogés périodiquement à défaut
+        startPresenceUpdates();
 
         System.out.println("ChatView configurée pour l'utilisateur " + currentUsername);
     }
@@ -176,7 +201,7 @@ public class ChatController {
         // Vider les listes avant de les recharger
         contacts.clear();
         usersList.clear();
-        userCache.clear();
+        userCache.invalidateAll();
 
         // Récupérer tous les utilisateurs depuis la base de données
         List<User> contactList = userDAO.findAll();
@@ -236,10 +261,7 @@ public class ChatController {
                     PeerRequest request = new PeerRequest(RequestType.SEND_MESSAGE, payload);
                     System.out.println("📤 [DEBUG] Envoi de la requête au serveur...");
 
-                    socketManager.sendRequest(request);
-                    System.out.println("⏳ [DEBUG] Requête envoyée, attente de la réponse...");
-
-                    PeerResponse response = socketManager.readResponse();
+                    PeerResponse response = socketManager.sendRequestAndWait(request);
                     System.out.println("📥 [DEBUG] Réponse reçue: success=" + response.isSuccess() +
                             ", message=" + response.getMessage());
 
@@ -299,42 +321,19 @@ public class ChatController {
     }
 
     /**
-     * Charge les messages pour un contact spécifique depuis la base de données locale
+     * Charge la page la plus récente de la conversation avec un contact depuis la base de données locale.
+     * Les pages plus anciennes sont obtenues par {@link #loadOlderMessages()}.
      */
-    public ObservableList<Message> loadMessagesForContact(String contact) {
-        ObservableList<Message> messages = FXCollections.observableArrayList();
+    public ObservableList<TimelineItem> loadMessagesForContact(String contact) {
+        ObservableList<TimelineItem> messages = FXCollections.observableArrayList();
 
         try {
             // Définir l'utilisateur courant comme propriété système pour la requête SQL
             System.setProperty("current.user", currentUsername);
 
-            // Récupérer les messages échangés avec ce contact depuis la BD locale
-            List<Message> messageList = messageDAO.getMessagesWith(contact);
-            messages.addAll(messageList);
-
-            // Récupérer également les fichiers échangés avec ce contact
-            List<FileData> fileList = fileDAO.getFilesWith(contact);
-
-            // Convertir les fichiers en messages pour les afficher dans la conversation
-            for (FileData file : fileList) {
-                Message fileMessage = new Message();
-                fileMessage.setIdMessage(file.getId());
-                fileMessage.setSender(file.getSender());
-                fileMessage.setReceiver(file.getReceiver());
-                fileMessage.setContent("Fichier: " + file.getFilename());
-                fileMessage.setTimestamp(file.getTimestamp());
-                fileMessage.setRead(file.isRead());
-
-                messages.add(fileMessage);
-            }
-
-            // Trier les messages par date
-            messages.sort((m1, m2) -> {
-                if (m1.getTimestamp() == null && m2.getTimestamp() == null) return 0;
-                if (m1.getTimestamp() == null) return -1;
-                if (m2.getTimestamp() == null) return 1;
-                return m1.getTimestamp().compareTo(m2.getTimestamp());
-            });
+            // Messages et fichiers échangés avec ce contact, fusionnés et triés par la base
+            conversationHistory = new ConversationHistory(timelineDAO, contact, HISTORY_PAGE_SIZE);
+            messages.addAll(conversationHistory.nextPage());
 
             // Marquer les messages du contact comme lus
             messageDAO.markMessagesAsRead(contact, currentUsername);
@@ -351,6 +350,25 @@ public class ChatController {
         return messages;
     }
 
+    /**
+     * Charge la page précédente de la conversation ouverte par {@link #loadMessagesForContact(String)}
+     * @return Les éléments plus anciens, du plus ancien au plus récent ; vide quand tout l'historique est chargé
+     */
+    public List<TimelineItem> loadOlderMessages() {
+        ConversationHistory history = conversationHistory;
+        if (history == null || history.isExhausted()) {
+            return Collections.emptyList();
+        }
+
+        try {
+            System.setProperty("current.user", currentUsername);
+            return history.nextPage();
+        } catch (Exception e) {
+            System.err.println("Erreur lors du chargement de l'historique: " + e.getMessage());
+            return Collections.emptyList();
+        }
+    }
+
     /**
      * Gère l'envoi de fichier et le sauvegarde en local
      */
@@ -362,12 +380,6 @@ public class ChatController {
 
         File file = chooseFile();
         if (file != null) {
-            // Vérifier la taille du fichier
-            if (file.length() > 10 * 1024 * 1024) { // 10MB max
-                showNotification("Le fichier est trop volumineux. Taille maximale: 10MB");
-                return;
-            }
-
             // Créer un FileData pour la base de données
             FileData fileData = new FileData();
             fileData.setSender(currentUsername);
@@ -465,8 +477,13 @@ public class ChatController {
             // Créer le répertoire parent si nécessaire
             Files.createDirectories(destination.getParent());
 
-            // Copier le fichier
-            Files.copy(file.toPath(), destination, StandardCopyOption.REPLACE_EXISTING);
+            // Lien physique quand le système de fichiers le permet, copie sinon
+            Files.deleteIfExists(destination);
+            try {
+                Files.createLink(destination, file.toPath());
+            } catch (IOException | UnsupportedOperationException e) {
+                Files.copy(file.toPath(), destination, StandardCopyOption.REPLACE_EXISTING);
+            }
 
             return destination.toString();
         } catch (IOException e) {
@@ -476,6 +493,17 @@ public class ChatController {
     }
 
     private void sendFileInBackground(String receiver, File file, FileData fileData) throws IOException {
+        // Envoi par morceaux : mémoire constante quelle que soit la taille du fichier
+        if (fileTransferSender.send(currentUsername, receiver, file.toPath())) {
+            System.out.println("Fichier envoyé avec succès au serveur : " + fileData.getFilename());
+            return;
+        }
+
+        // Ancien serveur : envoi en un seul bloc, limité en taille
+        if (file.length() > NetworkConstants.LEGACY_FILE_MAX_SIZE) {
+            throw new IOException("Le fichier est trop volumineux pour ce serveur. Taille maximale: 10MB");
+        }
+
         byte[] fileContent = Files.readAllBytes(file.toPath());
         String base64Content = Base64.getEncoder().encodeToString(fileContent);
 
@@ -486,8 +514,7 @@ public class ChatController {
         payload.put("content", base64Content);
 
         PeerRequest request = new PeerRequest(RequestType.SEND_FILE, payload);
-        socketManager.sendRequest(request);
-        PeerResponse response = socketManager.readResponse();
+        PeerResponse response = socketManager.sendRequestAndWait(request);
 
         if (!response.isSuccess()) {
             throw new IOException("Échec de l'envoi: " + response.getMessage());
@@ -502,11 +529,6 @@ public class ChatController {
      * @param username Le nom d'utilisateur à vérifier
      * @return true si l'utilisateur existe, false sinon
      */
-    // Ajouter un cache pour les vérifications d'utilisateurs
-    private final Map<String, Boolean> userExistsCache = new ConcurrentHashMap<>();
-    private final long USER_CACHE_DURATION = 3600000; // 1 heure en millisecondes
-    private final Map<String, Long> userCacheTimestamps = new ConcurrentHashMap<>();
-
     public boolean checkUserExists(String username) {
         if (username == null || username.isEmpty() || username.equals(currentUsername)) {
             return false;
@@ -613,6 +635,11 @@ public class ChatController {
                 userCache.put(username, newContact);
             });
 
+            // Suivre la présence du nouveau contact
+            if (socketManager.getPresenceStore().isLive()) {
+                CompletableFuture.runAsync(() -> socketManager.subscribePresence(List.of(username)));
+            }
+
             return true;
         } catch (Exception e) {
             System.err.println("Erreur lors de l'ajout du contact : " + e.getMessage());
@@ -629,13 +656,14 @@ public class ChatController {
             if (user != null) {
                 // Supprimer le contact de la base de données
                 userDAO.delete(userId);
+                socketManager.unsubscribePresence(user.getUsername());
 
                 // Mettre à jour les listes observables pour l'interface
                 Platform.runLater(() -> {
                     contacts.remove(user.getUsername());
                     usersList.removeIf(u -> u.getIdUser() == userId);
-                    userCache.remove(user.getUsername());
-                    onlineStatusCache.remove(user.getUsername());
+                    userCache.invalidate(user.getUsername());
+                    onlineStatusCache.invalidate(user.getUsername());
                 });
 
                 return true;
@@ -694,6 +722,34 @@ public class ChatController {
         return socketManager.isUserOnline(username);
     }
 
+    /**
+     * S'abonne à la présence de tous les contacts. Si le serveur ne gère pas les abonnements,
+     * les statuts sont chargés puis interrogés périodiquement comme avant.
+     */
+    private void startPresenceUpdates() {
+        CompletableFuture.runAsync(() -> {
+            // Tous les contacts enregistrés, indépendamment du filtre de recherche
+            List<String> allContacts = new ArrayList<>();
+            for (User user : userDAO.findAll()) {
+                allContacts.add(user.getUsername());
+            }
+
+            if (socketManager.subscribePresence(allContacts)) {
+                System.out.println("✅ Statuts des contacts reçus en temps réel (" + allContacts.size() + " contacts)");
+            } else {
+                preloadContactStatuses();
+                startPeriodicStatusUpdate();
+            }
+        });
+    }
+
+    /**
+     * Statuts en ligne observables, mis à jour à chaque notification de présence
+     */
+    public ObservableMap<String, Boolean> getPresenceStatuses() {
+        return socketManager.getPresenceStore().getStatuses();
+    }
+
     /**
      * *** CHARGEMENT PRÉEMPTIF DES STATUTS ***
      * Charge les statuts de tous les contacts en arrière-plan au démarrage
@@ -737,6 +793,10 @@ public class ChatController {
         // Mettre à jour les statuts toutes les 2 minutes
         statusUpdateScheduler.scheduleAtFixedRate(() -> {
             try {
+                // Inutile d'interroger le serveur quand il pousse les statuts
+                if (socketManager.getPresenceStore().isLive()) {
+                    return;
+                }
                 if (!contacts.isEmpty()) {
                     List<String> contactsList = List.copyOf(contacts);
                     socketManager.batchCheckOnlineStatus(contactsList)
@@ -774,18 +834,12 @@ public class ChatController {
      */
     public void saveReceivedMessage(Message message) {
         try {
-            // Marquer le message comme non lu puisqu'il vient d'être reçu
-            message.setRead(false);
+            // Un message de la conversation ouverte est lu immédiatement, les autres restent non lus.
+            // Le marquer avant l'enregistrement évite un UPDATE par message reçu.
+            boolean fromCurrentChat = chatView != null && currentChatPartner != null &&
+                    message.getSender().equals(currentChatPartner);
+            message.setRead(fromCurrentChat);
             messageDAO.saveMessage(message);
-
-            // Si la vue est disponible et que le message vient du partenaire de chat actuel,
-            // rafraîchir la liste des messages
-            if (chatView != null && currentChatPartner != null &&
-                    message.getSender().equals(currentChatPartner)) {
-
-                // Marquer le message comme lu immédiatement
-                messageDAO.markMessagesAsRead(currentChatPartner, currentUsername);
-            }
         } catch (Exception e) {
             System.err.println("Erreur lors de la sauvegarde du message reçu: " + e.getMessage());
         }
@@ -837,6 +891,11 @@ public class ChatController {
             }
 
             fileTransferExecutor.shutdownNow();
+            MessageWriteQueue.getInstance().removeFailureListener(lostMessagesListener);
+
+            // Efficacité des caches sur la session
+            System.out.println("📊 " + userCache.getStats());
+            System.out.println("📊 " + onlineStatusCache.getStats());
 
             // Arrêter le listener de messages avant de fermer la connexion
             socketManager.stopMessageListener();
@@ -844,8 +903,7 @@ public class ChatController {
             // Envoyer la requête de déconnexion
             try {
                 PeerRequest request = new PeerRequest(RequestType.DISCONNECT, null);
-                socketManager.sendRequest(request);
-                socketManager.readResponse();
+                socketManager.sendRequestAndWait(request, 2000);
             } catch (Exception e) {
                 // Ignorer les erreurs lors de la déconnexion
             }
@@ -892,4 +950,12 @@ public class ChatController {
     public IFileDAO getFileDAO() {
         return fileDAO;
     }
+
+    /**
+     * Résumés (non lus, dernier message) de toutes les conversations, lus en une seule requête
+     */
+    public Map<String, ConversationSummary> getConversationSummaries() {
+        System.setProperty("current.user", currentUsername);
+        return conversationSummaryDAO.getAllConversationSummaries();
+    }
 }
\ No newline at end of file
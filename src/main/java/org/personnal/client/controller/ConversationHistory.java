@@ -0,0 +1,59 @@
+package org.personnal.client.controller;
+
+import org.personnal.client.database.DAO.ITimelineDAO;
+import org.personnal.client.model.TimelineItem;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Historique d'une conversation chargé page par page, du plus récent au plus ancien.
+ * Le curseur est le plus ancien élément déjà chargé.
+ */
+class ConversationHistory {
+    private final ITimelineDAO timelineDAO;
+    private final String contact;
+    private final int pageSize;
+
+    private TimelineItem cursor;
+    private boolean exhausted;
+
+    ConversationHistory(ITimelineDAO timelineDAO, String contact, int pageSize) {
+        this.timelineDAO = timelineDAO;
+        this.contact = contact;
+        this.pageSize = pageSize;
+    }
+
+    String getContact() {
+        return contact;
+    }
+
+    boolean isExhausted() {
+        return exhausted;
+    }
+
+    /**
+     * Page suivante (plus ancienne), triée du plus ancien au plus récent. Vide quand l'historique est épuisé.
+     */
+    List<TimelineItem> nextPage() {
+        if (exhausted) {
+            return new ArrayList<>();
+        }
+
+        List<TimelineItem> page = timelineDAO.getTimelineBefore(contact, cursor, pageSize);
+        if (page.isEmpty()) {
+            exhausted = true;
+            return page;
+        }
+
+        TimelineItem oldest = page.get(0);
+        if (oldest.getId() <= 0) {
+            // Uniquement des messages encore en file d'écriture : rien de plus ancien dans la base
+            exhausted = true;
+            return page;
+        }
+        cursor = oldest;
+        exhausted = page.size() < pageSize;
+        return page;
+    }
+}
@@ -22,9 +22,7 @@ public class LoginController {
         validateCredentials(username, password);
 
         PeerRequest request = createLoginRequest(username, password);
-        socketManager.sendRequest(request);
-
-        PeerResponse response = socketManager.readResponse();
+        PeerResponse response = socketManager.sendRequestAndWait(request);
         validateResponse(response);
 
         app.showChatView(username);
@@ -22,9 +22,7 @@ public class RegisterController {
         validateRegistrationData(username, email, password, confirmPassword);
 
         PeerRequest request = createRegistrationRequest(username, email, password);
-        socketManager.sendRequest(request);
-
-        PeerResponse response = socketManager.readResponse();
+        PeerResponse response = socketManager.sendRequestAndWait(request);
         validateRegistrationResponse(response);
 
         app.showLoginView();
@@ -0,0 +1,26 @@
+package org.personnal.client.database;
+
+/**
+ * Clé d'une conversation entre deux utilisateurs, identique quel que soit le sens du message.
+ * Stockée dans la colonne conversation_key des tables messages et files.
+ * Le premier nom est précédé de sa longueur ("3|alicebob") : aucun caractère d'un nom d'utilisateur
+ * ne peut faire correspondre deux conversations différentes à la même clé.
+ */
+public final class ConversationKey {
+
+    private ConversationKey() {
+    }
+
+    public static String of(String user1, String user2) {
+        // Ordonner alphabétiquement pour avoir la même clé quelle que soit la direction
+        if (user1.compareTo(user2) < 0) {
+            return encode(user1, user2);
+        } else {
+            return encode(user2, user1);
+        }
+    }
+
+    private static String encode(String first, String second) {
+        return first.length() + "|" + first + second;
+    }
+}
@@ -0,0 +1,190 @@
+package org.personnal.client.database.DAO;
+
+import org.personnal.client.database.ConversationKey;
+import org.personnal.client.database.DatabaseConnection;
+import org.personnal.client.model.ConversationSummary;
+import org.personnal.client.model.Message;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Table conversation_summary : une ligne par (propriétaire, contact) avec le nombre d'éléments non lus
+ * et le dernier élément échangé. Elle est tenue à jour dans la transaction même des insertions
+ * et des marquages comme lus, ce qui évite de compter les messages à chaque affichage de la liste des contacts.
+ */
+public class ConversationSummaryDAO implements IConversationSummaryDAO {
+
+    // Longueur conservée pour l'aperçu du dernier message
+    private static final int PREVIEW_LENGTH = 100;
+
+    static final String UPSERT_SQL =
+            "INSERT INTO conversation_summary (owner, contact, unread_count, last_preview, last_timestamp) " +
+            "VALUES (?, ?, ?, ?, ?) " +
+            "ON CONFLICT(owner, contact) DO UPDATE SET " +
+            "unread_count = unread_count + excluded.unread_count, " +
+            "last_preview = CASE WHEN excluded.last_timestamp >= IFNULL(last_timestamp, '') " +
+            "THEN excluded.last_preview ELSE last_preview END, " +
+            "last_timestamp = MAX(IFNULL(last_timestamp, ''), excluded.last_timestamp)";
+
+    private static final String MARK_READ_SQL =
+            "UPDATE conversation_summary SET unread_count = MAX(0, unread_count - ?) WHERE owner = ? AND contact = ?";
+
+    // Résumés recalculés à partir des messages et des fichiers, éventuellement d'une seule conversation
+    private static String rebuildSql(String filter) {
+        return "INSERT INTO conversation_summary (owner, contact, unread_count, last_preview, last_timestamp) " +
+               "SELECT owner, contact, SUM(unread), preview, MAX(timestamp) FROM (" +
+               "SELECT sender AS owner, receiver AS contact, 0 AS unread, " +
+               "substr(content, 1, " + PREVIEW_LENGTH + ") AS preview, timestamp FROM messages" + filter +
+               " UNION ALL SELECT receiver, sender, read = 0, substr(content, 1, " + PREVIEW_LENGTH + "), timestamp " +
+               "FROM messages" + filter +
+               " UNION ALL SELECT sender, receiver, 0, 'Fichier: ' || filename, timestamp FROM files" + filter +
+               " UNION ALL SELECT receiver, sender, read = 0, 'Fichier: ' || filename, timestamp FROM files" + filter +
+               ") GROUP BY owner, contact";
+    }
+
+    private static final String REBUILD_ALL_SQL = rebuildSql("");
+    private static final String REBUILD_CONVERSATION_SQL = rebuildSql(" WHERE conversation_key = ?");
+
+    private final MessageWriteQueue writeQueue = MessageWriteQueue.getInstance();
+
+    @Override
+    public Map<String, ConversationSummary> getAllConversationSummaries() {
+        String currentUser = System.getProperty("current.user");
+        return writeQueue.readConsistent(() -> {
+            Map<String, ConversationSummary> summaries = loadCommittedSummaries(currentUser);
+            // Les messages encore en file d'écriture sont plus récents que ceux de la base
+            for (Message pending : writeQueue.pendingInvolving(currentUser)) {
+                boolean received = currentUser.equals(pending.getReceiver());
+                String contact = received ? pending.getSender() : pending.getReceiver();
+                ConversationSummary previous = summaries.get(contact);
+                int unread = (previous != null ? previous.getUnreadCount() : 0)
+                        + (received && !pending.isRead() ? 1 : 0);
+                summaries.put(contact, new ConversationSummary(
+                        contact, unread, preview(pending.getContent()), pending.getTimestamp()));
+            }
+            return summaries;
+        });
+    }
+
+    private Map<String, ConversationSummary> loadCommittedSummaries(String currentUser) {
+        Map<String, ConversationSummary> summaries = new HashMap<>();
+
+        try (Connection conn = DatabaseConnection.getReadConnection();
+             PreparedStatement stmt = conn.prepareStatement(
+                     "SELECT contact, unread_count, last_preview, last_timestamp " +
+                     "FROM conversation_summary WHERE owner = ?")) {
+
+            stmt.setString(1, currentUser);
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    String contact = rs.getString("contact");
+                    summaries.put(contact, new ConversationSummary(
+                            contact,
+                            rs.getInt("unread_count"),
+                            rs.getString("last_preview"),
+                            parseTimestamp(rs.getString("last_timestamp"))));
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("Erreur lors de la récupération des résumés de conversation: " + e.getMessage());
+            e.printStackTrace();
+        }
+
+        return summaries;
+    }
+
+    /**
+     * Ajoute au lot de {@link #UPSERT_SQL} un élément échangé : une ligne pour chacun des deux participants,
+     * le non lu n'étant compté que chez le destinataire
+     */
+    static void addToBatch(PreparedStatement upsert, String sender, String receiver, String preview,
+                           String timestamp, boolean read) throws SQLException {
+        bindUpsert(upsert, sender, receiver, 0, preview, timestamp);
+        upsert.addBatch();
+        bindUpsert(upsert, receiver, sender, read ? 0 : 1, preview, timestamp);
+        upsert.addBatch();
+    }
+
+    private static void bindUpsert(PreparedStatement upsert, String owner, String contact, int unread,
+                                   String preview, String timestamp) throws SQLException {
+        upsert.setString(1, owner);
+        upsert.setString(2, contact);
+        upsert.setInt(3, unread);
+        upsert.setString(4, preview(preview));
+        upsert.setString(5, timestamp);
+    }
+
+    /**
+     * Retire des non lus du destinataire les éléments qui viennent d'être marqués comme lus.
+     * À appeler dans la transaction du marquage.
+     */
+    static void markRead(Connection conn, String sender, String receiver, int count) throws SQLException {
+        if (count <= 0) {
+            return;
+        }
+        try (PreparedStatement stmt = conn.prepareStatement(MARK_READ_SQL)) {
+            stmt.setInt(1, count);
+            stmt.setString(2, receiver);
+            stmt.setString(3, sender);
+            stmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Recalcule tous les résumés. Utilisé par la migration et après une suppression en masse.
+     */
+    public static void rebuild(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("DELETE FROM conversation_summary");
+            stmt.execute(REBUILD_ALL_SQL);
+        }
+    }
+
+    /**
+     * Recalcule les résumés d'une conversation, pour ses deux participants. Utilisé après une suppression.
+     */
+    static void rebuild(Connection conn, String user1, String user2) throws SQLException {
+        try (PreparedStatement delete = conn.prepareStatement(
+                "DELETE FROM conversation_summary WHERE (owner = ? AND contact = ?) OR (owner = ? AND contact = ?)");
+             PreparedStatement insert = conn.prepareStatement(REBUILD_CONVERSATION_SQL)) {
+            delete.setString(1, user1);
+            delete.setString(2, user2);
+            delete.setString(3, user2);
+            delete.setString(4, user1);
+            delete.executeUpdate();
+
+            String conversationKey = ConversationKey.of(user1, user2);
+            for (int i = 1; i <= 4; i++) {
+                insert.setString(i, conversationKey);
+            }
+            insert.executeUpdate();
+        }
+    }
+
+    private static String preview(String content) {
+        if (content == null) {
+            return "";
+        }
+        return content.length() > PREVIEW_LENGTH ? content.substring(0, PREVIEW_LENGTH) : content;
+    }
+
+    private static LocalDateTime parseTimestamp(String timestampStr) {
+        if (timestampStr != null && !timestampStr.isEmpty()) {
+            try {
+                return LocalDateTime.parse(timestampStr, DateTimeFormatter.ISO_LOCAL_DATE_TIME);
+            } catch (Exception e) {
+                return null;
+            }
+        }
+        return null;
+    }
+}
@@ -1,5 +1,7 @@
 package org.personnal.client.database.DAO;
 
+import org.personnal.client.cache.BoundedCache;
+import org.personnal.client.database.ConversationKey;
 import org.personnal.client.database.DatabaseConnection;
 import org.personnal.client.model.FileData;
 
@@ -8,45 +10,60 @@ import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
-import java.util.Map;
 
 public class FileDAO implements IFileDAO {
 
-    // Cache pour les résultats fréquemment consultés
-    private final Map<String, CachedFileList> fileCache = new ConcurrentHashMap<>();
-
-    // Délai d'expiration du cache en millisecondes (10 secondes)
+    // Délai d'expiration du cache en millisecondes (10 secondes) et nombre de conversations conservées
     private static final long CACHE_VALIDITY_MS = 10000;
+    private static final int CACHE_MAX_CONVERSATIONS = 32;
+
+    // Cache pour les résultats fréquemment consultés
+    private final BoundedCache<String, List<FileData>> fileCache =
+            new BoundedCache<>("fichiers", CACHE_MAX_CONVERSATIONS, CACHE_VALIDITY_MS);
 
     @Override
     public void saveFile(FileData file) {
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(
-                     "INSERT INTO files (sender, receiver, filename, filepath, timestamp, read) VALUES (?, ?, ?, ?, ?, ?)",
-                     Statement.RETURN_GENERATED_KEYS)) {
-
-            stmt.setString(1, file.getSender());
-            stmt.setString(2, file.getReceiver());
-            stmt.setString(3, file.getFilename());
-            stmt.setString(4, file.getFilepath());
-
-            // Formatage de la date
-            String timestamp = file.getTimestamp() != null
-                    ? file.getTimestamp().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME)
-                    : LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME);
-            stmt.setString(5, timestamp);
-
-            stmt.setBoolean(6, file.isRead());
-
-            stmt.executeUpdate();
-
-            // Récupérer l'ID généré
-            try (ResultSet generatedKeys = stmt.getGeneratedKeys()) {
-                if (generatedKeys.next()) {
-                    file.setId(generatedKeys.getInt(1));
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement stmt = conn.prepareStatement(
+                         "INSERT INTO files (sender, receiver, filename, filepath, timestamp, read, conversation_key) VALUES (?, ?, ?, ?, ?, ?, ?)",
+                         Statement.RETURN_GENERATED_KEYS);
+                 PreparedStatement summary = conn.prepareStatement(ConversationSummaryDAO.UPSERT_SQL)) {
+
+                stmt.setString(1, file.getSender());
+                stmt.setString(2, file.getReceiver());
+                stmt.setString(3, file.getFilename());
+                stmt.setString(4, file.getFilepath());
+
+                // Formatage de la date
+                String timestamp = file.getTimestamp() != null
+                        ? file.getTimestamp().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME)
+                        : LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME);
+                stmt.setString(5, timestamp);
+
+                stmt.setBoolean(6, file.isRead());
+                stmt.setString(7, ConversationKey.of(file.getSender(), file.getReceiver()));
+
+                stmt.executeUpdate();
+
+                // Récupérer l'ID généré
+                try (ResultSet generatedKeys = stmt.getGeneratedKeys()) {
+                    if (generatedKeys.next()) {
+                        file.setId(generatedKeys.getInt(1));
+                    }
                 }
+
+                // Résumés des conversations mis à jour dans la même transaction
+                ConversationSummaryDAO.addToBatch(summary, file.getSender(), file.getReceiver(),
+                        "Fichier: " + file.getFilename(), timestamp, file.isRead());
+                summary.executeBatch();
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
             }
 
             // Invalider le cache pour ces utilisateurs
@@ -65,24 +82,20 @@ public class FileDAO implements IFileDAO {
         String currentUser = System.getProperty("current.user");
         String cacheKey = getCacheKey(currentUser, username);
 
-        CachedFileList cachedResult = fileCache.get(cacheKey);
-        if (cachedResult != null && !cachedResult.isExpired()) {
-            return new ArrayList<>(cachedResult.getFiles());
+        List<FileData> cachedResult = fileCache.get(cacheKey);
+        if (cachedResult != null) {
+            return new ArrayList<>(cachedResult);
         }
 
         List<FileData> files = new ArrayList<>();
 
-        // Correction de la requête SQL pour récupérer les fichiers échangés entre l'utilisateur courant et le contact
-        String sql = "SELECT * FROM files WHERE (sender = ? AND receiver = ?) OR (sender = ? AND receiver = ?) ORDER BY timestamp ASC";
+        // Fichiers échangés avec le contact, lus dans l'ordre de l'index (conversation_key, timestamp, id)
+        String sql = "SELECT * FROM files WHERE conversation_key = ? ORDER BY timestamp ASC, id ASC";
 
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Connection conn = DatabaseConnection.getReadConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
 
-            // Paramètres pour récupérer les fichiers échangés avec le contact spécifié
-            stmt.setString(1, username);
-            stmt.setString(2, currentUser);
-            stmt.setString(3, currentUser);
-            stmt.setString(4, username);
+            stmt.setString(1, cacheKey);
 
             try (ResultSet rs = stmt.executeQuery()) {
                 while (rs.next()) {
@@ -92,7 +105,7 @@ public class FileDAO implements IFileDAO {
             }
 
             // Mettre en cache le résultat
-            fileCache.put(cacheKey, new CachedFileList(files, System.currentTimeMillis() + CACHE_VALIDITY_MS));
+            fileCache.put(cacheKey, new ArrayList<>(files));
 
             System.out.println("Nombre de fichiers récupérés avec " + username + ": " + files.size());
         } catch (SQLException e) {
@@ -109,7 +122,7 @@ public class FileDAO implements IFileDAO {
     public FileData getFileById(int id) {
         String sql = "SELECT * FROM files WHERE id = ?";
 
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Connection conn = DatabaseConnection.getReadConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
 
             stmt.setInt(1, id);
@@ -128,14 +141,25 @@ public class FileDAO implements IFileDAO {
 
     @Override
     public void deleteFileById(int id) {
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement("DELETE FROM files WHERE id = ?")) {
+        // Récupérer d'abord le fichier pour invalider le cache
+        FileData file = getFileById(id);
 
-            // Récupérer d'abord le fichier pour invalider le cache
-            FileData file = getFileById(id);
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement stmt = conn.prepareStatement("DELETE FROM files WHERE id = ?")) {
+                stmt.setInt(1, id);
+                stmt.executeUpdate();
 
-            stmt.setInt(1, id);
-            stmt.executeUpdate();
+                if (file != null) {
+                    ConversationSummaryDAO.rebuild(conn, file.getSender(), file.getReceiver());
+                }
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
 
             // Invalider le cache si le fichier a été trouvé
             if (file != null) {
@@ -155,13 +179,25 @@ public class FileDAO implements IFileDAO {
      * @param receiver Le destinataire des fichiers
      */
     public void markFilesAsRead(String sender, String receiver) {
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(
-                     "UPDATE files SET read = 1 WHERE sender = ? AND receiver = ? AND read = 0")) {
-
-            stmt.setString(1, sender);
-            stmt.setString(2, receiver);
-            int rowsUpdated = stmt.executeUpdate();
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            int rowsUpdated;
+            try (PreparedStatement stmt = conn.prepareStatement(
+                    "UPDATE files SET read = 1 WHERE sender = ? AND receiver = ? AND read = 0")) {
+
+                stmt.setString(1, sender);
+                stmt.setString(2, receiver);
+                rowsUpdated = stmt.executeUpdate();
+
+                // Même transaction : le résumé de la conversation reste exact
+                ConversationSummaryDAO.markRead(conn, sender, receiver, rowsUpdated);
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
 
             if (rowsUpdated > 0) {
                 // Invalider le cache
@@ -181,7 +217,7 @@ public class FileDAO implements IFileDAO {
         String currentUser = System.getProperty("current.user");
         boolean hasUnread = false;
 
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Connection conn = DatabaseConnection.getReadConnection();
              PreparedStatement stmt = conn.prepareStatement(
                      "SELECT COUNT(*) FROM files WHERE sender = ? AND receiver = ? AND read = 0")) {
 
@@ -208,15 +244,27 @@ public class FileDAO implements IFileDAO {
         String sql = "DELETE FROM files WHERE timestamp < ?";
         int deletedCount = 0;
 
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                stmt.setString(1, olderThan.format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
+                deletedCount = stmt.executeUpdate();
 
-            stmt.setString(1, olderThan.format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
-            deletedCount = stmt.executeUpdate();
+                // Suppression massive : recalculer tous les résumés
+                if (deletedCount > 0) {
+                    ConversationSummaryDAO.rebuild(conn);
+                }
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
 
             // Vider tout le cache après une suppression massive
             if (deletedCount > 0) {
-                fileCache.clear();
+                fileCache.invalidateAll();
             }
         } catch (SQLException e) {
             System.err.println("Erreur lors de la suppression des anciens fichiers: " + e.getMessage());
@@ -260,51 +308,21 @@ public class FileDAO implements IFileDAO {
      */
     private void invalidateCache(String user1, String user2) {
         String cacheKey = getCacheKey(user1, user2);
-        fileCache.remove(cacheKey);
+        fileCache.invalidate(cacheKey);
     }
 
     /**
      * Obtient la clé de cache pour une conversation entre deux utilisateurs
      */
     private String getCacheKey(String user1, String user2) {
-        // Ordonner alphabétiquement pour avoir la même clé quelle que soit la direction
-        if (user1.compareTo(user2) < 0) {
-            return user1 + ":" + user2;
-        } else {
-            return user2 + ":" + user1;
-        }
+        // Même clé que la colonne conversation_key
+        return ConversationKey.of(user1, user2);
     }
 
     /**
      * Nettoie les entrées expirées du cache
      */
     public void cleanExpiredCache() {
-        long now = System.currentTimeMillis();
-        fileCache.entrySet().removeIf(entry -> entry.getValue().isExpired(now));
-    }
-
-    /**
-     * Classe interne pour stocker les fichiers en cache avec une date d'expiration
-     */
-    private static class CachedFileList {
-        private final List<FileData> files;
-        private final long expiryTime;
-
-        public CachedFileList(List<FileData> files, long expiryTime) {
-            this.files = new ArrayList<>(files);
-            this.expiryTime = expiryTime;
-        }
-
-        public List<FileData> getFiles() {
-            return files;
-        }
-
-        public boolean isExpired() {
-            return System.currentTimeMillis() > expiryTime;
-        }
-
-        public boolean isExpired(long now) {
-            return now > expiryTime;
-        }
+        fileCache.cleanUp();
     }
 }
\ No newline at end of file
@@ -0,0 +1,14 @@
+package org.personnal.client.database.DAO;
+
+import org.personnal.client.model.ConversationSummary;
+
+import java.util.Map;
+
+public interface IConversationSummaryDAO {
+
+    /**
+     * Résumés de toutes les conversations de l'utilisateur courant, en une seule lecture
+     * @return Les résumés indexés par contact
+     */
+    Map<String, ConversationSummary> getAllConversationSummaries();
+}
@@ -0,0 +1,15 @@
+package org.personnal.client.database.DAO;
+
+import org.personnal.client.model.TimelineItem;
+
+import java.util.List;
+
+public interface ITimelineDAO {
+
+    /**
+     * Messages et fichiers échangés avec un contact qui précèdent le curseur, du plus ancien au plus récent
+     * @param cursor Plus ancien élément déjà chargé, null pour la page la plus récente
+     * @param limit Nombre maximal d'éléments
+     */
+    List<TimelineItem> getTimelineBefore(String contact, TimelineItem cursor, int limit);
+}
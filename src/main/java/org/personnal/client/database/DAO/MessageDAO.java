@@ -1,5 +1,6 @@
 package org.personnal.client.database.DAO;
 
+import org.personnal.client.database.ConversationKey;
 import org.personnal.client.database.DatabaseConnection;
 import org.personnal.client.model.Message;
 
@@ -7,105 +8,80 @@ import java.sql.*;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 
 public class MessageDAO implements IMessageDAO {
-    // Cache des messages récents pour éviter des requêtes répétées
-    private final Map<String, CachedMessages> messageCache = new ConcurrentHashMap<>();
+    static final String INSERT_SQL =
+            "INSERT INTO messages (sender, receiver, content, timestamp, read, conversation_key) VALUES (?, ?, ?, ?, ?, ?)";
 
-    // Délai de validité du cache (5 secondes)
-    private static final long CACHE_VALIDITY_MS = 5000;
+    private final MessageWriteQueue writeQueue = MessageWriteQueue.getInstance();
 
+    /**
+     * Met le message en file d'écriture : il est enregistré avec les suivants dans une même transaction
+     */
     @Override
     public void saveMessage(Message msg) {
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(
-                     "INSERT INTO messages (sender, receiver, content, timestamp, read) VALUES (?, ?, ?, ?, ?)")) {
-
-            stmt.setString(1, msg.getSender());
-            stmt.setString(2, msg.getReceiver());
-            stmt.setString(3, msg.getContent());
+        if (msg.getTimestamp() == null) {
+            msg.setTimestamp(LocalDateTime.now());
+        }
+        writeQueue.enqueue(msg);
+    }
 
-            // Formatage de la date
-            String timestamp = msg.getTimestamp() != null
-                    ? msg.getTimestamp().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME)
-                    : LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME);
-            stmt.setString(4, timestamp);
+    /**
+     * Lie les paramètres de {@link #INSERT_SQL}
+     */
+    static void bindInsert(PreparedStatement stmt, Message msg) throws SQLException {
+        stmt.setString(1, msg.getSender());
+        stmt.setString(2, msg.getReceiver());
+        stmt.setString(3, msg.getContent());
 
-            stmt.setBoolean(5, msg.isRead());
+        stmt.setString(4, formatTimestamp(msg));
 
-            stmt.executeUpdate();
+        stmt.setBoolean(5, msg.isRead());
+        stmt.setString(6, ConversationKey.of(msg.getSender(), msg.getReceiver()));
+    }
 
-            // Invalider le cache pour cette conversation
-            String cacheKey = getCacheKey(msg.getSender(), msg.getReceiver());
-            messageCache.remove(cacheKey);
-            cacheKey = getCacheKey(msg.getReceiver(), msg.getSender());
-            messageCache.remove(cacheKey);
-        } catch (SQLException e) {
-            System.err.println("Erreur lors de la sauvegarde du message : " + e.getMessage());
-            e.printStackTrace();
-        }
+    /**
+     * Horodatage tel qu'enregistré dans la base
+     */
+    static String formatTimestamp(Message msg) {
+        // Formatage de la date
+        return msg.getTimestamp() != null
+                ? msg.getTimestamp().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME)
+                : LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME);
     }
 
     @Override
     public List<Message> getMessagesWith(String username) {
-        // Vérifier le cache d'abord
         String currentUser = System.getProperty("current.user");
-        String cacheKey = getCacheKey(currentUser, username);
-
-        CachedMessages cachedResult = messageCache.get(cacheKey);
-        if (cachedResult != null && !cachedResult.isExpired()) {
-            return new ArrayList<>(cachedResult.getMessages());
-        }
+        return writeQueue.readConsistent(() -> {
+            List<Message> messages = loadCommittedMessages(currentUser, username);
+            // Ajouter les messages encore en file d'écriture
+            messages.addAll(writeQueue.pendingBetween(currentUser, username));
+            return messages;
+        });
+    }
 
-        // Sinon, exécuter la requête
+    /**
+     * Messages déjà enregistrés dans la base
+     */
+    private List<Message> loadCommittedMessages(String currentUser, String username) {
         List<Message> messages = new ArrayList<>();
 
-        // Requête optimisée avec index sur sender et receiver
-        String sql = "SELECT * FROM messages WHERE " +
-                "((sender = ? AND receiver = ?) OR (sender = ? AND receiver = ?)) " +
-                "ORDER BY timestamp ASC";
+        // Parcours de l'index (conversation_key, timestamp, id), déjà dans l'ordre : pas de tri
+        String sql = "SELECT * FROM messages WHERE conversation_key = ? ORDER BY timestamp ASC, id ASC";
 
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Connection conn = DatabaseConnection.getReadConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
 
-            stmt.setString(1, username);
-            stmt.setString(2, currentUser);
-            stmt.setString(3, currentUser);
-            stmt.setString(4, username);
+            stmt.setString(1, ConversationKey.of(currentUser, username));
 
             try (ResultSet rs = stmt.executeQuery()) {
                 while (rs.next()) {
-                    Message msg = new Message();
-                    msg.setIdMessage(rs.getInt("id"));
-                    msg.setSender(rs.getString("sender"));
-                    msg.setReceiver(rs.getString("receiver"));
-                    msg.setContent(rs.getString("content"));
-
-                    // Conversion de la chaîne timestamp en LocalDateTime
-                    String timestampStr = rs.getString("timestamp");
-                    if (timestampStr != null && !timestampStr.isEmpty()) {
-                        try {
-                            LocalDateTime timestamp = LocalDateTime.parse(timestampStr, DateTimeFormatter.ISO_LOCAL_DATE_TIME);
-                            msg.setTimestamp(timestamp);
-                        } catch (Exception e) {
-                            msg.setTimestamp(LocalDateTime.now());
-                        }
-                    } else {
-                        msg.setTimestamp(LocalDateTime.now());
-                    }
-
-                    msg.setRead(rs.getBoolean("read"));
-                    messages.add(msg);
+                    messages.add(mapResultSetToMessage(rs));
                 }
             }
 
-            // Mettre en cache le résultat
-            messageCache.put(cacheKey, new CachedMessages(messages, System.currentTimeMillis() + CACHE_VALIDITY_MS));
-
         } catch (SQLException e) {
             System.err.println("Erreur lors de la récupération des messages: " + e.getMessage());
             e.printStackTrace();
@@ -114,16 +90,65 @@ public class MessageDAO implements IMessageDAO {
         return messages;
     }
 
+    /**
+     * Mappe un ResultSet à un objet Message
+     */
+    private Message mapResultSetToMessage(ResultSet rs) throws SQLException {
+        Message msg = new Message();
+        msg.setIdMessage(rs.getInt("id"));
+        msg.setSender(rs.getString("sender"));
+        msg.setReceiver(rs.getString("receiver"));
+        msg.setContent(rs.getString("content"));
+
+        // Conversion de la chaîne timestamp en LocalDateTime
+        String timestampStr = rs.getString("timestamp");
+        if (timestampStr != null && !timestampStr.isEmpty()) {
+            try {
+                LocalDateTime timestamp = LocalDateTime.parse(timestampStr, DateTimeFormatter.ISO_LOCAL_DATE_TIME);
+                msg.setTimestamp(timestamp);
+            } catch (Exception e) {
+                msg.setTimestamp(LocalDateTime.now());
+            }
+        } else {
+            msg.setTimestamp(LocalDateTime.now());
+        }
+
+        msg.setRead(rs.getBoolean("read"));
+        return msg;
+    }
+
     @Override
     public void deleteMessageById(int id) {
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement("DELETE FROM messages WHERE id = ?")) {
-
-            stmt.setInt(1, id);
-            stmt.executeUpdate();
+        String sender = null;
+        String receiver = null;
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                // Participants de la conversation, pour recalculer son résumé
+                try (PreparedStatement select = conn.prepareStatement("SELECT sender, receiver FROM messages WHERE id = ?")) {
+                    select.setInt(1, id);
+                    try (ResultSet rs = select.executeQuery()) {
+                        if (rs.next()) {
+                            sender = rs.getString("sender");
+                            receiver = rs.getString("receiver");
+                        }
+                    }
+                }
 
-            // Invalider tous les caches car nous ne savons pas quelle conversation est affectée
-            messageCache.clear();
+                try (PreparedStatement stmt = conn.prepareStatement("DELETE FROM messages WHERE id = ?")) {
+                    stmt.setInt(1, id);
+                    stmt.executeUpdate();
+                }
+                if (sender != null) {
+                    ConversationSummaryDAO.rebuild(conn, sender, receiver);
+                }
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
         } catch (SQLException e) {
             System.err.println("Erreur lors de la suppression du message: " + e.getMessage());
             e.printStackTrace();
@@ -137,18 +162,25 @@ public class MessageDAO implements IMessageDAO {
      */
     @Override
     public void markMessagesAsRead(String sender, String receiver) {
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(
-                     "UPDATE messages SET read = 1 WHERE sender = ? AND receiver = ? AND read = 0")) {
-
-            stmt.setString(1, sender);
-            stmt.setString(2, receiver);
-            int rowsUpdated = stmt.executeUpdate();
-
-            if (rowsUpdated > 0) {
-                // Invalider le cache pour cette conversation
-                String cacheKey = getCacheKey(sender, receiver);
-                messageCache.remove(cacheKey);
+        writeQueue.markPendingAsRead(sender, receiver);
+
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement stmt = conn.prepareStatement(
+                    "UPDATE messages SET read = 1 WHERE sender = ? AND receiver = ? AND read = 0")) {
+
+                stmt.setString(1, sender);
+                stmt.setString(2, receiver);
+                int rowsUpdated = stmt.executeUpdate();
+
+                // Même transaction : le résumé de la conversation reste exact
+                ConversationSummaryDAO.markRead(conn, sender, receiver, rowsUpdated);
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
             }
         } catch (SQLException e) {
             System.err.println("Erreur lors du marquage des messages comme lus: " + e.getMessage());
@@ -163,10 +195,15 @@ public class MessageDAO implements IMessageDAO {
      */
     @Override
     public boolean hasUnreadMessagesFrom(String sender) {
-        boolean hasUnread = false;
         String currentUser = System.getProperty("current.user");
+        return writeQueue.readConsistent(() ->
+                writeQueue.hasPendingUnread(sender, currentUser) || hasCommittedUnreadFrom(sender, currentUser));
+    }
+
+    private boolean hasCommittedUnreadFrom(String sender, String currentUser) {
+        boolean hasUnread = false;
 
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Connection conn = DatabaseConnection.getReadConnection();
              PreparedStatement stmt = conn.prepareStatement(
                      "SELECT COUNT(*) FROM messages WHERE sender = ? AND receiver = ? AND read = 0")) {
 
@@ -185,37 +222,4 @@ public class MessageDAO implements IMessageDAO {
 
         return hasUnread;
     }
-
-    /**
-     * Obtient la clé de cache pour une conversation entre deux utilisateurs
-     */
-    private String getCacheKey(String user1, String user2) {
-        // Ordonner alphabétiquement pour avoir la même clé quelle que soit la direction
-        if (user1.compareTo(user2) < 0) {
-            return user1 + ":" + user2;
-        } else {
-            return user2 + ":" + user1;
-        }
-    }
-
-    /**
-     * Classe interne pour stocker les messages en cache avec une date d'expiration
-     */
-    private static class CachedMessages {
-        private final List<Message> messages;
-        private final long expiryTime;
-
-        public CachedMessages(List<Message> messages, long expiryTime) {
-            this.messages = new ArrayList<>(messages);
-            this.expiryTime = expiryTime;
-        }
-
-        public List<Message> getMessages() {
-            return messages;
-        }
-
-        public boolean isExpired() {
-            return System.currentTimeMillis() > expiryTime;
-        }
-    }
-}
\ No newline at end of file
+}
@@ -0,0 +1,372 @@
+package org.personnal.client.database.DAO;
+
+import org.personnal.client.database.DatabaseConnection;
+import org.personnal.client.model.Message;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Écriture différée des messages : les insertions sont mises en file et un seul thread
+ * les enregistre par lots, dans une transaction toutes les {@value #FLUSH_INTERVAL_MS} ms
+ * ou tous les {@value #MAX_BATCH} messages.
+ * Les messages en attente restent visibles des lectures (voir {@link #readConsistent(Supplier)}).
+ * Un lot refusé par la base est réessayé avec un délai croissant, jusqu'à {@value #MAX_WRITE_ATTEMPTS}
+ * tentatives ; au-delà, ses messages sont signalés aux écouteurs d'échec.
+ */
+public class MessageWriteQueue {
+    private static final int CAPACITY = 10000;
+    private static final int MAX_BATCH = 256;
+    private static final long FLUSH_INTERVAL_MS = 50;
+    private static final long SHUTDOWN_TIMEOUT_MS = 5000;
+    private static final int MAX_WRITE_ATTEMPTS = 5;
+    private static final long RETRY_BASE_DELAY_MS = 100;
+
+    private static MessageWriteQueue instance;
+
+    private final BlockingQueue<Message> queue = new ArrayBlockingQueue<>(CAPACITY);
+    // Lot en cours d'écriture, encore invisible dans la base
+    private final List<Message> inFlight = new ArrayList<>();
+    // Protège le passage file -> lot et les drapeaux de lecture des messages en attente
+    private final Object pendingLock = new Object();
+    // Une lecture (base + attente) ne doit pas chevaucher la validation d'un lot
+    private final ReadWriteLock visibilityLock = new ReentrantReadWriteLock();
+    // Appelés après chaque validation, sous le verrou de visibilité (mise à jour des caches)
+    private final List<Consumer<List<Message>>> commitListeners = new CopyOnWriteArrayList<>();
+    // Appelés avec les messages abandonnés après la dernière tentative d'écriture
+    private final List<Consumer<List<Message>>> failureListeners = new CopyOnWriteArrayList<>();
+
+    private final Thread writerThread;
+    private volatile boolean running = true;
+
+    private MessageWriteQueue() {
+        writerThread = new Thread(this::writeLoop, "MessageWriteQueue-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    public static synchronized MessageWriteQueue getInstance() {
+        if (instance == null) {
+            instance = new MessageWriteQueue();
+        }
+        return instance;
+    }
+
+    /**
+     * Met un message en file d'écriture. Bloque si la file est pleine.
+     */
+    public void enqueue(Message message) {
+        if (!running) {
+            throw new IllegalStateException("File d'écriture arrêtée");
+        }
+        try {
+            queue.put(message);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Mise en file interrompue", e);
+        }
+        synchronized (pendingLock) {
+            pendingLock.notifyAll();
+        }
+    }
+
+    public void addCommitListener(Consumer<List<Message>> listener) {
+        commitListeners.add(listener);
+    }
+
+    public void removeCommitListener(Consumer<List<Message>> listener) {
+        commitListeners.remove(listener);
+    }
+
+    /**
+     * Écouteur prévenu, depuis le thread d'écriture, des messages qui n'ont pas pu être enregistrés
+     */
+    public void addFailureListener(Consumer<List<Message>> listener) {
+        failureListeners.add(listener);
+    }
+
+    public void removeFailureListener(Consumer<List<Message>> listener) {
+        failureListeners.remove(listener);
+    }
+
+    /**
+     * Exécute une lecture pendant laquelle aucun lot n'est validé : un message est vu
+     * soit dans la base, soit dans {@link #pendingBetween(String, String)}, jamais dans les deux
+     */
+    public <T> T readConsistent(Supplier<T> read) {
+        visibilityLock.readLock().lock();
+        try {
+            return read.get();
+        } finally {
+            visibilityLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Messages pas encore enregistrés échangés entre deux utilisateurs, dans l'ordre d'arrivée
+     */
+    public List<Message> pendingBetween(String user1, String user2) {
+        List<Message> result = new ArrayList<>();
+        synchronized (pendingLock) {
+            for (Message message : inFlight) {
+                if (isBetween(message, user1, user2)) result.add(message);
+            }
+            for (Message message : queue) {
+                if (isBetween(message, user1, user2)) result.add(message);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Messages pas encore enregistrés envoyés ou reçus par un utilisateur, dans l'ordre d'arrivée
+     */
+    public List<Message> pendingInvolving(String user) {
+        List<Message> result = new ArrayList<>();
+        synchronized (pendingLock) {
+            for (Message message : inFlight) {
+                if (user.equals(message.getSender()) || user.equals(message.getReceiver())) result.add(message);
+            }
+            for (Message message : queue) {
+                if (user.equals(message.getSender()) || user.equals(message.getReceiver())) result.add(message);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Indique si un message non lu de l'expéditeur est encore en attente d'écriture
+     */
+    public boolean hasPendingUnread(String sender, String receiver) {
+        synchronized (pendingLock) {
+            for (Message message : inFlight) {
+                if (!message.isRead() && sender.equals(message.getSender()) && receiver.equals(message.getReceiver())) return true;
+            }
+            for (Message message : queue) {
+                if (!message.isRead() && sender.equals(message.getSender()) && receiver.equals(message.getReceiver())) return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Marque comme lus les messages en attente d'un expéditeur.
+     * Les messages déjà liés à la requête d'insertion sont couverts par l'UPDATE qui suit,
+     * exécuté après la validation du lot puisqu'il attend la connexion d'écriture.
+     */
+    public void markPendingAsRead(String sender, String receiver) {
+        synchronized (pendingLock) {
+            for (Message message : inFlight) {
+                if (sender.equals(message.getSender()) && receiver.equals(message.getReceiver())) message.setRead(true);
+            }
+            for (Message message : queue) {
+                if (sender.equals(message.getSender()) && receiver.equals(message.getReceiver())) message.setRead(true);
+            }
+        }
+    }
+
+    private void writeLoop() {
+        List<Message> batch = new ArrayList<>(MAX_BATCH);
+        while (true) {
+            synchronized (pendingLock) {
+                try {
+                    while (queue.isEmpty() && running) {
+                        pendingLock.wait();
+                    }
+                    // Laisser le lot se remplir pendant l'intervalle, sans dépasser la taille maximale
+                    long deadline = System.currentTimeMillis() + FLUSH_INTERVAL_MS;
+                    long remaining;
+                    while (running && queue.size() < MAX_BATCH
+                            && (remaining = deadline - System.currentTimeMillis()) > 0) {
+                        pendingLock.wait(remaining);
+                    }
+                } catch (InterruptedException e) {
+                    // Ne pas conserver l'interruption : elle ferait échouer l'écriture du dernier lot
+                    running = false;
+                }
+
+                if (queue.isEmpty() && !running) {
+                    return;
+                }
+                // Passage atomique de la file au lot : le message reste visible des lectures
+                queue.drainTo(batch, MAX_BATCH);
+                inFlight.addAll(batch);
+            }
+
+            writeWithRetry(batch);
+            batch.clear();
+        }
+    }
+
+    /**
+     * Écrit le lot, en le réessayant tant que la base le refuse. Le lot reste en tête des
+     * messages en attente pendant les nouvelles tentatives : aucun message plus récent n'est
+     * écrit avant lui et les lectures continuent de le voir.
+     */
+    private void writeWithRetry(List<Message> batch) {
+        SQLException lastError = null;
+        for (int attempt = 1; attempt <= MAX_WRITE_ATTEMPTS; attempt++) {
+            try {
+                writeBatch(batch);
+                return;
+            } catch (SQLException e) {
+                lastError = e;
+                System.err.println("Échec de l'enregistrement de " + batch.size() + " messages (tentative "
+                        + attempt + "/" + MAX_WRITE_ATTEMPTS + ") : " + e.getMessage());
+            }
+            if (attempt < MAX_WRITE_ATTEMPTS) {
+                pause(RETRY_BASE_DELAY_MS << (attempt - 1));
+            }
+        }
+
+        synchronized (pendingLock) {
+            inFlight.clear();
+        }
+        reportLost(new ArrayList<>(batch), lastError);
+    }
+
+    private void pause(long delayMs) {
+        try {
+            Thread.sleep(delayMs);
+        } catch (InterruptedException e) {
+            // Comme dans la boucle d'écriture : arrêter après ce lot, sans abandonner ses tentatives
+            running = false;
+        }
+    }
+
+    private void reportLost(List<Message> lost, SQLException cause) {
+        System.err.println("❌ " + lost.size() + " messages abandonnés après " + MAX_WRITE_ATTEMPTS
+                + " tentatives : " + (cause != null ? cause.getMessage() : "erreur inconnue"));
+        for (Message message : lost) {
+            System.err.println("   - " + message.getSender() + " -> " + message.getReceiver()
+                    + " (" + MessageDAO.formatTimestamp(message) + ")");
+        }
+        notifyListeners(failureListeners, lost);
+    }
+
+    /**
+     * Un écouteur en erreur ne doit ni empêcher les suivants ni arrêter le thread d'écriture
+     */
+    private static void notifyListeners(List<Consumer<List<Message>>> listeners, List<Message> messages) {
+        for (Consumer<List<Message>> listener : listeners) {
+            try {
+                listener.accept(messages);
+            } catch (RuntimeException e) {
+                System.err.println("Erreur dans un écouteur de la file d'écriture : " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Écrit le lot dans une transaction. Une erreur survenue après la validation n'est pas
+     * remontée : réessayer dupliquerait les messages.
+     */
+    private void writeBatch(List<Message> batch) throws SQLException {
+        boolean committed = false;
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                try (PreparedStatement stmt = conn.prepareStatement(MessageDAO.INSERT_SQL);
+                     PreparedStatement summary = conn.prepareStatement(ConversationSummaryDAO.UPSERT_SQL)) {
+                    synchronized (pendingLock) {
+                        // Lier sous le verrou : les drapeaux de lecture peuvent être modifiés en parallèle
+                        for (Message message : batch) {
+                            MessageDAO.bindInsert(stmt, message);
+                            stmt.addBatch();
+                            ConversationSummaryDAO.addToBatch(summary, message.getSender(), message.getReceiver(),
+                                    message.getContent(), MessageDAO.formatTimestamp(message), message.isRead());
+                        }
+                    }
+                    stmt.executeBatch();
+                    assignIds(conn, batch);
+                    // Résumés des conversations mis à jour dans la même transaction
+                    summary.executeBatch();
+                }
+
+                visibilityLock.writeLock().lock();
+                try {
+                    conn.commit();
+                    committed = true;
+                    synchronized (pendingLock) {
+                        inFlight.clear();
+                    }
+                    notifyListeners(commitListeners, batch);
+                } finally {
+                    visibilityLock.writeLock().unlock();
+                }
+            } catch (SQLException e) {
+                if (!committed) {
+                    conn.rollback();
+                }
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            if (!committed) {
+                throw e;
+            }
+            System.err.println("Erreur après l'enregistrement de " + batch.size() + " messages : " + e.getMessage());
+        }
+    }
+
+    /**
+     * Reporte sur les messages du lot les identifiants attribués par la base.
+     * Seule connexion d'écriture, dans une transaction : les identifiants du lot sont consécutifs.
+     */
+    private static void assignIds(Connection conn, List<Message> batch) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT last_insert_rowid()")) {
+            if (rs.next()) {
+                long firstId = rs.getLong(1) - batch.size() + 1;
+                for (int i = 0; i < batch.size(); i++) {
+                    batch.get(i).setIdMessage((int) (firstId + i));
+                }
+            }
+        }
+    }
+
+    private static boolean isBetween(Message message, String user1, String user2) {
+        return (user1.equals(message.getSender()) && user2.equals(message.getReceiver()))
+                || (user2.equals(message.getSender()) && user1.equals(message.getReceiver()));
+    }
+
+    /**
+     * Enregistre les messages en attente puis arrête le thread d'écriture
+     */
+    public void shutdown() {
+        running = false;
+        synchronized (pendingLock) {
+            pendingLock.notifyAll();
+        }
+        try {
+            writerThread.join(SHUTDOWN_TIMEOUT_MS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (!queue.isEmpty()) {
+            System.err.println(queue.size() + " messages n'ont pas pu être enregistrés");
+        }
+    }
+
+    /**
+     * Vide la file si elle a été démarrée. Appelé à l'arrêt de l'application.
+     */
+    public static synchronized void shutdownIfStarted() {
+        if (instance != null) {
+            instance.shutdown();
+        }
+    }
+}
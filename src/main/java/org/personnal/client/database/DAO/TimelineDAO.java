@@ -0,0 +1,136 @@
+package org.personnal.client.database.DAO;
+
+import org.personnal.client.database.ConversationKey;
+import org.personnal.client.database.DatabaseConnection;
+import org.personnal.client.model.Message;
+import org.personnal.client.model.TimelineItem;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Timeline d'une conversation : messages et fichiers lus en une seule requête UNION ALL,
+ * déjà fusionnés et triés par la base. La colonne kind distingue les deux sources.
+ */
+public class TimelineDAO implements ITimelineDAO {
+
+    // Chaque branche lit au plus une page dans l'index (conversation_key, timestamp, id) :
+    // le tri final ne porte que sur deux pages, quelle que soit la taille de l'historique
+    private static final String NEWEST_SQL =
+            "SELECT * FROM (SELECT 0 AS kind, id, sender, receiver, content, NULL AS filepath, timestamp, read " +
+            "FROM messages WHERE conversation_key = ? ORDER BY timestamp DESC, id DESC LIMIT ?) " +
+            "UNION ALL " +
+            "SELECT * FROM (SELECT 1 AS kind, id, sender, receiver, filename AS content, filepath, timestamp, read " +
+            "FROM files WHERE conversation_key = ? ORDER BY timestamp DESC, id DESC LIMIT ?) " +
+            "ORDER BY timestamp DESC, kind DESC, id DESC LIMIT ?";
+
+    // Éléments strictement avant le curseur (timestamp, kind, id)
+    private static final String BEFORE_SQL =
+            "SELECT * FROM (SELECT 0 AS kind, id, sender, receiver, content, NULL AS filepath, timestamp, read " +
+            "FROM messages WHERE conversation_key = ? AND timestamp <= ? AND (timestamp < ? OR ? > 0 OR id < ?) " +
+            "ORDER BY timestamp DESC, id DESC LIMIT ?) " +
+            "UNION ALL " +
+            "SELECT * FROM (SELECT 1 AS kind, id, sender, receiver, filename AS content, filepath, timestamp, read " +
+            "FROM files WHERE conversation_key = ? AND timestamp <= ? AND (timestamp < ? OR (? = 1 AND id < ?)) " +
+            "ORDER BY timestamp DESC, id DESC LIMIT ?) " +
+            "ORDER BY timestamp DESC, kind DESC, id DESC LIMIT ?";
+
+    private final MessageWriteQueue writeQueue = MessageWriteQueue.getInstance();
+
+    @Override
+    public List<TimelineItem> getTimelineBefore(String contact, TimelineItem cursor, int limit) {
+        String currentUser = System.getProperty("current.user");
+        if (cursor == null) {
+            // Page la plus récente : y ajouter les messages encore en file d'écriture
+            return writeQueue.readConsistent(() -> {
+                List<TimelineItem> items = loadPage(currentUser, contact, null, limit);
+                for (Message pending : writeQueue.pendingBetween(currentUser, contact)) {
+                    items.add(TimelineItem.of(pending));
+                }
+                return items;
+            });
+        }
+        return loadPage(currentUser, contact, cursor, limit);
+    }
+
+    private List<TimelineItem> loadPage(String currentUser, String contact, TimelineItem cursor, int limit) {
+        List<TimelineItem> items = new ArrayList<>();
+        String conversationKey = ConversationKey.of(currentUser, contact);
+
+        try (Connection conn = DatabaseConnection.getReadConnection();
+             PreparedStatement stmt = conn.prepareStatement(cursor == null ? NEWEST_SQL : BEFORE_SQL)) {
+
+            if (cursor == null) {
+                stmt.setString(1, conversationKey);
+                stmt.setInt(2, limit);
+                stmt.setString(3, conversationKey);
+                stmt.setInt(4, limit);
+                stmt.setInt(5, limit);
+            } else {
+                String timestamp = formatTimestamp(cursor.getTimestamp());
+                int kind = cursor.getKind().ordinal();
+                int index = 1;
+                for (int branch = 0; branch < 2; branch++) {
+                    stmt.setString(index++, conversationKey);
+                    stmt.setString(index++, timestamp);
+                    stmt.setString(index++, timestamp);
+                    stmt.setInt(index++, kind);
+                    stmt.setInt(index++, cursor.getId());
+                    stmt.setInt(index++, limit);
+                }
+                stmt.setInt(index, limit);
+            }
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    items.add(mapResultSetToItem(rs));
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("Erreur lors de la récupération de la conversation: " + e.getMessage());
+            e.printStackTrace();
+        }
+
+        // La requête lit à rebours depuis le curseur
+        Collections.reverse(items);
+        return items;
+    }
+
+    /**
+     * Mappe une ligne de la timeline à un TimelineItem
+     */
+    private TimelineItem mapResultSetToItem(ResultSet rs) throws SQLException {
+        TimelineItem.Kind kind = rs.getInt("kind") == 0 ? TimelineItem.Kind.MESSAGE : TimelineItem.Kind.FILE;
+        return new TimelineItem(
+                kind,
+                rs.getInt("id"),
+                rs.getString("sender"),
+                rs.getString("receiver"),
+                rs.getString("content"),
+                rs.getString("filepath"),
+                parseTimestamp(rs.getString("timestamp")),
+                rs.getBoolean("read"));
+    }
+
+    private static LocalDateTime parseTimestamp(String timestampStr) {
+        if (timestampStr != null && !timestampStr.isEmpty()) {
+            try {
+                return LocalDateTime.parse(timestampStr, DateTimeFormatter.ISO_LOCAL_DATE_TIME);
+            } catch (Exception e) {
+                return LocalDateTime.now();
+            }
+        }
+        return LocalDateTime.now();
+    }
+
+    private static String formatTimestamp(LocalDateTime timestamp) {
+        return (timestamp != null ? timestamp : LocalDateTime.now()).format(DateTimeFormatter.ISO_LOCAL_DATE_TIME);
+    }
+}
@@ -48,7 +48,7 @@ public class UserDAO implements IUserDAO {
 
     @Override
     public User findById(int id) {
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Connection conn = DatabaseConnection.getReadConnection();
                 PreparedStatement stmt = conn.prepareStatement("SELECT * FROM users WHERE id=?")) {
             stmt.setInt(1, id);
             ResultSet rs = stmt.executeQuery();
@@ -64,7 +64,7 @@ public class UserDAO implements IUserDAO {
     @Override
     public List<User> findAll() {
         List<User> list = new ArrayList<>();
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Connection conn = DatabaseConnection.getReadConnection();
                 Statement stmt = conn.createStatement(); ResultSet rs = stmt.executeQuery("SELECT * FROM users")) {
             while (rs.next()) {
                 list.add(new User(rs.getInt("id"), rs.getString("username"), rs.getString("email")));
@@ -77,7 +77,7 @@ public class UserDAO implements IUserDAO {
 
     @Override
     public User findByUsername(String username) {
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Connection conn = DatabaseConnection.getReadConnection();
                 PreparedStatement stmt = conn.prepareStatement("SELECT * FROM users WHERE username=?")) {
             stmt.setString(1, username);
             ResultSet rs = stmt.executeQuery();
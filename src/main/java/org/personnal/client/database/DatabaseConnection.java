@@ -3,21 +3,221 @@ package org.personnal.client.database;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
 
+/**
+ * Pool de connexions SQLite ouvertes une seule fois, en mode WAL :
+ * une connexion d'écriture (SQLite n'accepte qu'un écrivain à la fois)
+ * et quelques connexions de lecture qui ne bloquent pas l'écriture.
+ * Les connexions remises par le pool retournent au pool quand on les ferme.
+ */
 public class DatabaseConnection {
     private static final String URL = "jdbc:sqlite:client_chat.db";
 
+    private static final int READER_COUNT = Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors()));
+    private static final long ACQUIRE_TIMEOUT_MS = 10000;
+
+    private static final ReentrantLock writerLock = new ReentrantLock();
+    private static Connection writer;
+    private static BlockingQueue<Connection> readers;
+    private static final List<Connection> allReaders = new ArrayList<>();
+    // Requêtes préparées conservées par connexion physique
+    private static final Map<Connection, StatementCache> statementCaches = new IdentityHashMap<>();
+    private static volatile boolean initialized = false;
+    private static volatile boolean closed = false;
+
+    /**
+     * Connexion d'écriture, réservée à l'appelant jusqu'à sa fermeture.
+     * Un même thread peut l'obtenir plusieurs fois (appels imbriqués).
+     */
     public static Connection getConnection() throws SQLException {
+        ensureInitialized();
+        try {
+            if (!writerLock.tryLock(ACQUIRE_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                throw new SQLException("Base de données occupée : connexion d'écriture indisponible");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Attente de la connexion interrompue", e);
+        }
+        if (closed) {
+            writerLock.unlock();
+            throw new SQLException("Base de données fermée");
+        }
+        return PooledConnection.wrap(writer, statementCaches.get(writer), DatabaseConnection::releaseWriter);
+    }
+
+    /**
+     * Connexion de lecture seule. Les lectures voient les données validées
+     * et ne sont pas bloquées par une écriture en cours.
+     * Sans connexion de lecture libre, l'écrivain sert aussitôt : attendre une lectrice pourrait bloquer
+     * un appelant qui en détient déjà (lectures imbriquées) ; seule l'attente de l'écrivain est bornée
+     * par {@link #ACQUIRE_TIMEOUT_MS}.
+     */
+    public static Connection getReadConnection() throws SQLException {
+        ensureInitialized();
+        Connection reader = readers.poll();
+        if (reader == null) {
+            // Toutes les connexions de lecture sont prises : utiliser l'écrivain
+            return getConnection();
+        }
+        if (closed) {
+            throw new SQLException("Base de données fermée");
+        }
+        return PooledConnection.wrap(reader, statementCaches.get(reader), DatabaseConnection::releaseReader);
+    }
+
+    private static synchronized void ensureInitialized() throws SQLException {
+        if (closed) {
+            throw new SQLException("Base de données fermée");
+        }
+        if (initialized) {
+            return;
+        }
+
         try {
             // Chargement du driver SQLite
             Class.forName("org.sqlite.JDBC");
-            return DriverManager.getConnection(URL);
         } catch (ClassNotFoundException e) {
             System.err.println("Driver SQLite non trouvé : " + e.getMessage());
             throw new SQLException("Driver SQLite non disponible");
+        }
+
+        try {
+            writer = DriverManager.getConnection(URL);
+            try (Statement stmt = writer.createStatement()) {
+                // Le mode WAL est persistant dans le fichier : il suffit de le demander à l'écrivain
+                stmt.execute("PRAGMA journal_mode=WAL");
+            }
+            applyPragmas(writer);
+            statementCaches.put(writer, new StatementCache(writer));
+
+            readers = new ArrayBlockingQueue<>(READER_COUNT);
+            for (int i = 0; i < READER_COUNT; i++) {
+                Connection reader = DriverManager.getConnection(URL);
+                applyPragmas(reader);
+                try (Statement stmt = reader.createStatement()) {
+                    stmt.execute("PRAGMA query_only=ON");
+                }
+                statementCaches.put(reader, new StatementCache(reader));
+                allReaders.add(reader);
+                readers.add(reader);
+            }
+            initialized = true;
         } catch (SQLException e) {
             System.err.println("Erreur de connexion à la base de données : " + e.getMessage());
+            closeQuietly(writer);
+            statementCaches.clear();
+            allReaders.forEach(DatabaseConnection::closeQuietly);
+            allReaders.clear();
             throw e;
         }
     }
+
+    private static void applyPragmas(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("PRAGMA synchronous=NORMAL");        // Suffisant en WAL, bien moins de fsync
+            stmt.execute("PRAGMA mmap_size=268435456");       // 256 Mo lus par projection mémoire
+            stmt.execute("PRAGMA cache_size=-8192");          // 8 Mo de cache de pages par connexion
+            stmt.execute("PRAGMA temp_store=MEMORY");
+            stmt.execute("PRAGMA busy_timeout=5000");
+        }
+    }
+
+    private static void releaseWriter(Connection conn) {
+        try {
+            // Ne pas laisser une transaction ouverte au prochain utilisateur
+            if (writerLock.getHoldCount() == 1 && !conn.getAutoCommit()) {
+                conn.rollback();
+                conn.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            System.err.println("Erreur lors de la libération de la connexion : " + e.getMessage());
+        } finally {
+            writerLock.unlock();
+        }
+    }
+
+    private static void releaseReader(Connection conn) {
+        try {
+            if (!conn.getAutoCommit()) {
+                conn.rollback();
+                conn.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            System.err.println("Erreur lors de la libération de la connexion : " + e.getMessage());
+        }
+        if (!closed) {
+            readers.offer(conn);
+        }
+    }
+
+    /**
+     * Ferme toutes les connexions. Appelé à l'arrêt de l'application.
+     */
+    public static synchronized void shutdown() {
+        if (!initialized || closed) {
+            closed = true;
+            return;
+        }
+        closed = true;
+
+        boolean locked = false;
+        try {
+            // Laisser l'écriture en cours se terminer
+            locked = writerLock.tryLock(ACQUIRE_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+            System.out.println("Cache de requêtes préparées : " + getStatementCacheHits() + " succès, "
+                    + getStatementCacheMisses() + " échecs");
+            try (Statement stmt = writer.createStatement()) {
+                // Reporter le journal WAL dans la base et mettre à jour les statistiques du planificateur
+                stmt.execute("PRAGMA wal_checkpoint(TRUNCATE)");
+                stmt.execute("PRAGMA optimize");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (SQLException e) {
+            System.err.println("Erreur lors de la fermeture de la base de données : " + e.getMessage());
+        } finally {
+            statementCaches.values().forEach(StatementCache::close);
+            statementCaches.clear();
+            allReaders.forEach(DatabaseConnection::closeQuietly);
+            allReaders.clear();
+            readers.clear();
+            closeQuietly(writer);
+            if (locked) {
+                writerLock.unlock();
+            }
+        }
+        System.out.println("Connexions à la base de données fermées");
+    }
+
+    /**
+     * Nombre de requêtes préparées servies par le cache
+     */
+    public static long getStatementCacheHits() {
+        return StatementCache.getHits();
+    }
+
+    /**
+     * Nombre de requêtes qui ont dû être compilées
+     */
+    public static long getStatementCacheMisses() {
+        return StatementCache.getMisses();
+    }
+
+    private static void closeQuietly(Connection conn) {
+        try {
+            if (conn != null) conn.close();
+        } catch (SQLException e) {
+            System.err.println("Erreur lors de la fermeture d'une connexion : " + e.getMessage());
+        }
+    }
 }
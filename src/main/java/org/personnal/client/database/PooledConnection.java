@@ -0,0 +1,79 @@
+package org.personnal.client.database;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.function.Consumer;
+
+/**
+ * Enveloppe d'une connexion du pool : close() rend la connexion au pool au lieu de la fermer.
+ * Les requêtes préparées passent par le cache de la connexion.
+ * Chaque emprunt a sa propre enveloppe, utilisable une seule fois.
+ */
+final class PooledConnection implements InvocationHandler {
+    private final Connection target;
+    private final StatementCache statementCache;
+    private final Consumer<Connection> release;
+    private boolean released;
+
+    private PooledConnection(Connection target, StatementCache statementCache, Consumer<Connection> release) {
+        this.target = target;
+        this.statementCache = statementCache;
+        this.release = release;
+    }
+
+    static Connection wrap(Connection target, StatementCache statementCache, Consumer<Connection> release) {
+        return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class},
+                new PooledConnection(target, statementCache, release));
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        switch (method.getName()) {
+            case "close":
+                if (!released) {
+                    released = true;
+                    release.accept(target);
+                }
+                return null;
+            case "isClosed":
+                return released || target.isClosed();
+            case "equals":
+                return proxy == args[0];
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "toString":
+                return "PooledConnection[" + target + "]";
+            default:
+                if (released) {
+                    throw new SQLException("Connexion déjà rendue au pool");
+                }
+                if (isCacheablePrepare(method, args)) {
+                    int autoGeneratedKeys = args.length == 2 ? (Integer) args[1] : Statement.NO_GENERATED_KEYS;
+                    return statementCache.prepare((String) args[0], autoGeneratedKeys);
+                }
+                try {
+                    return method.invoke(target, args);
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+        }
+    }
+
+    /**
+     * prepareStatement(String) et prepareStatement(String, int) passent par le cache
+     */
+    private static boolean isCacheablePrepare(Method method, Object[] args) {
+        if (!"prepareStatement".equals(method.getName()) || args == null) {
+            return false;
+        }
+        Class<?>[] types = method.getParameterTypes();
+        return (types.length == 1) || (types.length == 2 && types[1] == int.class);
+    }
+}
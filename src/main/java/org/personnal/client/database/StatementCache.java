@@ -0,0 +1,178 @@
+package org.personnal.client.database;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Requêtes préparées d'une connexion du pool, réutilisées d'un appel à l'autre.
+ * Indexées par texte SQL, avec éviction de la moins récemment utilisée.
+ * Fermer une requête remise par le cache la réinitialise et la rend au cache.
+ */
+final class StatementCache {
+    private static final int MAX_STATEMENTS = 64;
+
+    // Compteurs communs à toutes les connexions
+    private static final AtomicLong hits = new AtomicLong();
+    private static final AtomicLong misses = new AtomicLong();
+
+    private final Connection connection;
+    private final LinkedHashMap<String, CachedStatement> statements = new LinkedHashMap<>(16, 0.75f, true);
+
+    StatementCache(Connection connection) {
+        this.connection = connection;
+    }
+
+    /**
+     * Retourne une requête préparée, compilée une seule fois par connexion
+     */
+    synchronized PreparedStatement prepare(String sql, int autoGeneratedKeys) throws SQLException {
+        String key = autoGeneratedKeys == Statement.RETURN_GENERATED_KEYS ? "K:" + sql : sql;
+        CachedStatement cached = statements.get(key);
+
+        if (cached != null && cached.inUse) {
+            // Même requête déjà ouverte par un appel imbriqué : ne pas la partager
+            misses.incrementAndGet();
+            return connection.prepareStatement(sql, autoGeneratedKeys);
+        }
+
+        if (cached == null) {
+            misses.incrementAndGet();
+            cached = new CachedStatement(key, connection.prepareStatement(sql, autoGeneratedKeys));
+            statements.put(key, cached);
+            evictIfNeeded();
+        } else {
+            hits.incrementAndGet();
+        }
+
+        cached.inUse = true;
+        return cached.lease();
+    }
+
+    private void evictIfNeeded() {
+        Iterator<CachedStatement> it = statements.values().iterator();
+        while (statements.size() > MAX_STATEMENTS && it.hasNext()) {
+            CachedStatement eldest = it.next();
+            it.remove();
+            if (eldest.inUse) {
+                eldest.evicted = true; // Fermée quand l'appelant la rendra
+            } else {
+                eldest.closeQuietly();
+            }
+        }
+    }
+
+    private synchronized void release(CachedStatement cached) {
+        cached.inUse = false;
+        if (cached.evicted) {
+            statements.remove(cached.key, cached);
+            cached.closeQuietly();
+        }
+    }
+
+    synchronized void close() {
+        statements.values().forEach(CachedStatement::closeQuietly);
+        statements.clear();
+    }
+
+    static long getHits() {
+        return hits.get();
+    }
+
+    static long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * Requête préparée conservée par le cache
+     */
+    private final class CachedStatement {
+        private final String key;
+        private final PreparedStatement statement;
+        private boolean inUse;
+        private boolean evicted;
+
+        CachedStatement(String key, PreparedStatement statement) {
+            this.key = key;
+            this.statement = statement;
+        }
+
+        PreparedStatement lease() {
+            return (PreparedStatement) Proxy.newProxyInstance(
+                    PreparedStatement.class.getClassLoader(),
+                    new Class<?>[]{PreparedStatement.class},
+                    new Lease());
+        }
+
+        /**
+         * Réinitialise la requête pour le prochain appelant
+         */
+        void reset() {
+            try {
+                ResultSet rs = statement.getResultSet();
+                if (rs != null) {
+                    // Termine la lecture en cours, sinon la transaction de lecture reste ouverte
+                    rs.close();
+                }
+                statement.clearParameters();
+            } catch (SQLException e) {
+                // Requête dans un état inconnu : ne pas la réutiliser
+                evicted = true;
+            }
+        }
+
+        void closeQuietly() {
+            try {
+                statement.close();
+            } catch (SQLException e) {
+                System.err.println("Erreur lors de la fermeture d'une requête préparée : " + e.getMessage());
+            }
+        }
+
+        /**
+         * Un emprunt de la requête : close() la rend au cache
+         */
+        private final class Lease implements InvocationHandler {
+            private boolean returned;
+
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                switch (method.getName()) {
+                    case "close":
+                        if (!returned) {
+                            returned = true;
+                            reset();
+                            release(CachedStatement.this);
+                        }
+                        return null;
+                    case "isClosed":
+                        return returned || statement.isClosed();
+                    case "equals":
+                        return proxy == args[0];
+                    case "hashCode":
+                        return System.identityHashCode(proxy);
+                    case "toString":
+                        return "CachedStatement[" + statement + "]";
+                    default:
+                        if (returned) {
+                            throw new SQLException("Requête déjà rendue au cache");
+                        }
+                        try {
+                            return method.invoke(statement, args);
+                        } catch (InvocationTargetException e) {
+                            throw e.getCause();
+                        }
+                }
+            }
+        }
+    }
+}
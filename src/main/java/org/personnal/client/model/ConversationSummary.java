@@ -0,0 +1,37 @@
+package org.personnal.client.model;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * Résumé d'une conversation pour la liste des contacts : non lus et dernier élément échangé
+ */
+public class ConversationSummary implements Serializable {
+
+    private final String contact;
+    private final int unreadCount;
+    private final String lastPreview;
+    private final LocalDateTime lastTimestamp;
+
+    public ConversationSummary(String contact, int unreadCount, String lastPreview, LocalDateTime lastTimestamp) {
+        this.contact = contact;
+        this.unreadCount = unreadCount;
+        this.lastPreview = lastPreview;
+        this.lastTimestamp = lastTimestamp;
+    }
+
+    public String getContact() { return contact; }
+    public int getUnreadCount() { return unreadCount; }
+    public String getLastPreview() { return lastPreview; }
+    public LocalDateTime getLastTimestamp() { return lastTimestamp; }
+
+    @Override
+    public String toString() {
+        return "ConversationSummary{" +
+                "contact='" + contact + '\'' +
+                ", unreadCount=" + unreadCount +
+                ", lastPreview='" + lastPreview + '\'' +
+                ", lastTimestamp=" + lastTimestamp +
+                '}';
+    }
+}
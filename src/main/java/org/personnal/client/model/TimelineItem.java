@@ -0,0 +1,71 @@
+package org.personnal.client.model;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * Élément de la conversation : un message ou un fichier, dans l'ordre de la timeline
+ */
+public class TimelineItem implements Serializable {
+
+    /**
+     * Nature de l'élément. L'ordinal sert de discriminant dans la requête de timeline :
+     * à horodatage égal, un fichier suit un message.
+     */
+    public enum Kind { MESSAGE, FILE }
+
+    private final Kind kind;
+    private final int id;
+    private final String sender;
+    private final String receiver;
+    // Texte du message ou nom du fichier
+    private final String content;
+    private final String filepath;
+    private final LocalDateTime timestamp;
+    private final boolean read;
+
+    public TimelineItem(Kind kind, int id, String sender, String receiver, String content,
+                        String filepath, LocalDateTime timestamp, boolean read) {
+        this.kind = kind;
+        this.id = id;
+        this.sender = sender;
+        this.receiver = receiver;
+        this.content = content;
+        this.filepath = filepath;
+        this.timestamp = timestamp;
+        this.read = read;
+    }
+
+    public static TimelineItem of(Message message) {
+        return new TimelineItem(Kind.MESSAGE, message.getIdMessage(), message.getSender(), message.getReceiver(),
+                message.getContent(), null, message.getTimestamp(), message.isRead());
+    }
+
+    public static TimelineItem of(FileData file) {
+        return new TimelineItem(Kind.FILE, file.getId(), file.getSender(), file.getReceiver(),
+                file.getFilename(), file.getFilepath(), file.getTimestamp(), file.isRead());
+    }
+
+    public Kind getKind() { return kind; }
+    public boolean isFile() { return kind == Kind.FILE; }
+    public int getId() { return id; }
+    public String getSender() { return sender; }
+    public String getReceiver() { return receiver; }
+    public String getContent() { return content; }
+    public String getFilename() { return isFile() ? content : null; }
+    public String getFilepath() { return filepath; }
+    public LocalDateTime getTimestamp() { return timestamp; }
+    public boolean isRead() { return read; }
+
+    @Override
+    public String toString() {
+        return "TimelineItem{" +
+                "kind=" + kind +
+                ", id=" + id +
+                ", sender='" + sender + '\'' +
+                ", receiver='" + receiver + '\'' +
+                ", content='" + content + '\'' +
+                ", timestamp=" + timestamp +
+                '}';
+    }
+}
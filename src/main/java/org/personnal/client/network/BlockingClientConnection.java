@@ -0,0 +1,174 @@
+package org.personnal.client.network;
+
+import org.personnal.client.protocol.BinaryFrameCodec;
+import org.personnal.client.protocol.FrameCodec;
+import org.personnal.client.protocol.JsonLineCodec;
+
+import java.io.BufferedOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Transport de repli basé sur une {@link Socket} bloquante et un thread de lecture dédié.
+ * Utilisé quand la propriété {@link NetworkConstants#TRANSPORT_PROPERTY} vaut "blocking".
+ */
+public class BlockingClientConnection implements IClientConnection {
+    private Socket socket;
+    private ReadableByteChannel in;
+    private WritableByteChannel out;
+    private OutputStream outputStream;
+    private Thread readerThread;
+    private FrameListener frameListener;
+
+    private final FrameReader reader = new FrameReader(new JsonLineCodec(NetworkConstants.MAX_FRAME_SIZE),
+            NetworkConstants.READ_BUFFER_SIZE, NetworkConstants.MAX_FRAME_SIZE, false);
+    private final Object writeLock = new Object();
+    private final AtomicBoolean connected = new AtomicBoolean(false);
+
+    @Override
+    public void setFrameListener(FrameListener listener) {
+        this.frameListener = listener;
+    }
+
+    @Override
+    public void connect(String host, int port) throws IOException {
+        socket = new Socket();
+        socket.connect(new InetSocketAddress(host, port), NetworkConstants.CONNECT_TIMEOUT_MS);
+        socket.setTcpNoDelay(true);
+
+        in = Channels.newChannel(socket.getInputStream());
+        outputStream = new BufferedOutputStream(socket.getOutputStream());
+        out = Channels.newChannel(outputStream);
+        connected.set(true);
+
+        readerThread = new Thread(this::readLoop, "BlockingClientConnection-reader");
+        readerThread.setDaemon(true);
+        readerThread.start();
+    }
+
+    private void readLoop() {
+        IOException failure = null;
+        try {
+            while (connected.get()) {
+                int read = in.read(reader.readBuffer());
+                if (read < 0) {
+                    throw new EOFException("Connexion fermée par le serveur");
+                }
+                if (read > 0) {
+                    reader.decode(frameListener);
+                }
+            }
+        } catch (IOException e) {
+            if (connected.get()) {
+                failure = e;
+            }
+        } finally {
+            shutdown(failure);
+        }
+    }
+
+    @Override
+    public void send(byte type, byte flags, ByteBuffer body) throws IOException {
+        if (!connected.get()) {
+            throw new IOException("Non connecté au serveur");
+        }
+
+        synchronized (writeLock) {
+            try {
+                for (ByteBuffer buffer : reader.getCodec().encode(type, flags, body)) {
+                    while (buffer.hasRemaining()) {
+                        out.write(buffer);
+                    }
+                }
+                outputStream.flush();
+            } catch (IOException e) {
+                shutdown(e);
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Une socket bloquante n'expose pas de canal : le fichier est recopié par transferTo
+     * dans le flux de sortie, sans conversion Base64
+     */
+    @Override
+    public CompletableFuture<Void> sendFileRegion(byte type, ByteBuffer prefix, FileChannel file, long position, int count)
+            throws IOException {
+        if (!connected.get()) {
+            throw new IOException("Non connecté au serveur");
+        }
+
+        synchronized (writeLock) {
+            if (!(reader.getCodec() instanceof BinaryFrameCodec)) {
+                throw new IOException("Le format binaire n'a pas été négocié");
+            }
+            try {
+                ByteBuffer header = ((BinaryFrameCodec) reader.getCodec())
+                        .encodeHeader(type, FrameCodec.FLAG_NONE, prefix.remaining() + count);
+                while (header.hasRemaining()) out.write(header);
+                while (prefix.hasRemaining()) out.write(prefix);
+                long transferred = 0;
+                while (transferred < count) {
+                    long n = file.transferTo(position + transferred, count - transferred, out);
+                    if (n == 0 && position + transferred >= file.size()) {
+                        throw new IOException("Fin de fichier atteinte avant la fin de la trame");
+                    }
+                    transferred += n;
+                }
+                outputStream.flush();
+            } catch (IOException e) {
+                shutdown(e);
+                throw e;
+            }
+        }
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public FrameCodec getCodec() {
+        return reader.getCodec();
+    }
+
+    @Override
+    public void setCodec(FrameCodec codec) {
+        // Pas de verrou d'écriture : un envoi bloqué ne doit pas retenir le thread de lecture
+        reader.setCodec(codec);
+    }
+
+    @Override
+    public boolean isConnected() {
+        return connected.get();
+    }
+
+    @Override
+    public void close() {
+        shutdown(null);
+    }
+
+    private void shutdown(IOException cause) {
+        if (!connected.getAndSet(false)) {
+            return;
+        }
+
+        try {
+            if (socket != null && !socket.isClosed()) socket.close();
+        } catch (IOException e) {
+            System.err.println("❌ Erreur lors de la fermeture de la connexion : " + e.getMessage());
+        }
+
+        if (frameListener != null) {
+            frameListener.onClosed(cause);
+        }
+    }
+}
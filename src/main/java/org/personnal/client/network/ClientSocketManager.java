@@ -2,62 +2,83 @@ package org.personnal.client.network;
 
 import com.google.gson.Gson;
 import org.personnal.client.UI.ChatView;
+import org.personnal.client.cache.BoundedCache;
+import org.personnal.client.protocol.BinaryFrameCodec;
 import org.personnal.client.protocol.PeerRequest;
 import org.personnal.client.protocol.PeerResponse;
 import org.personnal.client.protocol.RequestType;
 
-import java.io.*;
-import java.net.Socket;
-import java.net.SocketException;
+import java.io.IOException;
 import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class ClientSocketManager {
     private static ClientSocketManager instance;
 
-    private Socket socket;
-    private BufferedReader input;
-    private BufferedWriter output;
+    private IClientConnection connection;
     private final Gson gson = new Gson();
     private MessageListener messageListener;
+    private EventDispatcher eventDispatcher;
     private final Object sendLock = new Object();
+    private final AtomicLong nextRequestId = new AtomicLong(1);
 
     // *** CACHE AMÉLIORÉ ***
-    private final Map<String, CachedStatus> onlineStatusCache = new ConcurrentHashMap<>();
-    private final Map<String, CachedUserExists> userExistsCache = new ConcurrentHashMap<>();
+    private static final int USER_CACHE_MAX_SIZE = 1000;
+    private final BoundedCache<String, Boolean> onlineStatusCache;
+    private final BoundedCache<String, Boolean> userExistsCache;
+    // Statuts poussés par le serveur après abonnement
+    private final PresenceStore presenceStore = PresenceStore.getInstance();
 
     // Indicateur de l'état de la connexion
     private final AtomicBoolean isConnected = new AtomicBoolean(false);
 
     // Paramètres de connexion
-    private String serverHost = "localhost";
-    private int serverPort = 5000;
-    private static final int SOCKET_TIMEOUT = 30000; // 30 secondes
+    private String serverHost = NetworkConstants.DEFAULT_HOST;
+    private int serverPort = NetworkConstants.DEFAULT_PORT;
+    private static final long DEFAULT_RESPONSE_TIMEOUT = 30000; // 30 secondes
 
     // *** DURÉES DE CACHE OPTIMISÉES ***
     private static final long ONLINE_CACHE_DURATION = 60000; // 1 minute pour statut en ligne
+    private static final long ONLINE_REFRESH_AFTER = 45000; // Rechargement anticipé du statut en ligne
+    private static final long ONLINE_ERROR_CACHE_DURATION = 30000; // Cache court en cas d'erreur
     private static final long USER_EXISTS_CACHE_DURATION = 3600000; // 1 heure pour existence utilisateur
 
     // *** GESTIONNAIRE DE REQUÊTES PAR LOT ***
-    private final Map<String, CompletableFuture<Map<String, Boolean>>> pendingBatchRequests = new ConcurrentHashMap<>();
     private final ScheduledExecutorService batchScheduler = Executors.newSingleThreadScheduledExecutor();
+    // Vérifications en vol partagées et regroupées en une requête par lot
+    private final CoalescingLookup<String, Boolean> onlineLookup;
+    private final CoalescingLookup<String, Boolean> userExistsLookup;
+    // Passe à false si le serveur ignore CHECK_USER par lot : les utilisateurs sont alors vérifiés un par un
+    private volatile boolean batchUserCheckSupported = true;
 
     // Constructeur privé pour singleton
     private ClientSocketManager() {
-        // Nettoyer le cache périodiquement
-        batchScheduler.scheduleAtFixedRate(this::cleanExpiredCache, 5, 5, TimeUnit.MINUTES);
+        onlineLookup = new CoalescingLookup<>(batchScheduler, NetworkConstants.LOOKUP_COALESCE_WINDOW_MS,
+                NetworkConstants.LOOKUP_MAX_BATCH_SIZE, false, this::loadOnlineStatuses);
+        userExistsLookup = new CoalescingLookup<>(batchScheduler, NetworkConstants.LOOKUP_COALESCE_WINDOW_MS,
+                NetworkConstants.LOOKUP_MAX_BATCH_SIZE, false, this::loadUserExists);
+        // Un statut lu peu avant son expiration est rechargé sans attendre le prochain échec de cache
+        onlineStatusCache = new BoundedCache<String, Boolean>("statuts en ligne", USER_CACHE_MAX_SIZE, ONLINE_CACHE_DURATION)
+                .refreshAhead(ONLINE_REFRESH_AFTER, onlineLookup::get);
+        userExistsCache = new BoundedCache<>("existence utilisateurs", USER_CACHE_MAX_SIZE, USER_EXISTS_CACHE_DURATION);
+        // Journaliser l'efficacité des caches périodiquement
+        batchScheduler.scheduleAtFixedRate(this::logCacheStats, 5, 5, TimeUnit.MINUTES);
     }
 
     public static ClientSocketManager getInstance() throws IOException {
         if (instance == null) {
             instance = new ClientSocketManager();
-            instance.connect("localhost", 5000);
+            instance.connect(NetworkConstants.DEFAULT_HOST, NetworkConstants.DEFAULT_PORT);
         }
         return instance;
     }
@@ -67,12 +88,17 @@ public class ClientSocketManager {
             this.serverHost = host;
             this.serverPort = port;
 
-            socket = new Socket(host, port);
-            socket.setSoTimeout(SOCKET_TIMEOUT);
-            input = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
-            output = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8));
+            // Le transport lit la socket et remet chaque trame au dispatcher
+            eventDispatcher = new EventDispatcher(() -> {
+                isConnected.set(false);
+                presenceStore.reset();
+            });
+            connection = IClientConnection.create();
+            connection.setFrameListener(eventDispatcher);
+            connection.connect(host, port);
             isConnected.set(true);
             System.out.println("✅ Connecté au serveur");
+            negotiateFraming();
         } catch (IOException e) {
             isConnected.set(false);
             System.err.println("❌ Erreur de connexion au serveur : " + e.getMessage());
@@ -80,6 +106,31 @@ public class ClientSocketManager {
         }
     }
 
+    /**
+     * Propose le format binaire au serveur. Sans réponse favorable, le format JSON par ligne est conservé.
+     * Le serveur ne bascule ses propres envois qu'à réception de la première trame binaire du client.
+     */
+    private void negotiateFraming() {
+        if ("json".equalsIgnoreCase(System.getProperty(NetworkConstants.FRAMING_PROPERTY))) {
+            return;
+        }
+
+        Map<String, String> payload = new HashMap<>();
+        payload.put("framing", BinaryFrameCodec.NAME);
+        try {
+            PeerResponse response = sendRequestAndWait(new PeerRequest(RequestType.HELLO, payload),
+                    NetworkConstants.NEGOTIATION_TIMEOUT_MS);
+            if (response.isSuccess() && response.getData() instanceof Map
+                    && BinaryFrameCodec.NAME.equals(((Map<?, ?>) response.getData()).get("framing"))) {
+                connection.setCodec(new BinaryFrameCodec(NetworkConstants.MAX_FRAME_SIZE));
+                System.out.println("✅ Format de trame binaire négocié");
+            }
+        } catch (IOException e) {
+            // Ancien serveur : on reste en JSON par ligne
+            System.out.println("ℹ️ Négociation du format ignorée : " + e.getMessage());
+        }
+    }
+
     /**
      * *** MÉTHODE OPTIMISÉE POUR VÉRIFIER LE STATUT EN LIGNE ***
      * Utilise un cache intelligent et des requêtes par lot
@@ -89,17 +140,83 @@ public class ClientSocketManager {
             return false;
         }
 
-        // Vérifier le cache d'abord
-        CachedStatus cachedStatus = onlineStatusCache.get(username);
-        if (cachedStatus != null && !cachedStatus.isExpired()) {
-            return cachedStatus.isOnline();
+        // Statut poussé par le serveur : toujours à jour, aucune requête
+        if (presenceStore.isLive()) {
+            Boolean online = presenceStore.get(username);
+            if (online != null) {
+                return online;
+            }
+        }
+
+        // Vérifier le cache d'abord (rechargé en arrière-plan avant expiration)
+        Boolean cachedStatus = onlineStatusCache.get(username);
+        if (cachedStatus != null) {
+            return cachedStatus;
+        }
+
+        // Si pas en cache ou expiré, déclencher une mise à jour asynchrone,
+        // partagée avec les autres demandes du même utilisateur et regroupée avec celles des autres
+        onlineLookup.get(username);
+
+        // Hors ligne par défaut en attendant la réponse
+        return false;
+    }
+
+    /**
+     * S'abonne à la présence des utilisateurs donnés : le serveur répond avec leur statut actuel
+     * ({"presence": "subscribed", "alice": "true", ...}) puis notifie chaque changement
+     * ({"presence": "update", "username": ..., "online": ...}). Un nouvel abonnement s'ajoute aux précédents.
+     * @return false si le serveur ne gère pas les abonnements : il faut alors interroger CHECK_ONLINE
+     */
+    public boolean subscribePresence(Collection<String> usernames) {
+        if (!isConnected.get()) {
+            return false;
         }
 
-        // Si pas en cache ou expiré, retourner false par défaut et déclencher une mise à jour asynchrone
-        CompletableFuture.runAsync(() -> refreshSingleUserStatus(username));
+        // Même vide, l'abonnement permet de savoir si le serveur gère la présence
+        Map<String, String> payload = new HashMap<>();
+        payload.put("usernames", String.join(",", usernames));
+        try {
+            PeerResponse response = sendRequestAndWait(new PeerRequest(RequestType.PRESENCE_SUBSCRIBE, payload), 5000);
+            if (!response.isSuccess() || !(response.getData() instanceof Map)
+                    || !"subscribed".equals(((Map<?, ?>) response.getData()).get("presence"))) {
+                System.out.println("ℹ️ Abonnement à la présence refusé : " + response.getMessage());
+                return false;
+            }
+
+            Map<?, ?> data = (Map<?, ?>) response.getData();
+            for (String username : usernames) {
+                Object online = data.get(username);
+                presenceStore.update(username, online != null && Boolean.parseBoolean(online.toString()));
+            }
+            presenceStore.setLive(true);
+            return true;
+        } catch (IOException e) {
+            System.out.println("ℹ️ Abonnement à la présence indisponible : " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Arrête le suivi de présence d'un utilisateur (contact supprimé)
+     */
+    public void unsubscribePresence(String username) {
+        presenceStore.remove(username);
+        if (!presenceStore.isLive() || !isConnected.get()) {
+            return;
+        }
+
+        Map<String, String> payload = new HashMap<>();
+        payload.put("usernames", username);
+        try {
+            sendRequest(new PeerRequest(RequestType.PRESENCE_UNSUBSCRIBE, payload));
+        } catch (IOException e) {
+            System.err.println("Erreur lors du désabonnement de " + username + ": " + e.getMessage());
+        }
+    }
 
-        // Retourner la dernière valeur connue ou false par défaut
-        return cachedStatus != null ? cachedStatus.isOnline() : false;
+    public PresenceStore getPresenceStore() {
+        return presenceStore;
     }
 
     /**
@@ -111,18 +228,20 @@ public class ClientSocketManager {
         }
 
         // Vérifier le cache d'abord
-        CachedUserExists cachedExists = userExistsCache.get(username);
-        if (cachedExists != null && !cachedExists.isExpired()) {
-            return cachedExists.exists();
+        Boolean cachedExists = userExistsCache.get(username);
+        if (cachedExists != null) {
+            return cachedExists;
         }
 
-        // Faire la requête de manière synchrone mais avec timeout court
+        // Attendre la vérification, éventuellement regroupée avec d'autres, avec un timeout court
         try {
-            return checkUserExistsSynchronous(username);
+            return userExistsLookup.get(username).get(5000, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
         } catch (Exception e) {
             System.err.println("Erreur lors de la vérification de l'utilisateur " + username + ": " + e.getMessage());
-            // Retourner la dernière valeur connue ou false par défaut
-            return cachedExists != null ? cachedExists.exists() : false;
+            return false;
         }
     }
 
@@ -139,9 +258,9 @@ public class ClientSocketManager {
 
         // D'abord, utiliser le cache pour les valeurs disponibles
         for (String username : usernames) {
-            CachedStatus status = onlineStatusCache.get(username);
-            if (status != null && !status.isExpired()) {
-                results.put(username, status.isOnline());
+            Boolean status = onlineStatusCache.get(username);
+            if (status != null) {
+                results.put(username, status);
             } else {
                 usersToCheck.add(username);
             }
@@ -151,292 +270,305 @@ public class ClientSocketManager {
             return CompletableFuture.completedFuture(results);
         }
 
-        // Créer une clé unique pour cette requête par lot
-        String batchKey = String.join(",", usersToCheck);
-
-        // Vérifier si une requête similaire est déjà en cours
-        CompletableFuture<Map<String, Boolean>> existingFuture = pendingBatchRequests.get(batchKey);
-        if (existingFuture != null) {
-            return existingFuture.thenApply(batchResults -> {
-                Map<String, Boolean> combinedResults = new HashMap<>(results);
-                combinedResults.putAll(batchResults);
-                return combinedResults;
-            });
+        // Chaque utilisateur partage la vérification déjà en vol ou rejoint le prochain lot
+        Map<String, CompletableFuture<Boolean>> lookups = new HashMap<>();
+        for (String username : usersToCheck) {
+            lookups.put(username, onlineLookup.get(username));
         }
 
-        // Créer une nouvelle requête par lot
-        CompletableFuture<Map<String, Boolean>> future = CompletableFuture.supplyAsync(() -> {
-            try {
-                Map<String, String> payload = new HashMap<>();
-                payload.put("usernames", String.join(",", usersToCheck));
-                payload.put("batch", "true");
-                payload.put("timestamp", String.valueOf(System.currentTimeMillis()));
-
-                synchronized (sendLock) {
-                    PeerRequest request = new PeerRequest(RequestType.CHECK_ONLINE, payload);
-                    sendRequest(request);
-
-                    // Timeout plus généreux pour les requêtes par lot
-                    socket.setSoTimeout(10000); // 10 secondes
-                    PeerResponse response = readResponse();
-                    socket.setSoTimeout(SOCKET_TIMEOUT); // Restaurer le timeout normal
-
-                    Map<String, Boolean> batchResults = new HashMap<>();
-                    if (response.isSuccess() && response.getData() instanceof Map) {
-                        Map<String, Object> data = (Map<String, Object>) response.getData();
-
-                        for (String username : usersToCheck) {
-                            boolean online = false;
-                            if (data.containsKey(username)) {
-                                online = Boolean.parseBoolean(data.get(username).toString());
-                            }
-
-                            batchResults.put(username, online);
-                            // Mettre en cache avec une durée de vie plus longue
-                            onlineStatusCache.put(username, new CachedStatus(online, System.currentTimeMillis() + ONLINE_CACHE_DURATION));
+        return CompletableFuture.allOf(lookups.values().toArray(new CompletableFuture<?>[0]))
+                .handle((ignored, throwable) -> {
+                    Map<String, Boolean> combinedResults = new HashMap<>(results);
+                    lookups.forEach((username, lookup) ->
+                            combinedResults.put(username, lookup.isCompletedExceptionally() ? false : lookup.join()));
+                    return combinedResults;
+                });
+    }
+
+    /**
+     * *** CHARGEMENT PAR LOT DES STATUTS EN LIGNE ***
+     * Une seule requête CHECK_ONLINE pour tous les utilisateurs du lot ; le résultat est mis en cache.
+     * En cas d'échec, le résultat est en erreur : un rechargement anticipé garde alors la valeur en cache
+     */
+    private CompletableFuture<Map<String, Boolean>> loadOnlineStatuses(List<String> usernames) {
+        Map<String, String> payload = new HashMap<>();
+        payload.put("usernames", String.join(",", usernames));
+        payload.put("batch", "true");
+        payload.put("timestamp", String.valueOf(System.currentTimeMillis()));
+
+        return sendLookup(new PeerRequest(RequestType.CHECK_ONLINE, payload))
+                .handle((response, throwable) -> {
+                    boolean success = throwable == null && response.isSuccess() && response.getData() instanceof Map;
+                    if (!success) {
+                        if (throwable != null) {
+                            System.err.println("Erreur lors de la vérification par lot: " + throwable.getMessage());
                         }
-                    } else {
-                        // En cas d'échec, marquer tous comme hors ligne
-                        for (String username : usersToCheck) {
-                            batchResults.put(username, false);
-                            onlineStatusCache.put(username, new CachedStatus(false, System.currentTimeMillis() + 30000)); // Cache court en cas d'erreur
+                        // Hors ligne avec un cache court pour les seuls utilisateurs sans statut connu :
+                        // un statut déjà en cache n'est pas remplacé par un résultat d'erreur
+                        for (String username : usernames) {
+                            onlineStatusCache.putIfAbsent(username, false, ONLINE_ERROR_CACHE_DURATION);
                         }
+                        throw new CompletionException(throwable != null ? throwable
+                                : new IOException("Vérification des statuts en ligne refusée par le serveur"));
                     }
 
-                    return batchResults;
-                }
-            } catch (Exception e) {
-                System.err.println("Erreur lors de la vérification par lot: " + e.getMessage());
-                // En cas d'erreur, retourner tous comme hors ligne
-                Map<String, Boolean> errorResults = new HashMap<>();
-                for (String username : usersToCheck) {
-                    errorResults.put(username, false);
-                }
-                return errorResults;
-            } finally {
-                // Nettoyer la requête en cours
-                pendingBatchRequests.remove(batchKey);
-                try {
-                    socket.setSoTimeout(SOCKET_TIMEOUT);
-                } catch (Exception ignored) {}
-            }
-        });
-
-        pendingBatchRequests.put(batchKey, future);
-
-        return future.thenApply(batchResults -> {
-            Map<String, Boolean> combinedResults = new HashMap<>(results);
-            combinedResults.putAll(batchResults);
-            return combinedResults;
-        });
+                    Map<?, ?> data = (Map<?, ?>) response.getData();
+                    Map<String, Boolean> statuses = new HashMap<>();
+                    for (String username : usernames) {
+                        Object value = data.get(username);
+                        boolean online = value != null && Boolean.parseBoolean(value.toString());
+                        statuses.put(username, online);
+                        onlineStatusCache.put(username, online, ONLINE_CACHE_DURATION);
+                    }
+                    return statuses;
+                });
     }
 
     /**
-     * *** MÉTHODE PRIVÉE POUR VÉRIFICATION SYNCHRONE D'EXISTENCE ***
+     * *** CHARGEMENT PAR LOT DE L'EXISTENCE DES UTILISATEURS ***
+     * Un utilisateur seul est vérifié avec la requête historique ({"username": ...} → {"exists": ...}),
+     * plusieurs avec une requête par lot ({"usernames": "a,b", "batch": "true"} → {"a": "true", ...})
      */
-    private boolean checkUserExistsSynchronous(String username) throws Exception {
-        Map<String, String> payload = new HashMap<>();
-        payload.put("username", username);
+    private CompletableFuture<Map<String, Boolean>> loadUserExists(List<String> usernames) {
+        if (usernames.size() == 1 || !batchUserCheckSupported) {
+            return loadUserExistsOneByOne(usernames);
+        }
 
-        synchronized (sendLock) {
-            PeerRequest request = new PeerRequest(RequestType.CHECK_USER, payload);
-            sendRequest(request);
-
-            // Timeout court pour vérification d'existence
-            socket.setSoTimeout(5000); // 5 secondes
-            PeerResponse response = readResponse();
-            socket.setSoTimeout(SOCKET_TIMEOUT); // Restaurer le timeout normal
-
-            boolean exists = false;
-            if (response.isSuccess() && response.getData() instanceof Map) {
-                Map<String, String> data = (Map<String, String>) response.getData();
-                exists = "true".equals(data.get("exists"));
-            }
+        Map<String, String> payload = new HashMap<>();
+        payload.put("usernames", String.join(",", usernames));
+        payload.put("batch", "true");
+
+        return sendLookup(new PeerRequest(RequestType.CHECK_USER, payload))
+                .thenCompose(response -> {
+                    Map<?, ?> data = response.isSuccess() && response.getData() instanceof Map
+                            ? (Map<?, ?>) response.getData() : Map.of();
+                    if (!data.keySet().containsAll(usernames)) {
+                        // Serveur sans vérification par lot : revenir aux requêtes individuelles
+                        System.out.println("ℹ️ CHECK_USER par lot non pris en charge, vérification individuelle");
+                        batchUserCheckSupported = false;
+                        return loadUserExistsOneByOne(usernames);
+                    }
 
-            // Mettre en cache avec une longue durée de vie
-            userExistsCache.put(username, new CachedUserExists(exists, System.currentTimeMillis() + USER_EXISTS_CACHE_DURATION));
-            return exists;
-        }
+                    Map<String, Boolean> results = new HashMap<>();
+                    for (String username : usernames) {
+                        boolean exists = Boolean.parseBoolean(data.get(username).toString());
+                        results.put(username, exists);
+                        cacheUserExists(username, exists);
+                    }
+                    return CompletableFuture.completedFuture(results);
+                });
     }
 
-    /**
-     * *** RAFRAÎCHISSEMENT ASYNCHRONE DU STATUT D'UN UTILISATEUR ***
-     */
-    private void refreshSingleUserStatus(String username) {
-        try {
+    private CompletableFuture<Map<String, Boolean>> loadUserExistsOneByOne(List<String> usernames) {
+        Map<String, CompletableFuture<Boolean>> checks = new HashMap<>();
+        for (String username : usernames) {
             Map<String, String> payload = new HashMap<>();
             payload.put("username", username);
-            payload.put("timestamp", String.valueOf(System.currentTimeMillis()));
 
-            synchronized (sendLock) {
-                PeerRequest request = new PeerRequest(RequestType.CHECK_ONLINE, payload);
-                sendRequest(request);
+            checks.put(username, sendLookup(new PeerRequest(RequestType.CHECK_USER, payload))
+                    .thenApply(response -> {
+                        boolean exists = false;
+                        if (response.isSuccess() && response.getData() instanceof Map) {
+                            exists = "true".equals(((Map<?, ?>) response.getData()).get("exists"));
+                        }
+                        cacheUserExists(username, exists);
+                        return exists;
+                    }));
+        }
 
-                socket.setSoTimeout(5000); // 5 secondes
-                PeerResponse response = readResponse();
-                socket.setSoTimeout(SOCKET_TIMEOUT);
+        // Les requêtes partent toutes avant la première réponse
+        return CompletableFuture.allOf(checks.values().toArray(new CompletableFuture<?>[0]))
+                .thenApply(ignored -> {
+                    Map<String, Boolean> results = new HashMap<>();
+                    checks.forEach((username, check) -> results.put(username, check.join()));
+                    return results;
+                });
+    }
 
-                boolean isOnline = false;
-                if (response.isSuccess() && response.getData() instanceof Map) {
-                    Map<String, String> data = (Map<String, String>) response.getData();
-                    isOnline = "true".equals(data.get("online"));
-                }
+    private void cacheUserExists(String username, boolean exists) {
+        // Mettre en cache avec une longue durée de vie
+        userExistsCache.put(username, exists);
+    }
 
-                // Mettre en cache
-                onlineStatusCache.put(username, new CachedStatus(isOnline, System.currentTimeMillis() + ONLINE_CACHE_DURATION));
-            }
-        } catch (Exception e) {
-            System.err.println("Erreur lors du rafraîchissement du statut de " + username + ": " + e.getMessage());
-        } finally {
-            try {
-                socket.setSoTimeout(SOCKET_TIMEOUT);
-            } catch (Exception ignored) {}
+    /**
+     * Envoie une requête de vérification sans bloquer, avec un timeout
+     */
+    private CompletableFuture<PeerResponse> sendLookup(PeerRequest request) {
+        try {
+            return sendRequestAsync(request).orTimeout(NetworkConstants.LOOKUP_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
         }
     }
 
     /**
-     * *** NETTOYAGE DU CACHE EXPIRÉ ***
+     * *** STATISTIQUES DES CACHES ***
+     * Les caches sont bornés et purgés au fil des accès : il n'y a plus rien à nettoyer
      */
-    private void cleanExpiredCache() {
-        long now = System.currentTimeMillis();
+    private void logCacheStats() {
+        System.out.println("📊 " + onlineStatusCache.getStats());
+        System.out.println("📊 " + userExistsCache.getStats());
+    }
 
-        // Nettoyer le cache des statuts en ligne
-        onlineStatusCache.entrySet().removeIf(entry -> entry.getValue().isExpired(now));
+    // *** ENVOI ET CORRÉLATION DES REQUÊTES ***
 
-        // Nettoyer le cache d'existence des utilisateurs
-        userExistsCache.entrySet().removeIf(entry -> entry.getValue().isExpired(now));
+    /**
+     * Envoie une requête sans attendre de réponse (signaux d'appel, déconnexion...)
+     */
+    public void sendRequest(PeerRequest request) throws IOException {
+        if (!isConnected.get()) {
+            throw new IOException("Non connecté au serveur");
+        }
 
-        System.out.println("Cache nettoyé. Statuts en ligne: " + onlineStatusCache.size() +
-                ", Existence utilisateurs: " + userExistsCache.size());
+        synchronized (sendLock) {
+            writeRequest(request);
+        }
     }
 
-    // *** MÉTHODES DE BASE INCHANGÉES ***
-    public synchronized void sendRequest(PeerRequest request) throws IOException {
+    /**
+     * Envoie une requête et retourne immédiatement un future complété par la réponse correspondante.
+     * Plusieurs requêtes peuvent être en vol en même temps sur la même socket.
+     */
+    public CompletableFuture<PeerResponse> sendRequestAsync(PeerRequest request) throws IOException {
         if (!isConnected.get()) {
             throw new IOException("Non connecté au serveur");
         }
 
+        long requestId = nextRequestId.getAndIncrement();
+        request.setRequestId(requestId);
+
         synchronized (sendLock) {
+            // Enregistrer avant d'écrire pour que la réponse ne puisse pas arriver avant
+            CompletableFuture<PeerResponse> future = eventDispatcher.register(requestId);
             try {
-                String json = gson.toJson(request);
-                output.write(json + "\n");
-                output.flush();
+                writeRequest(request);
             } catch (IOException e) {
-                isConnected.set(false);
+                eventDispatcher.cancel(requestId);
                 throw e;
             }
+            // Libérer l'entrée si le future est annulé ou expire (orTimeout)
+            future.whenComplete((response, throwable) -> {
+                if (throwable != null) {
+                    eventDispatcher.cancel(requestId);
+                }
+            });
+            return future;
         }
     }
 
-    public synchronized PeerResponse readResponse() throws IOException {
-        if (!isConnected.get()) {
-            throw new IOException("Non connecté au serveur");
-        }
+    /**
+     * Envoie une requête et attend sa réponse
+     */
+    public PeerResponse sendRequestAndWait(PeerRequest request) throws IOException {
+        return sendRequestAndWait(request, DEFAULT_RESPONSE_TIMEOUT);
+    }
 
+    /**
+     * Envoie une requête et attend sa réponse au plus timeoutMs millisecondes
+     */
+    public PeerResponse sendRequestAndWait(PeerRequest request, long timeoutMs) throws IOException {
+        return awaitResponse(sendRequestAsync(request), request, timeoutMs);
+    }
+
+    /**
+     * Attend la réponse d'une requête envoyée par {@link #sendRequestAsync(PeerRequest)}
+     */
+    public PeerResponse awaitResponse(CompletableFuture<PeerResponse> future, PeerRequest request, long timeoutMs)
+            throws IOException {
         try {
-            String responseJson = input.readLine();
-            if (responseJson == null) {
-                isConnected.set(false);
-                throw new IOException("Connexion fermée par le serveur");
+            return future.get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(false);
+            throw new SocketTimeoutException("Pas de réponse du serveur pour la requête " + request.getType());
+        } catch (InterruptedException e) {
+            future.cancel(false);
+            Thread.currentThread().interrupt();
+            throw new IOException("Attente de la réponse interrompue", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
             }
-            return gson.fromJson(responseJson, PeerResponse.class);
-        } catch (SocketTimeoutException e) {
-            throw e;
+            throw new IOException(cause);
+        }
+    }
+
+    private void writeRequest(PeerRequest request) throws IOException {
+        try {
+            String json = gson.toJson(request);
+            connection.send(ByteBuffer.wrap(json.getBytes(StandardCharsets.UTF_8)));
         } catch (IOException e) {
             isConnected.set(false);
             throw e;
         }
     }
 
-    public void startMessageListener(ChatView chatView, String username) {
-        if (messageListener != null && messageListener.isAlive()) {
-            messageListener.stopListening();
-            try {
-                messageListener.join(1000);
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
+    /**
+     * Hôte du serveur, qui héberge aussi le relais média des appels
+     */
+    public String getServerHost() {
+        return serverHost;
+    }
+
+    /**
+     * Indique si les trames binaires (et donc l'envoi de fichiers sans copie) sont disponibles
+     */
+    public boolean isBinaryFraming() {
+        return connection != null && connection.getCodec() instanceof BinaryFrameCodec;
+    }
+
+    /**
+     * Envoie une trame binaire dont le corps se termine par une portion de fichier
+     */
+    public CompletableFuture<Void> sendFileRegion(byte type, ByteBuffer prefix, FileChannel file, long position, int count)
+            throws IOException {
+        if (!isConnected.get()) {
+            throw new IOException("Non connecté au serveur");
+        }
+        try {
+            return connection.sendFileRegion(type, prefix, file, position, count);
+        } catch (IOException e) {
+            if (!connection.isConnected()) {
+                isConnected.set(false);
             }
+            throw e;
         }
+    }
+
+    public void startMessageListener(ChatView chatView, String username) {
+        stopMessageListener();
 
         if (isConnected.get()) {
-            messageListener = new MessageListener(input, chatView, username);
-            messageListener.start();
+            messageListener = new MessageListener(chatView, username);
+            eventDispatcher.setPushListener(messageListener);
+            eventDispatcher.setFileDataListener(messageListener::handleFileData);
         }
     }
 
     public void stopMessageListener() {
         if (messageListener != null) {
             messageListener.stopListening();
-            try {
-                messageListener.join(1000);
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
+            if (eventDispatcher != null) {
+                eventDispatcher.setPushListener(null);
+                eventDispatcher.setFileDataListener(null);
             }
             messageListener = null;
         }
     }
 
     public boolean isMessageListenerRunning() {
-        return messageListener != null && messageListener.isAlive();
+        return messageListener != null && messageListener.isListening()
+                && connection != null && connection.isConnected();
     }
 
     public void closeConnection() {
-        try {
-            stopMessageListener();
-            batchScheduler.shutdown();
-
-            if (input != null) input.close();
-            if (output != null) output.close();
-            if (socket != null && !socket.isClosed()) socket.close();
-
-            isConnected.set(false);
-        } catch (IOException e) {
-            System.err.println("❌ Erreur lors de la fermeture de la connexion : " + e.getMessage());
-        }
-    }
-
-    // *** CLASSES INTERNES POUR LE CACHE ***
-    private static class CachedStatus {
-        private final boolean online;
-        private final long expiryTime;
-
-        public CachedStatus(boolean online, long expiryTime) {
-            this.online = online;
-            this.expiryTime = expiryTime;
-        }
-
-        public boolean isOnline() {
-            return online;
-        }
-
-        public boolean isExpired() {
-            return System.currentTimeMillis() > expiryTime;
-        }
-
-        public boolean isExpired(long now) {
-            return now > expiryTime;
-        }
-    }
-
-    private static class CachedUserExists {
-        private final boolean exists;
-        private final long expiryTime;
-
-        public CachedUserExists(boolean exists, long expiryTime) {
-            this.exists = exists;
-            this.expiryTime = expiryTime;
-        }
-
-        public boolean exists() {
-            return exists;
-        }
-
-        public boolean isExpired() {
-            return System.currentTimeMillis() > expiryTime;
-        }
-
-        public boolean isExpired(long now) {
-            return now > expiryTime;
-        }
+        stopMessageListener();
+        batchScheduler.shutdown();
+        IOException closed = new IOException("Connexion fermée");
+        onlineLookup.cancelAll(closed);
+        userExistsLookup.cancelAll(closed);
+        isConnected.set(false);
+        if (eventDispatcher != null) eventDispatcher.shutdown();
+        if (connection != null) connection.close();
     }
-}
\ No newline at end of file
+}
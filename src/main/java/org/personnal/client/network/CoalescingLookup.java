@@ -0,0 +1,120 @@
+package org.personnal.client.network;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Regroupe les recherches par clé adressées au serveur :
+ * <ul>
+ *   <li>une clé déjà demandée partage la requête en vol (single-flight) ;</li>
+ *   <li>les clés demandées dans une courte fenêtre partent dans une seule requête par lot.</li>
+ * </ul>
+ * Le chargeur reçoit les clés d'un lot et retourne leurs valeurs ; une clé absente du résultat
+ * prend la valeur par défaut.
+ */
+class CoalescingLookup<K, V> {
+    private final ScheduledExecutorService scheduler;
+    private final Function<List<K>, CompletableFuture<Map<K, V>>> batchLoader;
+    private final V defaultValue;
+    private final long windowMs;
+    private final int maxBatchSize;
+
+    // Requêtes en vol ou en attente d'envoi, par clé
+    private final Map<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    // Clés du lot en cours de constitution
+    private List<K> pendingKeys = new ArrayList<>();
+    private boolean flushScheduled = false;
+
+    CoalescingLookup(ScheduledExecutorService scheduler, long windowMs, int maxBatchSize, V defaultValue,
+                     Function<List<K>, CompletableFuture<Map<K, V>>> batchLoader) {
+        this.scheduler = scheduler;
+        this.windowMs = windowMs;
+        this.maxBatchSize = maxBatchSize;
+        this.defaultValue = defaultValue;
+        this.batchLoader = batchLoader;
+    }
+
+    /**
+     * Valeur de la clé, partagée avec les demandes concurrentes de la même clé
+     */
+    CompletableFuture<V> get(K key) {
+        CompletableFuture<V> created = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, created);
+        if (existing != null) {
+            return existing;
+        }
+
+        List<K> fullBatch = null;
+        synchronized (this) {
+            pendingKeys.add(key);
+            if (pendingKeys.size() >= maxBatchSize) {
+                fullBatch = takePending();
+            } else if (!flushScheduled) {
+                flushScheduled = true;
+                scheduler.schedule(this::flush, windowMs, TimeUnit.MILLISECONDS);
+            }
+        }
+        if (fullBatch != null) {
+            load(fullBatch);
+        }
+        return created;
+    }
+
+    private void flush() {
+        List<K> batch;
+        synchronized (this) {
+            flushScheduled = false;
+            batch = takePending();
+        }
+        if (!batch.isEmpty()) {
+            load(batch);
+        }
+    }
+
+    private List<K> takePending() {
+        List<K> batch = pendingKeys;
+        pendingKeys = new ArrayList<>();
+        return batch;
+    }
+
+    private void load(List<K> batch) {
+        CompletableFuture<Map<K, V>> result;
+        try {
+            result = batchLoader.apply(batch);
+        } catch (RuntimeException e) {
+            result = CompletableFuture.failedFuture(e);
+        }
+
+        result.whenComplete((values, throwable) -> {
+            for (K key : batch) {
+                CompletableFuture<V> future = inFlight.remove(key);
+                if (future == null) {
+                    continue;
+                }
+                if (throwable != null) {
+                    future.completeExceptionally(throwable);
+                } else {
+                    V value = values != null ? values.get(key) : null;
+                    future.complete(value != null ? value : defaultValue);
+                }
+            }
+        });
+    }
+
+    /**
+     * Fait échouer les demandes en attente, par exemple à la fermeture de la connexion
+     */
+    void cancelAll(Throwable cause) {
+        synchronized (this) {
+            pendingKeys.clear();
+        }
+        inFlight.values().forEach(future -> future.completeExceptionally(cause));
+        inFlight.clear();
+    }
+}
@@ -1,4 +1,298 @@
 package org.personnal.client.network;
 
-public class EventDispatcher {
+import com.google.gson.stream.JsonReader;
+import org.personnal.client.protocol.ByteBufferReader;
+import org.personnal.client.protocol.EventType;
+import org.personnal.client.protocol.FileTransferEvent;
+import org.personnal.client.protocol.FrameCodec;
+import org.personnal.client.protocol.PeerResponse;
+import org.personnal.client.protocol.PeerResponseAdapter;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Deque;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Reçoit les trames lues par le transport.
+ * Chaque réponse est routée vers la requête en attente qui porte le même identifiant,
+ * les notifications spontanées du serveur sont transmises à l'écouteur de messages
+ * sur un thread dédié pour ne jamais bloquer le thread d'entrée/sortie.
+ */
+public class EventDispatcher implements IClientConnection.FrameListener {
+    // Décode chaque trame en réponse ou en notification typée
+    private final PeerResponseAdapter responseAdapter = new PeerResponseAdapter();
+    private final Runnable onConnectionLost;
+    private volatile boolean running = true;
+
+    private final ExecutorService pushExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "EventDispatcher-push");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Étapes et morceaux des transferts de fichiers : un transfert est toujours traité par le même thread,
+    // dans l'ordre du flux, sans que l'écriture sur le disque ne retienne le thread d'entrée/sortie
+    private static final int FILE_DATA_HEADER_SIZE = 24; // Identifiant de transfert (16 octets) et offset (8)
+    private final ExecutorService[] transferLanes = new ExecutorService[NetworkConstants.FILE_RECEIVE_LANES];
+
+    // Requêtes en attente de réponse, indexées par identifiant
+    private final Map<Long, CompletableFuture<PeerResponse>> pendingRequests = new ConcurrentHashMap<>();
+    // Ordre d'envoi, utilisé quand le serveur ne renvoie pas l'identifiant (ancien serveur)
+    private final Deque<Long> sendOrder = new ConcurrentLinkedDeque<>();
+    // Passe à true à la première réponse qui porte un identifiant (en pratique celle de HELLO) :
+    // une réponse sans identifiant n'est alors plus attribuée par ordre d'envoi
+    private volatile boolean echoesRequestIds;
+
+    // Destinataire des notifications spontanées (messages, fichiers, appels)
+    private volatile Consumer<PeerResponse> pushListener;
+    // Destinataire des morceaux de fichier binaires, appelé sur le thread de leur transfert
+    private volatile Consumer<ByteBuffer> fileDataListener;
+
+    public EventDispatcher(Runnable onConnectionLost) {
+        this.onConnectionLost = onConnectionLost;
+        for (int i = 0; i < transferLanes.length; i++) {
+            transferLanes[i] = newTransferLane(i);
+        }
+    }
+
+    /**
+     * Thread d'un sous-ensemble des transferts. Sa file est bornée : quand le disque ne suit pas,
+     * le thread d'entrée/sortie attend une place, ce qui freine la lecture de la socket.
+     */
+    private static ExecutorService newTransferLane(int index) {
+        return new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(NetworkConstants.FILE_RECEIVE_QUEUE),
+                r -> {
+                    Thread thread = new Thread(r, "EventDispatcher-transfer-" + index);
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                (task, executor) -> {
+                    if (executor.isShutdown()) {
+                        throw new RejectedExecutionException("Réception des fichiers arrêtée");
+                    }
+                    try {
+                        executor.getQueue().put(task);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new RejectedExecutionException("Attente d'écriture interrompue", e);
+                    }
+                });
+    }
+
+    /**
+     * Enregistre une requête avant son envoi.
+     * Doit être appelé sous le même verrou que l'écriture pour que l'ordre d'envoi soit respecté.
+     */
+    public CompletableFuture<PeerResponse> register(long requestId) {
+        CompletableFuture<PeerResponse> future = new CompletableFuture<>();
+        pendingRequests.put(requestId, future);
+        if (!echoesRequestIds) {
+            sendOrder.addLast(requestId);
+        }
+        return future;
+    }
+
+    /**
+     * Abandonne une requête (timeout ou échec d'écriture)
+     */
+    public void cancel(long requestId) {
+        pendingRequests.remove(requestId);
+        sendOrder.remove(requestId);
+    }
+
+    public void setPushListener(Consumer<PeerResponse> pushListener) {
+        this.pushListener = pushListener;
+    }
+
+    /**
+     * Le tampon remis est une copie du morceau, traitée sur le thread de son transfert après
+     * l'étape "begin" qui le précède dans le flux
+     */
+    public void setFileDataListener(Consumer<ByteBuffer> fileDataListener) {
+        this.fileDataListener = fileDataListener;
+    }
+
+    @Override
+    public void onFrame(byte type, byte flags, ByteBuffer frame) {
+        if (type == FrameCodec.TYPE_FILE_DATA) {
+            Consumer<ByteBuffer> listener = fileDataListener;
+            if (frame.remaining() < FILE_DATA_HEADER_SIZE) {
+                System.err.println("Morceau de fichier tronqué ignoré");
+                return;
+            }
+            if (listener != null && running) {
+                // Le tampon de lecture est réutilisé dès le retour : copier le morceau avant de le confier
+                UUID transferId = new UUID(frame.getLong(frame.position()), frame.getLong(frame.position() + 8));
+                ByteBuffer chunk = ByteBuffer.allocate(frame.remaining());
+                chunk.put(frame).flip();
+                runInTransferLane(transferId, () -> listener.accept(chunk));
+            }
+            return;
+        }
+        if (type != FrameCodec.TYPE_JSON) {
+            System.err.println("Type de trame inconnu ignoré: " + type);
+            return;
+        }
+        dispatch(frame, (flags & FrameCodec.FLAG_PUSH) != 0);
+    }
+
+    @Override
+    public void onClosed(IOException cause) {
+        if (cause != null) {
+            System.err.println("Erreur de lecture: " + cause.getMessage());
+        } else {
+            System.out.println("Connexion au serveur perdue.");
+        }
+        failPending(cause != null ? cause : new IOException("Connexion fermée par le serveur"));
+        if (running && onConnectionLost != null) {
+            onConnectionLost.run();
+        }
+    }
+
+    /**
+     * Route une trame reçue vers la requête correspondante ou vers l'écouteur.
+     * La trame est décodée en flux depuis le tampon de lecture, pendant l'appel du transport.
+     */
+    private void dispatch(ByteBuffer frame, boolean flaggedPush) {
+        PeerResponse response;
+        try {
+            JsonReader reader = new JsonReader(new ByteBufferReader(frame));
+            reader.setLenient(true);
+            response = responseAdapter.read(reader);
+        } catch (EOFException e) {
+            // Trame vide
+            return;
+        } catch (Exception e) {
+            System.err.println("Trame illisible ignorée: " + e.getMessage());
+            return;
+        }
+        if (response == null) {
+            return;
+        }
+
+        CompletableFuture<PeerResponse> future = null;
+        // Le format binaire marque les notifications : inutile de les deviner
+        if (!flaggedPush) {
+            if (response.getRequestId() != null) {
+                if (!echoesRequestIds) {
+                    echoesRequestIds = true;
+                    sendOrder.clear();
+                }
+                future = pendingRequests.remove(response.getRequestId());
+                sendOrder.remove(response.getRequestId());
+                if (future == null) {
+                    // Réponse arrivée après le timeout de la requête
+                    return;
+                }
+            } else if (!echoesRequestIds && !isPush(response)) {
+                future = pollOldestPending();
+            }
+        }
+
+        if (future != null) {
+            future.complete(response);
+            return;
+        }
+
+        Consumer<PeerResponse> listener = pushListener;
+        if (listener != null && running) {
+            if (isTransferControl(response)) {
+                // Sur le thread du transfert : dans l'ordre du flux, comme les morceaux binaires qui le suivent
+                runInTransferLane(transferIdOf(response), () -> listener.accept(response));
+                return;
+            }
+            pushExecutor.execute(() -> {
+                try {
+                    listener.accept(response);
+                } catch (Exception e) {
+                    System.err.println("Erreur lors du traitement de la notification: " + e.getMessage());
+                }
+            });
+        }
+    }
+
+    /**
+     * Une réponse sans identifiant d'un ancien serveur est attribuée à la plus ancienne requête encore en attente.
+     * Sans identifiant, rien ne distingue la réponse tardive d'une requête expirée : ce repli n'est donc
+     * utilisé que tant que le serveur n'a renvoyé aucun identifiant.
+     */
+    private CompletableFuture<PeerResponse> pollOldestPending() {
+        Long oldest;
+        while ((oldest = sendOrder.pollFirst()) != null) {
+            CompletableFuture<PeerResponse> future = pendingRequests.remove(oldest);
+            if (future != null) {
+                return future;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Notification spontanée d'un serveur qui n'utilise pas les identifiants : reconnue au décodage
+     */
+    private boolean isPush(PeerResponse response) {
+        return response.getEventType() != EventType.RESPONSE;
+    }
+
+    private boolean isTransferControl(PeerResponse response) {
+        return response.getEventType() == EventType.FILE_TRANSFER;
+    }
+
+    /**
+     * Identifiant du transfert d'une étape, null s'il n'est pas un UUID (l'étape sera rejetée par le récepteur)
+     */
+    private static UUID transferIdOf(PeerResponse response) {
+        String transferId = ((FileTransferEvent) response.getEvent()).getTransferId();
+        try {
+            return transferId != null ? UUID.fromString(transferId) : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private void runInTransferLane(UUID transferId, Runnable task) {
+        int lane = transferId != null ? Math.floorMod(transferId.hashCode(), transferLanes.length) : 0;
+        try {
+            transferLanes[lane].execute(() -> {
+                try {
+                    task.run();
+                } catch (Exception e) {
+                    System.err.println("Erreur lors du traitement du transfert de fichier: " + e.getMessage());
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            System.err.println("Étape de transfert ignorée: " + e.getMessage());
+        }
+    }
+
+    private void failPending(IOException cause) {
+        sendOrder.clear();
+        pendingRequests.values().forEach(future -> future.completeExceptionally(cause));
+        pendingRequests.clear();
+    }
+
+    /**
+     * Arrête la distribution des notifications
+     */
+    public void shutdown() {
+        running = false;
+        pushExecutor.shutdown();
+        for (ExecutorService lane : transferLanes) {
+            lane.shutdown();
+        }
+    }
 }
@@ -0,0 +1,53 @@
+package org.personnal.client.network;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Portion de fichier en file d'envoi, écrite vers la socket par {@link FileChannel#transferTo}
+ * sans passer par le tas Java
+ */
+final class FileRegion {
+    private final FileChannel file;
+    private long position;
+    private long remaining;
+    private final CompletableFuture<Void> written = new CompletableFuture<>();
+
+    FileRegion(FileChannel file, long position, long count) {
+        this.file = file;
+        this.position = position;
+        this.remaining = count;
+    }
+
+    /**
+     * Transfère autant d'octets que la socket en accepte
+     * @return Le nombre d'octets écrits
+     */
+    long transferTo(WritableByteChannel target) throws IOException {
+        long transferred = file.transferTo(position, remaining, target);
+        position += transferred;
+        remaining -= transferred;
+        return transferred;
+    }
+
+    /**
+     * Indique si le fichier a été tronqué sous la portion : transferTo ne renverra plus que 0
+     */
+    boolean isPastEndOfFile() throws IOException {
+        return position >= file.size();
+    }
+
+    boolean isDone() {
+        return remaining == 0;
+    }
+
+    long remaining() {
+        return remaining;
+    }
+
+    CompletableFuture<Void> written() {
+        return written;
+    }
+}
@@ -0,0 +1,187 @@
+package org.personnal.client.network;
+
+import org.personnal.client.model.FileData;
+import org.personnal.client.protocol.FileTransferEvent;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Base64;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Réception d'un fichier envoyé par morceaux.
+ * Chaque morceau est écrit à son offset dans un fichier ".part" dès son arrivée, sur le thread
+ * que l'{@link EventDispatcher} réserve au transfert ;
+ * le fichier partiel est conservé si la connexion tombe, ce qui permet de reprendre le transfert.
+ * L'identifiant de transfert vient du correspondant : seul un UUID est accepté, pour que le fichier partiel
+ * reste dans le dossier de réception ; un transfert n'est livré que si le fichier a la taille annoncée.
+ */
+public class FileTransferReceiver {
+    private final String currentUsername;
+    private final Path directory;
+    private final Map<String, IncomingFile> transfers = new ConcurrentHashMap<>();
+
+    public FileTransferReceiver(String currentUsername, Path directory) {
+        this.currentUsername = currentUsername;
+        this.directory = directory;
+    }
+
+    /**
+     * Traite une notification de transfert ("begin", "chunk" ou "end")
+     * @return Le fichier reçu une fois le transfert terminé, null sinon
+     */
+    public FileData handle(FileTransferEvent event) throws IOException {
+        String transferId = canonicalTransferId(event.getTransferId());
+        if (transferId == null) {
+            System.err.println("Identifiant de transfert invalide ignoré: " + event.getTransferId());
+            return null;
+        }
+
+        switch (String.valueOf(event.getStep())) {
+            case "begin":
+                begin(transferId, event);
+                return null;
+            case "chunk":
+                writeChunk(transferId, event);
+                return null;
+            case "end":
+                return end(transferId, event);
+            default:
+                System.err.println("Étape de transfert inconnue: " + event.getStep());
+                return null;
+        }
+    }
+
+    /**
+     * @return L'identifiant sous sa forme canonique d'UUID, ou null s'il n'en est pas un
+     */
+    private static String canonicalTransferId(String transferId) {
+        if (transferId == null) {
+            return null;
+        }
+        try {
+            return UUID.fromString(transferId).toString();
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private void begin(String transferId, FileTransferEvent event) throws IOException {
+        Files.createDirectories(directory);
+        Path partPath = directory.resolve(transferId + ".part");
+        // Ne pas tronquer : un fichier partiel existant correspond à un transfert repris
+        FileChannel channel = FileChannel.open(partPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+
+        IncomingFile previous = transfers.put(transferId, new IncomingFile(
+                channel, partPath, event.getSender(),
+                Paths.get(String.valueOf(event.getFilename())).getFileName().toString(), event.getSize()));
+        if (previous != null) {
+            previous.channel.close();
+        }
+    }
+
+    private void writeChunk(String transferId, FileTransferEvent event) throws IOException {
+        IncomingFile incoming = transfers.get(transferId);
+        if (incoming == null) {
+            System.err.println("Morceau reçu pour un transfert inconnu: " + transferId);
+            return;
+        }
+
+        long offset = event.getOffset();
+        ByteBuffer chunk = ByteBuffer.wrap(Base64.getDecoder().decode(event.getContent()));
+        while (chunk.hasRemaining()) {
+            offset += incoming.channel.write(chunk, offset);
+        }
+    }
+
+    /**
+     * Écrit un morceau reçu en trame binaire : identifiant (16 octets), offset (8 octets), données
+     */
+    public void writeData(ByteBuffer frame) throws IOException {
+        String transferId = new UUID(frame.getLong(), frame.getLong()).toString();
+        long offset = frame.getLong();
+
+        IncomingFile incoming = transfers.get(transferId);
+        if (incoming == null) {
+            System.err.println("Morceau reçu pour un transfert inconnu: " + transferId);
+            return;
+        }
+        while (frame.hasRemaining()) {
+            offset += incoming.channel.write(frame, offset);
+        }
+    }
+
+    private FileData end(String transferId, FileTransferEvent event) throws IOException {
+        IncomingFile incoming = transfers.remove(transferId);
+        if (incoming == null) {
+            return null;
+        }
+        long received = incoming.channel.size();
+        incoming.channel.close();
+
+        // Transfert interrompu : le fichier partiel est gardé pour une reprise, pas livré comme pièce jointe
+        long expected = incoming.expectedSize >= 0 ? incoming.expectedSize : event.getSize();
+        if (expected < 0) {
+            System.err.println("Taille du fichier non annoncée, transfert ignoré: " + incoming.filename);
+            return null;
+        }
+        if (received != expected) {
+            System.err.println("Transfert incomplet de " + incoming.filename + ": " + received + " octets reçus sur " + expected);
+            return null;
+        }
+
+        // Créer un nom de fichier unique
+        String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss"));
+        Path filePath = Paths.get(directory.toString(), timestamp + "_" + incoming.filename);
+        Files.move(incoming.partPath, filePath, StandardCopyOption.REPLACE_EXISTING);
+
+        FileData file = new FileData();
+        file.setSender(incoming.sender);
+        file.setReceiver(currentUsername);
+        file.setFilename(incoming.filename);
+        file.setFilepath(filePath.toString());
+        file.setTimestamp(LocalDateTime.now());
+        file.setRead(false);
+        return file;
+    }
+
+    /**
+     * Ferme les fichiers partiels ouverts, sans les supprimer
+     */
+    public void close() {
+        for (IncomingFile incoming : transfers.values()) {
+            try {
+                incoming.channel.close();
+            } catch (IOException e) {
+                System.err.println("Erreur lors de la fermeture du fichier partiel: " + e.getMessage());
+            }
+        }
+        transfers.clear();
+    }
+
+    private static class IncomingFile {
+        private final FileChannel channel;
+        private final Path partPath;
+        private final String sender;
+        private final String filename;
+        private final long expectedSize;
+
+        IncomingFile(FileChannel channel, Path partPath, String sender, String filename, long expectedSize) {
+            this.channel = channel;
+            this.partPath = partPath;
+            this.sender = sender;
+            this.filename = filename;
+            this.expectedSize = expectedSize;
+        }
+    }
+}
@@ -0,0 +1,256 @@
+package org.personnal.client.network;
+
+import org.personnal.client.protocol.FrameCodec;
+import org.personnal.client.protocol.PeerRequest;
+import org.personnal.client.protocol.PeerResponse;
+import org.personnal.client.protocol.RequestType;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Base64;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Envoi d'un fichier par morceaux de taille fixe lus depuis le disque.
+ * La mémoire utilisée ne dépend pas de la taille du fichier : au plus
+ * {@link NetworkConstants#FILE_TRANSFER_WINDOW} morceaux sont en vol à la fois.
+ * Un transfert interrompu reprend à l'offset indiqué par le serveur lors du renvoi du même fichier.
+ * Quand le format binaire est négocié, les morceaux partent en trames binaires transférées
+ * du disque vers la socket sans copie ni Base64 ; la confirmation de FILE_END valide alors le tout.
+ */
+public class FileTransferSender {
+    private static final long BEGIN_TIMEOUT_MS = 5000;
+
+    private final ClientSocketManager socketManager;
+
+    public FileTransferSender(ClientSocketManager socketManager) {
+        this.socketManager = socketManager;
+    }
+
+    /**
+     * Envoie le fichier par morceaux
+     * @return false si le serveur ne gère pas le transfert par morceaux
+     */
+    public boolean send(String sender, String receiver, Path file) throws IOException {
+        long size = Files.size(file);
+        UUID transferUuid = transferIdFor(sender, receiver, file, size);
+        String transferId = transferUuid.toString();
+
+        TransferPlan plan = begin(transferId, sender, receiver, file, size);
+        if (plan == null) {
+            return false;
+        }
+        long offset = plan.offset;
+        if (offset > 0) {
+            System.out.println("Reprise du transfert de " + file.getFileName() + " à l'octet " + offset);
+        }
+
+        if (plan.binary) {
+            sendRegions(transferUuid, file, offset, size);
+        } else {
+            sendChunks(transferId, file, offset, size);
+        }
+
+        Map<String, String> payload = new HashMap<>();
+        payload.put("transferId", transferId);
+        payload.put("size", String.valueOf(size));
+        PeerResponse response = socketManager.sendRequestAndWait(new PeerRequest(RequestType.FILE_END, payload));
+        if (!response.isSuccess()) {
+            throw new IOException("Échec de l'envoi: " + response.getMessage());
+        }
+        return true;
+    }
+
+    /**
+     * Envoi en trames binaires : les octets vont du disque à la socket par transferTo
+     */
+    private void sendRegions(UUID transferId, Path file, long offset, long size) throws IOException {
+        Deque<CompletableFuture<Void>> pendingWrites = new ArrayDeque<>();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            try {
+                long position = offset;
+                while (position < size) {
+                    int count = (int) Math.min(NetworkConstants.FILE_REGION_SIZE, size - position);
+                    ByteBuffer prefix = ByteBuffer.allocate(24);
+                    prefix.putLong(transferId.getMostSignificantBits())
+                            .putLong(transferId.getLeastSignificantBits())
+                            .putLong(position)
+                            .flip();
+                    // L'envoi bloque quand la file d'écriture du transport est saturée
+                    pendingWrites.addLast(socketManager.sendFileRegion(
+                            FrameCodec.TYPE_FILE_DATA, prefix, channel, position, count));
+                    position += count;
+
+                    while (!pendingWrites.isEmpty() && pendingWrites.peekFirst().isDone()) {
+                        pendingWrites.pollFirst().join();
+                    }
+                }
+                for (CompletableFuture<Void> write : pendingWrites) {
+                    write.join();
+                }
+            } catch (CompletionException e) {
+                throw new IOException("Échec de l'envoi du fichier", e.getCause());
+            } finally {
+                // Le fichier ne peut être fermé qu'une fois toutes ses portions remises à la socket
+                for (CompletableFuture<Void> write : pendingWrites) {
+                    try {
+                        write.join();
+                    } catch (CompletionException ignored) {
+                        // Erreur déjà signalée
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Envoi en requêtes JSON, chaque morceau étant acquitté par le serveur
+     */
+    private void sendChunks(String transferId, Path file, long offset, long size) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer chunk = ByteBuffer.allocate(NetworkConstants.FILE_CHUNK_SIZE);
+            Deque<PendingChunk> inFlight = new ArrayDeque<>();
+            long position = offset;
+
+            while (position < size) {
+                int read = readChunk(channel, chunk, position);
+                if (read <= 0) {
+                    throw new IOException("Le fichier a été modifié pendant l'envoi");
+                }
+
+                Map<String, String> payload = new HashMap<>();
+                payload.put("transferId", transferId);
+                payload.put("offset", String.valueOf(position));
+                payload.put("content", StandardCharsets.ISO_8859_1.decode(Base64.getEncoder().encode(chunk)).toString());
+                PeerRequest request = new PeerRequest(RequestType.FILE_CHUNK, payload);
+                inFlight.addLast(new PendingChunk(request, socketManager.sendRequestAsync(request)));
+                position += read;
+
+                // Fenêtre pleine : attendre l'accusé de réception du plus ancien morceau
+                if (inFlight.size() >= NetworkConstants.FILE_TRANSFER_WINDOW) {
+                    awaitAck(inFlight.pollFirst());
+                }
+            }
+
+            while (!inFlight.isEmpty()) {
+                awaitAck(inFlight.pollFirst());
+            }
+        }
+    }
+
+    /**
+     * Annonce le transfert et récupère l'offset déjà reçu par le serveur
+     * @return null si le serveur ne gère pas les morceaux
+     */
+    private TransferPlan begin(String transferId, String sender, String receiver, Path file, long size) {
+        Map<String, String> payload = new HashMap<>();
+        payload.put("transferId", transferId);
+        payload.put("sender", sender);
+        payload.put("receiver", receiver);
+        payload.put("filename", file.getFileName().toString());
+        payload.put("size", String.valueOf(size));
+        payload.put("chunkSize", String.valueOf(NetworkConstants.FILE_CHUNK_SIZE));
+        boolean binaryAvailable = socketManager.isBinaryFraming();
+        if (binaryAvailable) {
+            payload.put("encoding", "binary");
+        }
+
+        try {
+            PeerResponse response = socketManager.sendRequestAndWait(
+                    new PeerRequest(RequestType.FILE_BEGIN, payload), BEGIN_TIMEOUT_MS);
+            if (!response.isSuccess()) {
+                System.out.println("Transfert par morceaux refusé : " + response.getMessage());
+                return null;
+            }
+            long offset = 0;
+            boolean binary = false;
+            if (response.getData() instanceof Map) {
+                Map<?, ?> data = (Map<?, ?>) response.getData();
+                offset = parseLong(data.get("offset"));
+                // Le serveur confirme qu'il attend des trames binaires
+                binary = binaryAvailable && "binary".equals(data.get("encoding"));
+            }
+            return new TransferPlan(Math.max(0, Math.min(offset, size)), binary);
+        } catch (IOException e) {
+            System.out.println("Transfert par morceaux indisponible : " + e.getMessage());
+            return null;
+        }
+    }
+
+    private void awaitAck(PendingChunk pending) throws IOException {
+        PeerResponse response = socketManager.awaitResponse(
+                pending.future, pending.request, NetworkConstants.FILE_CHUNK_ACK_TIMEOUT_MS);
+        if (!response.isSuccess()) {
+            throw new IOException("Morceau refusé par le serveur: " + response.getMessage());
+        }
+    }
+
+    /**
+     * Remplit le tampon depuis la position donnée, le retourne prêt à être lu
+     */
+    private int readChunk(FileChannel channel, ByteBuffer chunk, long position) throws IOException {
+        chunk.clear();
+        while (chunk.hasRemaining()) {
+            int read = channel.read(chunk, position + chunk.position());
+            if (read < 0) {
+                break;
+            }
+        }
+        chunk.flip();
+        return chunk.remaining();
+    }
+
+    /**
+     * Identifiant stable pour un même fichier et un même destinataire, ce qui permet la reprise
+     */
+    private UUID transferIdFor(String sender, String receiver, Path file, long size) throws IOException {
+        String key = sender + "|" + receiver + "|" + file.toAbsolutePath() + "|" + size
+                + "|" + Files.getLastModifiedTime(file).toMillis();
+        return UUID.nameUUIDFromBytes(key.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static long parseLong(Object value) {
+        if (value instanceof Number) {
+            return ((Number) value).longValue();
+        }
+        if (value instanceof String) {
+            try {
+                return Long.parseLong((String) value);
+            } catch (NumberFormatException e) {
+                return 0;
+            }
+        }
+        return 0;
+    }
+
+    private static class TransferPlan {
+        private final long offset;
+        private final boolean binary;
+
+        TransferPlan(long offset, boolean binary) {
+            this.offset = offset;
+            this.binary = binary;
+        }
+    }
+
+    private static class PendingChunk {
+        private final PeerRequest request;
+        private final CompletableFuture<PeerResponse> future;
+
+        PendingChunk(PeerRequest request, CompletableFuture<PeerResponse> future) {
+            this.request = request;
+            this.future = future;
+        }
+    }
+}
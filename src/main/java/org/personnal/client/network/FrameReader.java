@@ -0,0 +1,80 @@
+package org.personnal.client.network;
+
+import org.personnal.client.protocol.FrameCodec;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Tampon de lecture d'une connexion, découpé en trames par le {@link FrameCodec} courant.
+ * Les trames sont remises comme des vues du tampon de lecture, sans copie ni String intermédiaire.
+ * Le codec peut être remplacé par l'écouteur pendant le décodage (négociation du format) :
+ * les octets suivants sont alors décodés avec le nouveau codec.
+ */
+final class FrameReader {
+    // Marge pour l'en-tête d'une trame de taille maximale
+    private static final int HEADER_ALLOWANCE = 64;
+
+    private final int maxCapacity;
+    private final boolean direct;
+    private ByteBuffer buffer;
+    private volatile FrameCodec codec;
+
+    FrameReader(FrameCodec codec, int initialSize, int maxFrameSize, boolean direct) {
+        this.codec = codec;
+        this.maxCapacity = maxFrameSize + HEADER_ALLOWANCE;
+        this.direct = direct;
+        this.buffer = allocate(initialSize);
+    }
+
+    FrameCodec getCodec() {
+        return codec;
+    }
+
+    void setCodec(FrameCodec codec) {
+        this.codec = codec;
+    }
+
+    /**
+     * Retourne le tampon en mode écriture, avec de la place libre pour la prochaine lecture
+     */
+    ByteBuffer readBuffer() {
+        if (!buffer.hasRemaining() && buffer.capacity() < maxCapacity) {
+            ByteBuffer larger = allocate(Math.min(buffer.capacity() * 2, maxCapacity));
+            buffer.flip();
+            larger.put(buffer);
+            buffer = larger;
+        }
+        return buffer;
+    }
+
+    /**
+     * Extrait toutes les trames complètes du tampon
+     */
+    void decode(IClientConnection.FrameListener listener) throws IOException {
+        buffer.flip();
+        FrameCodec.FrameHandler handler = (type, flags, body) -> deliver(listener, type, flags, body);
+        try {
+            // Relire le codec à chaque trame : il peut changer pendant la remise
+            while (buffer.hasRemaining() && codec.decode(buffer, handler)) {
+                // Trame suivante
+            }
+        } catch (IllegalStateException e) {
+            throw new IOException("Flux désynchronisé: " + e.getMessage(), e);
+        } finally {
+            buffer.compact();
+        }
+    }
+
+    private void deliver(IClientConnection.FrameListener listener, byte type, byte flags, ByteBuffer body) {
+        try {
+            listener.onFrame(type, flags, body);
+        } catch (Exception e) {
+            System.err.println("Erreur lors du traitement d'une trame: " + e.getMessage());
+        }
+    }
+
+    private ByteBuffer allocate(int size) {
+        return direct ? ByteBuffer.allocateDirect(size) : ByteBuffer.allocate(size);
+    }
+}
@@ -1,4 +1,78 @@
 package org.personnal.client.network;
 
+import org.personnal.client.protocol.FrameCodec;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Transport d'une connexion client vers le serveur.
+ * Le transport découpe le flux en trames avec le {@link FrameCodec} courant
+ * et les remet à un {@link FrameListener}.
+ */
 public interface IClientConnection {
+
+    /**
+     * Reçoit les trames lues sur la connexion.
+     * Les appels ont lieu sur le thread d'entrée/sortie du transport.
+     */
+    interface FrameListener extends FrameCodec.FrameHandler {
+        /**
+         * @param cause Erreur à l'origine de la fermeture, null pour une fermeture normale
+         */
+        void onClosed(IOException cause);
+    }
+
+    void connect(String host, int port) throws IOException;
+
+    /**
+     * Doit être défini avant {@link #connect(String, int)}
+     */
+    void setFrameListener(FrameListener listener);
+
+    /**
+     * Met une trame en file d'envoi. Le tampon appartient ensuite au transport.
+     * Bloque tant que la file d'écriture est saturée.
+     */
+    void send(byte type, byte flags, ByteBuffer body) throws IOException;
+
+    /**
+     * Envoie un message JSON
+     */
+    default void send(ByteBuffer json) throws IOException {
+        send(FrameCodec.TYPE_JSON, FrameCodec.FLAG_NONE, json);
+    }
+
+    /**
+     * Envoie une trame dont le corps est un préfixe suivi d'une portion de fichier.
+     * Le fichier est transféré vers la socket sans copie dans le tas Java.
+     * Nécessite le format binaire.
+     * @return Complété quand les octets ont été remis à la socket : le fichier peut alors être fermé
+     */
+    CompletableFuture<Void> sendFileRegion(byte type, ByteBuffer prefix, FileChannel file, long position, int count)
+            throws IOException;
+
+    FrameCodec getCodec();
+
+    /**
+     * Change le format des trames dans les deux sens.
+     * Appelé depuis l'écouteur, le changement s'applique dès l'octet qui suit la trame en cours.
+     */
+    void setCodec(FrameCodec codec);
+
+    boolean isConnected();
+
+    void close();
+
+    /**
+     * Crée le transport choisi par la propriété système {@link NetworkConstants#TRANSPORT_PROPERTY}
+     */
+    static IClientConnection create() {
+        if ("blocking".equalsIgnoreCase(System.getProperty(NetworkConstants.TRANSPORT_PROPERTY))) {
+            return new BlockingClientConnection();
+        }
+        return new NioClientConnection();
+    }
 }
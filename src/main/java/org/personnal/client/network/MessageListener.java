@@ -1,205 +1,115 @@
 package org.personnal.client.network;
 
-import com.google.gson.Gson;
 import javafx.application.Platform;
 import org.personnal.client.UI.ChatView;
 import org.personnal.client.model.FileData;
 import org.personnal.client.model.Message;
+import org.personnal.client.protocol.CallSignalEvent;
+import org.personnal.client.protocol.ChatMessageEvent;
+import org.personnal.client.protocol.FileEvent;
+import org.personnal.client.protocol.FileTransferEvent;
 import org.personnal.client.protocol.PeerResponse;
+import org.personnal.client.protocol.PresenceEvent;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.net.SocketException;
-import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.Base64;
-import java.util.Map;
+import java.util.function.Consumer;
 
 /**
- * Classe qui écoute les messages entrants du serveur en arrière-plan
- * Version simplifiée pour améliorer les performances
+ * Traite les notifications envoyées spontanément par le serveur
+ * (messages, fichiers, événements d'appel), transmises par l'EventDispatcher
  */
-public class MessageListener extends Thread {
-    private final BufferedReader input;
+public class MessageListener implements Consumer<PeerResponse> {
     private final ChatView chatView;
     private final String currentUsername;
     private volatile boolean running = true;
-    private final Gson gson = new Gson();
+    private final FileTransferReceiver fileTransferReceiver;
 
-    public MessageListener(BufferedReader input, ChatView chatView, String currentUsername) {
-        this.input = input;
+    public MessageListener(ChatView chatView, String currentUsername) {
         this.chatView = chatView;
         this.currentUsername = currentUsername;
-        setDaemon(true); // Thread en arrière-plan qui s'arrête quand l'application se ferme
-        setName("MessageListener-" + currentUsername); // Nommer le thread pour faciliter le débogage
+        this.fileTransferReceiver = new FileTransferReceiver(currentUsername, Paths.get("files", currentUsername));
     }
 
     @Override
-    public void run() {
-        System.out.println("MessageListener démarré pour l'utilisateur " + currentUsername);
-
-        while (running) {
-            try {
-                // Tenter de lire une ligne du serveur (bloquant jusqu'au timeout ou données reçues)
-                String responseJson = input.readLine();
-
-                // Vérifier si la connexion est fermée
-                if (responseJson == null) {
-                    System.out.println("Connexion au serveur perdue.");
-                    break;
-                }
-
-                // Traiter la réponse du serveur
-                processResponse(responseJson);
-
-            } catch (SocketTimeoutException e) {
-                // Simplement continuer d'écouter
-                continue;
-            } catch (IOException e) {
-                if (running) {
-                    System.err.println("Erreur de lecture: " + e.getMessage());
-                    try {
-                        Thread.sleep(2000);
-                    } catch (InterruptedException ie) {
-                        Thread.currentThread().interrupt();
-                        break;
-                    }
-                } else {
-                    break;
-                }
-            }
+    public void accept(PeerResponse response) {
+        if (running) {
+            processResponse(response);
         }
-
-        System.out.println("MessageListener arrêté pour l'utilisateur " + currentUsername);
     }
 
     /**
-     * Traite la réponse JSON
+     * Traite une notification du serveur, déjà décodée dans sa classe par PeerResponseAdapter
      */
-    // Ajout dans la méthode processResponse() de MessageListener.java
-
-    private void processResponse(String responseJson) {
+    private void processResponse(PeerResponse response) {
         try {
-            PeerResponse response = gson.fromJson(responseJson, PeerResponse.class);
-
-            // Traiter les événements d'appel
-            if (response.getData() instanceof Map) {
-                Map<String, String> dataMap = (Map<String, String>) response.getData();
-                if (dataMap.containsKey("action")) {
-                    String action = dataMap.get("action");
-                    if (action.equals("incoming-call") || action.equals("call-accepted") ||
-                            action.equals("call-rejected") || action.equals("call-ended") ||
-                            action.equals("offer") || action.equals("answer") ||
-                            action.equals("ice-candidate")) {
-
-                        // Déléguer au chatView pour traitement de l'appel
-                        Platform.runLater(() -> {
-                            if (chatView != null) {
-                                chatView.handleCallEvent(dataMap);
-                            }
-                        });
-                        return;
-                    }
-                }
-            }
-
-            // Traiter les autres types de messages comme avant
-            if (response.getMessage() != null && response.getMessage().contains("message reçu")) {
-                handleNewMessage(response);
-            } else if (response.getMessage() != null && response.getMessage().contains("fichier")) {
-                handleNewFile(response);
-            } else if (response.getData() instanceof Map) {
-                Map<String, Object> dataMap = (Map<String, Object>) response.getData();
-                if (dataMap.containsKey("content") &&
-                        (dataMap.containsKey("from") || dataMap.containsKey("sender"))) {
-                    handleGenericMessageData(dataMap);
-                }
+            switch (response.getEventType()) {
+                case CALL_SIGNAL:
+                    handleCallSignal((CallSignalEvent) response.getEvent());
+                    break;
+                case PRESENCE_UPDATE:
+                    // Changement de statut d'un contact suivi
+                    PresenceStore.getInstance().apply((PresenceEvent) response.getEvent());
+                    break;
+                case FILE_TRANSFER:
+                    // Fichiers envoyés par morceaux
+                    handleFileTransfer((FileTransferEvent) response.getEvent());
+                    break;
+                case CHAT_MESSAGE:
+                    handleNewMessage((ChatMessageEvent) response.getEvent());
+                    break;
+                case FILE:
+                    handleNewFile((FileEvent) response.getEvent());
+                    break;
+                default:
+                    // Réponse sans requête en attente : rien à afficher
+                    break;
             }
         } catch (Exception e) {
             System.err.println("Erreur lors du traitement de la réponse: " + e.getMessage());
         }
     }
+
     /**
-     * Traite un nouveau message reçu
+     * Traite un événement d'appel
      */
-    private void handleNewMessage(PeerResponse response) {
-        try {
-            Object data = response.getData();
-            Message message = null;
-
-            if (data instanceof Map) {
-                // Si la réponse contient directement un message sous forme de Map
-                Map<String, Object> messageData = (Map<String, Object>) data;
-
-                String sender = null;
-                String content = null;
-                String receiver = currentUsername;
-
-                // Gérer les différents formats possibles
-                if (messageData.containsKey("from")) {
-                    sender = (String) messageData.get("from");
-                } else if (messageData.containsKey("sender")) {
-                    sender = (String) messageData.get("sender");
-                }
-
-                if (messageData.containsKey("content")) {
-                    content = (String) messageData.get("content");
-                }
+    private void handleCallSignal(CallSignalEvent event) {
+        String action = event.getAction();
+        if (action == null) {
+            return;
+        }
+        if (action.equals("incoming-call") || action.equals("call-accepted") ||
+                action.equals("call-rejected") || action.equals("call-ended") ||
+                action.equals("offer") || action.equals("answer") ||
+                action.equals("ice-candidate")) {
 
-                if (sender != null && content != null) {
-                    message = new Message();
-                    message.setSender(sender);
-                    message.setReceiver(receiver);
-                    message.setContent(content);
-                    message.setTimestamp(LocalDateTime.now());
-                    message.setRead(false);
-                }
-            } else {
-                // Tenter de convertir directement l'objet en Message
-                try {
-                    message = gson.fromJson(gson.toJson(data), Message.class);
-                } catch (Exception e) {
-                    System.err.println("Impossible de convertir en Message: " + e.getMessage());
+            // Déléguer au chatView pour traitement de l'appel
+            Platform.runLater(() -> {
+                if (chatView != null) {
+                    chatView.handleCallEvent(event.getFields());
                 }
-            }
-
-            if (message != null) {
-                // Ajouter le message à l'interface utilisateur
-                final Message finalMessage = message;
-                Platform.runLater(() -> {
-                    if (chatView != null) {
-                        chatView.addMessageToConversation(finalMessage);
-                    }
-                });
-            }
-        } catch (Exception e) {
-            System.err.println("Erreur lors du traitement du nouveau message: " + e.getMessage());
+            });
         }
     }
 
     /**
-     * Traite des données de message génériques reçues
+     * Traite un nouveau message reçu
      */
-    private void handleGenericMessageData(Map<String, Object> messageData) {
+    private void handleNewMessage(ChatMessageEvent event) {
         try {
-            String sender = null;
-            if (messageData.containsKey("from")) {
-                sender = (String) messageData.get("from");
-            } else if (messageData.containsKey("sender")) {
-                sender = (String) messageData.get("sender");
-            }
-
-            String content = (String) messageData.get("content");
-            String receiver = currentUsername;
+            String sender = event.getSender();
+            String content = event.getContent();
 
             if (sender != null && content != null) {
                 Message message = new Message();
                 message.setSender(sender);
-                message.setReceiver(receiver);
+                message.setReceiver(currentUsername);
                 message.setContent(content);
                 message.setTimestamp(LocalDateTime.now());
                 message.setRead(false);
@@ -212,19 +122,18 @@ public class MessageListener extends Thread {
                 });
             }
         } catch (Exception e) {
-            System.err.println("Erreur lors du traitement des données de message génériques: " + e.getMessage());
+            System.err.println("Erreur lors du traitement du nouveau message: " + e.getMessage());
         }
     }
 
     /**
      * Traite un nouveau fichier reçu
      */
-    private void handleNewFile(PeerResponse response) {
+    private void handleNewFile(FileEvent event) {
         try {
-            Map<String, String> fileData = (Map<String, String>) response.getData();
-            String sender = fileData.get("from");
-            String filename = fileData.get("filename");
-            String base64Content = fileData.get("content");
+            String sender = event.getSender();
+            String filename = event.getFilename();
+            String base64Content = event.getContent();
 
             if (sender == null || filename == null || base64Content == null) {
                 System.err.println("Données de fichier incomplètes reçues");
@@ -283,11 +192,47 @@ public class MessageListener extends Thread {
         }
     }
 
+    /**
+     * Traite une étape d'un transfert par morceaux, le fichier est affiché une fois complet
+     */
+    private void handleFileTransfer(FileTransferEvent event) {
+        try {
+            FileData file = fileTransferReceiver.handle(event);
+            if (file != null) {
+                Platform.runLater(() -> {
+                    if (chatView != null) {
+                        chatView.addFileToConversation(file);
+                    }
+                });
+            }
+        } catch (IOException e) {
+            System.err.println("Erreur lors de la réception du fichier: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Morceau de fichier binaire, écrit sur le disque par le thread de son transfert
+     */
+    public void handleFileData(ByteBuffer frame) {
+        if (!running) {
+            return;
+        }
+        try {
+            fileTransferReceiver.writeData(frame);
+        } catch (IOException e) {
+            System.err.println("Erreur lors de l'écriture du fichier reçu: " + e.getMessage());
+        }
+    }
+
     /**
      * Arrête l'écoute des messages
      */
     public void stopListening() {
         running = false;
-        interrupt();
+        fileTransferReceiver.close();
+    }
+
+    public boolean isListening() {
+        return running;
     }
 }
\ No newline at end of file
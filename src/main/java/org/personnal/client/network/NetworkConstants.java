@@ -1,4 +1,47 @@
 package org.personnal.client.network;
 
+/**
+ * Paramètres partagés par les transports réseau du client
+ */
 public interface NetworkConstants {
+    String DEFAULT_HOST = "localhost";
+    int DEFAULT_PORT = 5000;
+    int CONNECT_TIMEOUT_MS = 10000;
+
+    // Propriété système pour choisir le transport : "nio" (défaut) ou "blocking"
+    String TRANSPORT_PROPERTY = "client.transport";
+
+    // Propriété système pour forcer le format historique : "json" désactive la négociation
+    String FRAMING_PROPERTY = "client.framing";
+    // Un serveur qui ne connaît pas HELLO peut ne jamais répondre
+    long NEGOTIATION_TIMEOUT_MS = 2000;
+
+    // Tampon de lecture initial et taille maximale d'une trame
+    int READ_BUFFER_SIZE = 64 * 1024;
+    int MAX_FRAME_SIZE = 64 * 1024 * 1024;
+
+    // Contre-pression de la file d'écriture : un envoi bloque au-delà du seuil haut
+    // et reprend quand la file est redescendue sous le seuil bas
+    long WRITE_QUEUE_HIGH_WATER = 4L * 1024 * 1024;
+    long WRITE_QUEUE_LOW_WATER = 1024L * 1024;
+    long WRITE_TIMEOUT_MS = 30000;
+
+    // Transfert de fichiers par morceaux
+    int FILE_CHUNK_SIZE = 256 * 1024;
+    int FILE_REGION_SIZE = 1024 * 1024;    // Morceau d'une trame binaire, transféré sans copie
+    int FILE_TRANSFER_WINDOW = 4;           // Morceaux envoyés sans attendre d'accusé de réception
+    long FILE_CHUNK_ACK_TIMEOUT_MS = 30000;
+    long LEGACY_FILE_MAX_SIZE = 10L * 1024 * 1024; // Limite de l'envoi en un seul bloc (SEND_FILE)
+    int FILE_RECEIVE_LANES = 2;             // Threads d'écriture des fichiers reçus, un transfert reste sur le même
+    int FILE_RECEIVE_QUEUE = 8;             // Morceaux en attente d'écriture par thread avant de freiner la lecture
+
+    // Regroupement des vérifications CHECK_ONLINE / CHECK_USER en requêtes par lot
+    long LOOKUP_COALESCE_WINDOW_MS = 20;
+    int LOOKUP_MAX_BATCH_SIZE = 100;
+    long LOOKUP_TIMEOUT_MS = 10000;
+
+    // Canal média des appels (UDP) : relais sur l'hôte du serveur, sauf si la propriété indique
+    // "local" (relais lancé par le client) ou une adresse "hôte:port"
+    int MEDIA_RELAY_PORT = 5001;
+    String MEDIA_RELAY_PROPERTY = "client.media.relay";
 }
@@ -0,0 +1,340 @@
+package org.personnal.client.network;
+
+import org.personnal.client.protocol.BinaryFrameCodec;
+import org.personnal.client.protocol.FrameCodec;
+import org.personnal.client.protocol.JsonLineCodec;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Transport non bloquant : un seul thread sélecteur lit et écrit la socket.
+ * Les envois sont mis en file et écrits par lots (écriture groupée) quand la socket est prête.
+ * Les portions de fichier de la file sont transférées directement du disque vers la socket.
+ */
+public class NioClientConnection implements IClientConnection {
+    private static final int MAX_GATHER = 16;
+
+    private SocketChannel channel;
+    private Selector selector;
+    private SelectionKey key;
+    private Thread ioThread;
+    private FrameListener frameListener;
+
+    private final FrameReader reader = new FrameReader(new JsonLineCodec(NetworkConstants.MAX_FRAME_SIZE),
+            NetworkConstants.READ_BUFFER_SIZE, NetworkConstants.MAX_FRAME_SIZE, true);
+
+    // File d'écriture (ByteBuffer ou FileRegion) et contre-pression
+    private final Queue<Object> writeQueue = new ConcurrentLinkedQueue<>();
+    private final AtomicLong queuedBytes = new AtomicLong();
+    private final AtomicBoolean writeRequested = new AtomicBoolean(false);
+    private final Object enqueueLock = new Object();
+    private final Object drainedSignal = new Object();
+    private final ByteBuffer[] gather = new ByteBuffer[MAX_GATHER];
+
+    private final AtomicBoolean connected = new AtomicBoolean(false);
+    private final AtomicBoolean closed = new AtomicBoolean(false);
+
+    @Override
+    public void setFrameListener(FrameListener listener) {
+        this.frameListener = listener;
+    }
+
+    @Override
+    public void connect(String host, int port) throws IOException {
+        channel = SocketChannel.open();
+        try {
+            // Connexion en mode bloquant avec délai, puis passage en non bloquant
+            channel.socket().connect(new InetSocketAddress(host, port), NetworkConstants.CONNECT_TIMEOUT_MS);
+            channel.socket().setTcpNoDelay(true);
+            channel.configureBlocking(false);
+
+            selector = Selector.open();
+            key = channel.register(selector, SelectionKey.OP_READ);
+        } catch (IOException e) {
+            channel.close();
+            if (selector != null) selector.close();
+            throw e;
+        }
+
+        connected.set(true);
+        ioThread = new Thread(this::ioLoop, "NioClientConnection-io");
+        ioThread.setDaemon(true);
+        ioThread.start();
+    }
+
+    @Override
+    public void send(byte type, byte flags, ByteBuffer body) throws IOException {
+        if (!connected.get()) {
+            throw new IOException("Non connecté au serveur");
+        }
+
+        awaitWriteCapacity();
+
+        synchronized (enqueueLock) {
+            // Les tampons d'une trame (en-tête, corps, délimiteur) doivent rester contigus dans la file
+            for (ByteBuffer buffer : reader.getCodec().encode(type, flags, body)) {
+                queuedBytes.addAndGet(buffer.remaining());
+                writeQueue.add(buffer);
+            }
+        }
+
+        requestWrite();
+    }
+
+    @Override
+    public CompletableFuture<Void> sendFileRegion(byte type, ByteBuffer prefix, FileChannel file, long position, int count)
+            throws IOException {
+        if (!connected.get()) {
+            throw new IOException("Non connecté au serveur");
+        }
+
+        awaitWriteCapacity();
+
+        FileRegion region = new FileRegion(file, position, count);
+        synchronized (enqueueLock) {
+            if (!(reader.getCodec() instanceof BinaryFrameCodec)) {
+                throw new IOException("Le format binaire n'a pas été négocié");
+            }
+            ByteBuffer header = ((BinaryFrameCodec) reader.getCodec())
+                    .encodeHeader(type, FrameCodec.FLAG_NONE, prefix.remaining() + count);
+            queuedBytes.addAndGet(header.remaining() + prefix.remaining() + (long) count);
+            writeQueue.add(header);
+            writeQueue.add(prefix);
+            writeQueue.add(region);
+        }
+
+        requestWrite();
+        if (!connected.get()) {
+            // Fermeture concurrente : la portion a pu être ajoutée après le vidage de la file
+            region.written().completeExceptionally(new IOException("Connexion fermée"));
+        }
+        return region.written();
+    }
+
+    private void requestWrite() {
+        if (writeRequested.compareAndSet(false, true)) {
+            selector.wakeup();
+        }
+    }
+
+    /**
+     * Bloque l'appelant tant que la file d'écriture dépasse le seuil haut
+     */
+    private void awaitWriteCapacity() throws IOException {
+        if (queuedBytes.get() < NetworkConstants.WRITE_QUEUE_HIGH_WATER) {
+            return;
+        }
+
+        long deadline = System.currentTimeMillis() + NetworkConstants.WRITE_TIMEOUT_MS;
+        synchronized (drainedSignal) {
+            while (queuedBytes.get() > NetworkConstants.WRITE_QUEUE_LOW_WATER) {
+                if (!connected.get()) {
+                    throw new IOException("Connexion fermée pendant l'envoi");
+                }
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    throw new IOException("File d'envoi saturée, le serveur ne lit plus");
+                }
+                try {
+                    drainedSignal.wait(remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Envoi interrompu", e);
+                }
+            }
+        }
+    }
+
+    private void ioLoop() {
+        IOException failure = null;
+        try {
+            while (!closed.get()) {
+                selector.select();
+                if (closed.get()) {
+                    break;
+                }
+
+                if (writeRequested.getAndSet(false) && key.isValid()) {
+                    key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+                }
+
+                Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+                while (it.hasNext()) {
+                    SelectionKey selected = it.next();
+                    it.remove();
+                    if (!selected.isValid()) {
+                        continue;
+                    }
+                    if (selected.isReadable()) {
+                        handleRead();
+                    }
+                    if (selected.isValid() && selected.isWritable()) {
+                        handleWrite();
+                    }
+                }
+            }
+        } catch (IOException e) {
+            failure = e;
+        } finally {
+            shutdown(failure);
+        }
+    }
+
+    private void handleRead() throws IOException {
+        int read = channel.read(reader.readBuffer());
+        if (read < 0) {
+            throw new EOFException("Connexion fermée par le serveur");
+        }
+        if (read > 0) {
+            reader.decode(frameListener);
+        }
+    }
+
+    private void handleWrite() throws IOException {
+        while (true) {
+            Object head = writeQueue.peek();
+            if (head instanceof FileRegion) {
+                if (!writeRegion((FileRegion) head)) {
+                    break; // Tampon du noyau plein : attendre le prochain OP_WRITE
+                }
+                continue;
+            }
+
+            int count = 0;
+            for (Object item : writeQueue) {
+                if (!(item instanceof ByteBuffer)) break;
+                gather[count++] = (ByteBuffer) item;
+                if (count == MAX_GATHER) break;
+            }
+
+            if (count == 0) {
+                key.interestOps(SelectionKey.OP_READ);
+                // Un envoi a pu arriver entre la lecture de la file et la mise à jour de l'intérêt
+                if (!writeQueue.isEmpty()) {
+                    key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+                }
+                break;
+            }
+
+            long written = channel.write(gather, 0, count);
+            queuedBytes.addAndGet(-written);
+
+            // Retirer les tampons entièrement écrits
+            boolean partial = false;
+            for (int i = 0; i < count; i++) {
+                if (gather[i].hasRemaining()) {
+                    partial = true;
+                    break;
+                }
+                writeQueue.poll();
+            }
+            Arrays.fill(gather, 0, count, null);
+
+            if (partial || written == 0) {
+                break; // Tampon du noyau plein : attendre le prochain OP_WRITE
+            }
+        }
+
+        if (queuedBytes.get() <= NetworkConstants.WRITE_QUEUE_LOW_WATER) {
+            synchronized (drainedSignal) {
+                drainedSignal.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Transfère une portion de fichier vers la socket
+     * @return true si la portion est entièrement écrite
+     */
+    private boolean writeRegion(FileRegion region) throws IOException {
+        long written = region.transferTo(channel);
+        queuedBytes.addAndGet(-written);
+        if (written == 0 && !region.isDone() && region.isPastEndOfFile()) {
+            // L'en-tête annonce des octets qui n'existent plus : la trame ne peut pas être terminée,
+            // et le flux est désynchronisé, comme pour la connexion bloquante
+            IOException truncated = new IOException("Fin de fichier atteinte avant la fin de la trame");
+            writeQueue.poll();
+            region.written().completeExceptionally(truncated);
+            throw truncated;
+        }
+        if (!region.isDone()) {
+            return false;
+        }
+        writeQueue.poll();
+        region.written().complete(null);
+        return true;
+    }
+
+    @Override
+    public FrameCodec getCodec() {
+        return reader.getCodec();
+    }
+
+    @Override
+    public void setCodec(FrameCodec codec) {
+        // Les trames déjà en file gardent leur encodage
+        synchronized (enqueueLock) {
+            reader.setCodec(codec);
+        }
+    }
+
+    @Override
+    public boolean isConnected() {
+        return connected.get();
+    }
+
+    @Override
+    public void close() {
+        if (closed.compareAndSet(false, true)) {
+            if (selector != null) {
+                selector.wakeup();
+            }
+            if (ioThread == null || !ioThread.isAlive()) {
+                shutdown(null);
+            }
+        }
+    }
+
+    private void shutdown(IOException cause) {
+        boolean wasConnected = connected.getAndSet(false);
+        closed.set(true);
+
+        try {
+            if (channel != null) channel.close();
+            if (selector != null) selector.close();
+        } catch (IOException e) {
+            System.err.println("❌ Erreur lors de la fermeture de la connexion : " + e.getMessage());
+        }
+
+        // Libérer les expéditeurs qui attendent la fin d'écriture d'une portion de fichier
+        Object pending;
+        while ((pending = writeQueue.poll()) != null) {
+            if (pending instanceof FileRegion) {
+                ((FileRegion) pending).written().completeExceptionally(
+                        cause != null ? cause : new IOException("Connexion fermée"));
+            }
+        }
+        queuedBytes.set(0);
+        synchronized (drainedSignal) {
+            drainedSignal.notifyAll();
+        }
+
+        if ((wasConnected || cause != null) && frameListener != null) {
+            frameListener.onClosed(cause);
+        }
+    }
+}
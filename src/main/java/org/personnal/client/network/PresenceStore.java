@@ -0,0 +1,91 @@
+package org.personnal.client.network;
+
+import javafx.application.Platform;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableMap;
+import org.personnal.client.protocol.PresenceEvent;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Statut en ligne des contacts, tenu à jour par les notifications de présence du serveur.
+ * Lisible depuis n'importe quel thread ; la vue se lie à {@link #getStatuses()}, modifiée sur le thread JavaFX.
+ */
+public class PresenceStore {
+    private static PresenceStore instance;
+
+    private final Map<String, Boolean> statuses = new ConcurrentHashMap<>();
+    private final ObservableMap<String, Boolean> observableStatuses = FXCollections.observableHashMap();
+    private final ObservableMap<String, Boolean> readOnlyStatuses =
+            FXCollections.unmodifiableObservableMap(observableStatuses);
+    // Abonnement accepté par le serveur : les statuts connus sont à jour sans interrogation
+    private volatile boolean live = false;
+
+    private PresenceStore() {
+    }
+
+    public static synchronized PresenceStore getInstance() {
+        if (instance == null) {
+            instance = new PresenceStore();
+        }
+        return instance;
+    }
+
+    /**
+     * Indique si les statuts sont reçus du serveur au fil de l'eau
+     */
+    public boolean isLive() {
+        return live;
+    }
+
+    void setLive(boolean live) {
+        this.live = live;
+    }
+
+    /**
+     * Statut connu d'un utilisateur, null s'il n'est pas suivi
+     */
+    public Boolean get(String username) {
+        return statuses.get(username);
+    }
+
+    /**
+     * Statuts observables par l'interface (lecture seule, thread JavaFX)
+     */
+    public ObservableMap<String, Boolean> getStatuses() {
+        return readOnlyStatuses;
+    }
+
+    void update(String username, boolean online) {
+        Boolean previous = statuses.put(username, online);
+        if (!Objects.equals(previous, online)) {
+            Platform.runLater(() -> observableStatuses.put(username, online));
+        }
+    }
+
+    void remove(String username) {
+        if (statuses.remove(username) != null) {
+            Platform.runLater(() -> observableStatuses.remove(username));
+        }
+    }
+
+    /**
+     * Oublie tous les statuts, par exemple quand la connexion est perdue
+     */
+    void reset() {
+        live = false;
+        statuses.clear();
+        Platform.runLater(observableStatuses::clear);
+    }
+
+    /**
+     * Applique une notification {"presence": "update", "username": ..., "online": ...}
+     */
+    void apply(PresenceEvent event) {
+        if (event.getUsername() != null) {
+            update(event.getUsername(), event.isOnline());
+        }
+    }
+}
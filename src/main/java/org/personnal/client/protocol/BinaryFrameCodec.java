@@ -0,0 +1,104 @@
+package org.personnal.client.protocol;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Format binaire préfixé par la longueur :
+ * <pre>
+ * octet  0    : 0xB1 (marqueur, ne peut pas commencer un objet JSON)
+ * octet  1    : type de trame
+ * octet  2    : indicateurs
+ * octets 3-6  : longueur du corps (entier signé big-endian)
+ * octets 7-…  : corps
+ * </pre>
+ * La taille est connue avant de lire le corps : la mémoire par trame est bornée
+ * et une trame trop grande est sautée sans être mise en mémoire.
+ * <p>
+ * Après la négociation, le serveur continue d'écrire des lignes JSON jusqu'à la première
+ * trame binaire du client : une trame qui ne commence pas par le marqueur est donc
+ * décodée comme une ligne JSON.
+ */
+public class BinaryFrameCodec implements FrameCodec {
+    public static final String NAME = "binary-v1";
+    public static final byte MAGIC = (byte) 0xB1;
+    public static final int HEADER_SIZE = 7;
+
+    private final int maxFrameSize;
+    private final JsonLineCodec lineCodec;
+    // Ligne JSON commencée avant la bascule du serveur
+    private boolean inLine;
+    // Octets restant à ignorer pour une trame trop volumineuse
+    private long skipRemaining;
+
+    public BinaryFrameCodec(int maxFrameSize) {
+        this.maxFrameSize = maxFrameSize;
+        this.lineCodec = new JsonLineCodec(maxFrameSize);
+    }
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public ByteBuffer[] encode(byte type, byte flags, ByteBuffer body) {
+        return new ByteBuffer[]{encodeHeader(type, flags, body.remaining()), body};
+    }
+
+    /**
+     * En-tête seul, pour un corps écrit directement depuis un fichier
+     */
+    public ByteBuffer encodeHeader(byte type, byte flags, int length) {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.put(MAGIC).put(type).put(flags).putInt(length).flip();
+        return header;
+    }
+
+    @Override
+    public boolean decode(ByteBuffer in, FrameHandler handler) {
+        if (skipRemaining > 0) {
+            int skipped = (int) Math.min(skipRemaining, in.remaining());
+            in.position(in.position() + skipped);
+            skipRemaining -= skipped;
+            return skipped > 0;
+        }
+
+        if (inLine || (in.hasRemaining() && in.get(in.position()) != MAGIC)) {
+            boolean consumed = lineCodec.decode(in, handler);
+            // Tant que le délimiteur n'est pas lu, les octets suivants appartiennent à la ligne
+            inLine = !consumed;
+            return consumed;
+        }
+
+        if (in.remaining() < HEADER_SIZE) {
+            return false;
+        }
+
+        int start = in.position();
+        byte type = in.get(start + 1);
+        byte flags = in.get(start + 2);
+        int length = in.getInt(start + 3);
+        if (length < 0) {
+            throw new IllegalStateException("Longueur de trame invalide: " + length);
+        }
+
+        if (length > maxFrameSize) {
+            System.err.println("Trame de " + length + " octets ignorée (limite " + maxFrameSize + ")");
+            in.position(start + HEADER_SIZE);
+            skipRemaining = length;
+            return true;
+        }
+
+        if (in.remaining() < HEADER_SIZE + length) {
+            return false;
+        }
+
+        int bodyStart = start + HEADER_SIZE;
+        ByteBuffer body = in.duplicate();
+        body.limit(bodyStart + length).position(bodyStart);
+        in.position(bodyStart + length);
+        handler.onFrame(type, flags, body);
+        return true;
+    }
+
+}
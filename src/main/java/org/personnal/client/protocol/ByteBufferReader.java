@@ -0,0 +1,71 @@
+package org.personnal.client.protocol;
+
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Lecture UTF-8 d'une trame, décodée à la demande directement depuis le tampon de lecture :
+ * ni copie des octets ni String intermédiaire. Le tampon doit rester valide pendant la lecture.
+ */
+public final class ByteBufferReader extends Reader {
+    private final ByteBuffer buffer;
+    private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    private boolean flushed;
+    // Second caractère d'une paire de substitution qui ne tenait pas dans la destination
+    private final char[] pair = new char[2];
+    private int pending = -1;
+
+    public ByteBufferReader(ByteBuffer buffer) {
+        this.buffer = buffer;
+    }
+
+    @Override
+    public int read(char[] chars, int offset, int length) {
+        if (length == 0) {
+            return 0;
+        }
+        if (pending >= 0) {
+            chars[offset] = (char) pending;
+            pending = -1;
+            return 1;
+        }
+        if (length == 1) {
+            // Une paire de substitution ne tiendrait pas : décoder dans un tampon de deux caractères
+            int read = decode(pair, 0, 2);
+            if (read == 2) {
+                pending = pair[1];
+            }
+            if (read > 0) {
+                chars[offset] = pair[0];
+                return 1;
+            }
+            return read;
+        }
+        return decode(chars, offset, length);
+    }
+
+    private int decode(char[] chars, int offset, int length) {
+        if (flushed) {
+            return -1;
+        }
+        CharBuffer out = CharBuffer.wrap(chars, offset, length);
+        decoder.decode(buffer, out, true);
+        if (!buffer.hasRemaining() && out.hasRemaining()) {
+            decoder.flush(out);
+            flushed = true;
+        }
+        int read = out.position() - offset;
+        return read == 0 && flushed ? -1 : read;
+    }
+
+    @Override
+    public void close() {
+        // Le tampon appartient au transport
+    }
+}
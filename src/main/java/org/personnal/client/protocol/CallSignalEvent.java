@@ -0,0 +1,28 @@
+package org.personnal.client.protocol;
+
+import java.util.Map;
+
+/**
+ * Signalisation d'appel : {"action": "incoming-call" | "offer" | ..., ...}.
+ * Les champs varient selon l'action et sont transmis tels quels au gestionnaire d'appels.
+ */
+public final class CallSignalEvent extends ServerEvent {
+    private final Map<String, String> fields;
+
+    public CallSignalEvent(Map<String, String> fields) {
+        this.fields = fields;
+    }
+
+    @Override
+    public EventType getType() {
+        return EventType.CALL_SIGNAL;
+    }
+
+    public String getAction() {
+        return fields.get("action");
+    }
+
+    public Map<String, String> getFields() {
+        return fields;
+    }
+}
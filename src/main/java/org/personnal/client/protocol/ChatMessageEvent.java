@@ -0,0 +1,22 @@
+package org.personnal.client.protocol;
+
+/**
+ * Message reçu d'un contact : {"from" ou "sender": ..., "content": ...}
+ */
+public final class ChatMessageEvent extends ServerEvent {
+    private final String sender;
+    private final String content;
+
+    public ChatMessageEvent(String sender, String content) {
+        this.sender = sender;
+        this.content = content;
+    }
+
+    @Override
+    public EventType getType() {
+        return EventType.CHAT_MESSAGE;
+    }
+
+    public String getSender() { return sender; }
+    public String getContent() { return content; }
+}
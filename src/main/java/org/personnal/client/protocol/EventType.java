@@ -0,0 +1,37 @@
+package org.personnal.client.protocol;
+
+/**
+ * Nature d'une trame reçue du serveur.
+ * Le serveur peut l'indiquer explicitement dans le champ "event" de l'enveloppe ;
+ * sinon elle est déduite une seule fois, au décodage, de la forme de la trame.
+ */
+public enum EventType {
+    RESPONSE("response"),           // Réponse à une requête, données dans PeerResponse.getData()
+    CHAT_MESSAGE("message"),        // Message reçu d'un contact
+    FILE("file"),                   // Fichier reçu en un seul bloc (Base64)
+    FILE_TRANSFER("file_transfer"), // Étape d'un transfert par morceaux
+    CALL_SIGNAL("call"),            // Signalisation d'appel
+    PRESENCE_UPDATE("presence");    // Changement de statut d'un contact suivi
+
+    private final String wireName;
+
+    EventType(String wireName) {
+        this.wireName = wireName;
+    }
+
+    public String getWireName() {
+        return wireName;
+    }
+
+    /**
+     * Type correspondant au champ "event", null s'il est inconnu
+     */
+    public static EventType fromWireName(String wireName) {
+        for (EventType type : values()) {
+            if (type.wireName.equals(wireName)) {
+                return type;
+            }
+        }
+        return null;
+    }
+}
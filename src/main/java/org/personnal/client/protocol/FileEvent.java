@@ -0,0 +1,25 @@
+package org.personnal.client.protocol;
+
+/**
+ * Fichier reçu en un seul bloc : {"from": ..., "filename": ..., "content": Base64}
+ */
+public final class FileEvent extends ServerEvent {
+    private final String sender;
+    private final String filename;
+    private final String content;
+
+    public FileEvent(String sender, String filename, String content) {
+        this.sender = sender;
+        this.filename = filename;
+        this.content = content;
+    }
+
+    @Override
+    public EventType getType() {
+        return EventType.FILE;
+    }
+
+    public String getSender() { return sender; }
+    public String getFilename() { return filename; }
+    public String getContent() { return content; }
+}
@@ -0,0 +1,38 @@
+package org.personnal.client.protocol;
+
+/**
+ * Étape d'un transfert par morceaux : {"transfer": "begin" | "chunk" | "end", "transferId": ..., ...}
+ */
+public final class FileTransferEvent extends ServerEvent {
+    private final String step;
+    private final String transferId;
+    private final String sender;
+    private final String filename;
+    private final long offset;
+    private final String content; // Morceau en Base64 (format JSON uniquement)
+    private final long size;       // Taille totale annoncée, -1 si le serveur ne la transmet pas
+
+    public FileTransferEvent(String step, String transferId, String sender, String filename, long offset, String content,
+                             long size) {
+        this.step = step;
+        this.transferId = transferId;
+        this.sender = sender;
+        this.filename = filename;
+        this.offset = offset;
+        this.content = content;
+        this.size = size;
+    }
+
+    @Override
+    public EventType getType() {
+        return EventType.FILE_TRANSFER;
+    }
+
+    public String getStep() { return step; }
+    public String getTransferId() { return transferId; }
+    public String getSender() { return sender; }
+    public String getFilename() { return filename; }
+    public long getOffset() { return offset; }
+    public String getContent() { return content; }
+    public long getSize() { return size; }
+}
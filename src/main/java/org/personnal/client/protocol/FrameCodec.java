@@ -0,0 +1,41 @@
+package org.personnal.client.protocol;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Découpage du flux réseau en trames.
+ * Une instance est propre à une connexion : elle garde l'état de la trame en cours de lecture.
+ */
+public interface FrameCodec {
+    // Types de trame
+    byte TYPE_JSON = 0x01;   // PeerRequest / PeerResponse sérialisé en JSON UTF-8
+    byte TYPE_FILE_DATA = 0x02;  // Morceau de fichier brut : identifiant de transfert, offset, octets
+
+    // Indicateurs
+    byte FLAG_NONE = 0x00;
+    byte FLAG_PUSH = 0x01;   // Notification spontanée du serveur, sans requête associée
+
+    /**
+     * Reçoit les trames décodées. Le corps n'est valide que pendant l'appel.
+     */
+    interface FrameHandler {
+        void onFrame(byte type, byte flags, ByteBuffer body);
+    }
+
+    /**
+     * Nom annoncé lors de la négociation
+     */
+    String name();
+
+    /**
+     * Prépare une trame pour une écriture groupée
+     * @return Les tampons à écrire dans l'ordre (le corps n'est pas copié)
+     */
+    ByteBuffer[] encode(byte type, byte flags, ByteBuffer body);
+
+    /**
+     * Décode au plus une trame depuis le tampon (en mode lecture) et avance sa position
+     * @return true si des octets ont été consommés et qu'un nouvel appel peut en décoder d'autres
+     */
+    boolean decode(ByteBuffer in, FrameHandler handler);
+}
@@ -0,0 +1,73 @@
+package org.personnal.client.protocol;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Format historique : un objet JSON par ligne.
+ * Conservé pour les serveurs qui ne négocient pas le format binaire.
+ */
+public class JsonLineCodec implements FrameCodec {
+    public static final String NAME = "json-line";
+
+    private static final ByteBuffer DELIMITER = ByteBuffer.wrap(new byte[]{'\n'}).asReadOnlyBuffer();
+
+    private final int maxFrameSize;
+    // Nombre d'octets déjà parcourus sans trouver de fin de ligne
+    private int scanned;
+    // Ligne trop longue en cours d'abandon
+    private boolean skipping;
+
+    public JsonLineCodec(int maxFrameSize) {
+        this.maxFrameSize = maxFrameSize;
+    }
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public ByteBuffer[] encode(byte type, byte flags, ByteBuffer body) {
+        return new ByteBuffer[]{body, DELIMITER.duplicate()};
+    }
+
+    @Override
+    public boolean decode(ByteBuffer in, FrameHandler handler) {
+        int start = in.position();
+        int limit = in.limit();
+
+        for (int i = start + scanned; i < limit; i++) {
+            if (in.get(i) != '\n') {
+                continue;
+            }
+            scanned = 0;
+            in.position(i + 1);
+            if (skipping) {
+                skipping = false;
+                return true;
+            }
+
+            int end = (i > start && in.get(i - 1) == '\r') ? i - 1 : i;
+            if (end > start) {
+                ByteBuffer body = in.duplicate();
+                body.limit(end).position(start);
+                handler.onFrame(TYPE_JSON, FLAG_NONE, body);
+            }
+            return true;
+        }
+
+        if (limit - start >= maxFrameSize) {
+            // Ligne plus grande que la limite : l'ignorer jusqu'au prochain retour à la ligne
+            if (!skipping) {
+                System.err.println("Trame supérieure à " + maxFrameSize + " octets ignorée");
+            }
+            skipping = true;
+            scanned = 0;
+            in.position(limit);
+            return false;
+        }
+
+        scanned = limit - start;
+        return false;
+    }
+}
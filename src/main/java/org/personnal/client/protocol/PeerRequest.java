@@ -7,6 +7,7 @@ public class PeerRequest implements Serializable {
 
     private RequestType type;
     private Map<String, String> payload;
+    private Long requestId; // Identifiant de corrélation, renvoyé tel quel par le serveur
     public PeerRequest() {}
     public PeerRequest(RequestType type, Map<String, String> payload) {
         this.type = type;
@@ -28,4 +29,12 @@ public class PeerRequest implements Serializable {
     public void setPayload(Map<String, String> payload) {
         this.payload = payload;
     }
+
+    public Long getRequestId() {
+        return requestId;
+    }
+
+    public void setRequestId(Long requestId) {
+        this.requestId = requestId;
+    }
 }
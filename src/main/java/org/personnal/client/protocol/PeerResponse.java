@@ -6,6 +6,9 @@ public class PeerResponse implements Serializable {
     private boolean success;
     private String message;
     private Object data; // Peut contenir un User, un Message, etc.
+    private Long requestId; // Null pour les notifications spontanées du serveur
+    // Notification décodée dans sa classe propre, null pour une réponse (voir PeerResponseAdapter)
+    private transient ServerEvent event;
 
     public PeerResponse(){}
     public PeerResponse(boolean success, String message) {
@@ -35,5 +38,17 @@ public class PeerResponse implements Serializable {
     public void setMessage(String message) {this.message = message;}
 
     public void setSuccess(boolean success) {this.success = success;}
+
+    public Long getRequestId() {return requestId;}
+
+    public void setRequestId(Long requestId) {this.requestId = requestId;}
+
+    public ServerEvent getEvent() {return event;}
+
+    public void setEvent(ServerEvent event) {this.event = event;}
+
+    public EventType getEventType() {
+        return event != null ? event.getType() : EventType.RESPONSE;
+    }
 }
 
@@ -0,0 +1,300 @@
+package org.personnal.client.protocol;
+
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Décode une trame du serveur en un seul parcours du flux JSON.
+ * Les champs de "data" utiles aux notifications sont lus directement dans des variables ;
+ * la nature de la trame est ensuite déterminée une seule fois et la notification construite dans sa classe
+ * ({@link ServerEvent}). Seules les réponses aux requêtes et les signaux d'appel gardent une Map,
+ * dont les valeurs simples sont des chaînes.
+ */
+public class PeerResponseAdapter extends TypeAdapter<PeerResponse> {
+
+    // Valeurs imbriquées (objets, tableaux) de "data" : conservées sous leur forme générique
+    private final TypeAdapter<Object> objectAdapter = new Gson().getAdapter(Object.class);
+
+    @Override
+    public PeerResponse read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+
+        PeerResponse response = new PeerResponse();
+        String eventName = null;
+        DataFields fields = null;
+
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "success":
+                    response.setSuccess(in.peek() == JsonToken.BOOLEAN ? in.nextBoolean() : Boolean.parseBoolean(readString(in)));
+                    break;
+                case "message":
+                    response.setMessage(readString(in));
+                    break;
+                case "requestId":
+                    if (in.peek() == JsonToken.NULL) {
+                        in.nextNull();
+                    } else {
+                        response.setRequestId(in.nextLong());
+                    }
+                    break;
+                case "event":
+                    eventName = readString(in);
+                    break;
+                case "data":
+                    if (in.peek() == JsonToken.BEGIN_OBJECT) {
+                        fields = readData(in, keepsOtherFields(eventName));
+                    } else {
+                        response.setData(objectAdapter.read(in));
+                    }
+                    break;
+                default:
+                    in.skipValue();
+            }
+        }
+        in.endObject();
+
+        if (fields != null) {
+            EventType type = eventName != null ? EventType.fromWireName(eventName) : null;
+            if (type == null) {
+                // Une réponse porte son identifiant : seules les trames sans identifiant peuvent être des notifications
+                type = response.getRequestId() == null ? classify(fields, response.getMessage()) : EventType.RESPONSE;
+            }
+            applyData(response, type, fields);
+        }
+        return response;
+    }
+
+    /**
+     * Forme historique des notifications, faute de champ "event" : la nature de la trame se lit sur
+     * les champs de "data". Une notification de message ou de fichier nomme toujours son expéditeur,
+     * ce que ne fait pas la réponse à une requête de l'utilisateur.
+     */
+    private static EventType classify(DataFields fields, String message) {
+        if (fields.action != null) {
+            return EventType.CALL_SIGNAL;
+        }
+        if (fields.presence != null) {
+            // La réponse à l'abonnement porte "presence": "subscribed"
+            return "update".equals(fields.presence) ? EventType.PRESENCE_UPDATE : EventType.RESPONSE;
+        }
+        if (fields.transfer != null) {
+            return EventType.FILE_TRANSFER;
+        }
+        if (fields.sender() == null) {
+            return EventType.RESPONSE;
+        }
+        if (fields.content != null) {
+            return fields.filename != null ? EventType.FILE : EventType.CHAT_MESSAGE;
+        }
+        // Dernier recours : anciens serveurs dont seul le texte du message distingue la notification
+        if (message != null) {
+            if (message.contains("message reçu")) {
+                return EventType.CHAT_MESSAGE;
+            }
+            if (message.contains("fichier") && fields.filename != null) {
+                return EventType.FILE;
+            }
+        }
+        return EventType.RESPONSE;
+    }
+
+    private static void applyData(PeerResponse response, EventType type, DataFields fields) {
+        switch (type) {
+            case CHAT_MESSAGE:
+                response.setEvent(new ChatMessageEvent(fields.sender(), fields.content));
+                break;
+            case FILE:
+                response.setEvent(new FileEvent(fields.from, fields.filename, fields.content));
+                break;
+            case FILE_TRANSFER:
+                response.setEvent(new FileTransferEvent(fields.transfer, fields.transferId, fields.from,
+                        fields.filename, parseLong(fields.offset), fields.content,
+                        fields.size != null ? parseLong(fields.size) : -1));
+                break;
+            case PRESENCE_UPDATE:
+                response.setEvent(new PresenceEvent(fields.username, Boolean.parseBoolean(fields.online)));
+                break;
+            case CALL_SIGNAL:
+                response.setEvent(new CallSignalEvent(fields.toStringMap()));
+                break;
+            default:
+                response.setData(fields.toMap());
+        }
+    }
+
+    /**
+     * Les champs non reconnus ne servent qu'aux réponses et aux signaux d'appel.
+     * Quand le champ "event" précède "data" et annonce une autre notification, ils sont sautés sans être lus.
+     */
+    private static boolean keepsOtherFields(String eventName) {
+        EventType type = eventName != null ? EventType.fromWireName(eventName) : null;
+        return type == null || type == EventType.RESPONSE || type == EventType.CALL_SIGNAL;
+    }
+
+    private DataFields readData(JsonReader in, boolean keepOthers) throws IOException {
+        DataFields fields = new DataFields();
+        in.beginObject();
+        while (in.hasNext()) {
+            String name = in.nextName();
+            JsonToken token = in.peek();
+            if (token == JsonToken.BEGIN_OBJECT || token == JsonToken.BEGIN_ARRAY) {
+                if (keepOthers) {
+                    fields.putOther(name, objectAdapter.read(in));
+                } else {
+                    in.skipValue();
+                }
+                continue;
+            }
+            if (!keepOthers && !isEventField(name)) {
+                in.skipValue();
+                continue;
+            }
+
+            String value = readString(in);
+            switch (name) {
+                case "action": fields.action = value; break;
+                case "presence": fields.presence = value; break;
+                case "transfer": fields.transfer = value; break;
+                case "transferId": fields.transferId = value; break;
+                case "from": fields.from = value; break;
+                case "sender": fields.senderField = value; break;
+                case "content": fields.content = value; break;
+                case "filename": fields.filename = value; break;
+                case "offset": fields.offset = value; break;
+                case "size": fields.size = value; break;
+                case "username": fields.username = value; break;
+                case "online": fields.online = value; break;
+                default: fields.putOther(name, value);
+            }
+        }
+        in.endObject();
+        return fields;
+    }
+
+    private static boolean isEventField(String name) {
+        switch (name) {
+            case "action": case "presence": case "transfer": case "transferId": case "from": case "sender":
+            case "content": case "filename": case "offset": case "size": case "username": case "online":
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Valeur simple sous forme de chaîne : un nombre garde son écriture d'origine ("1024" et non 1024.0)
+     */
+    private static String readString(JsonReader in) throws IOException {
+        switch (in.peek()) {
+            case NULL:
+                in.nextNull();
+                return null;
+            case BOOLEAN:
+                return String.valueOf(in.nextBoolean());
+            default:
+                return in.nextString();
+        }
+    }
+
+    private static long parseLong(String value) {
+        if (value == null) {
+            return 0;
+        }
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            return (long) Double.parseDouble(value);
+        }
+    }
+
+    @Override
+    public void write(JsonWriter out, PeerResponse response) throws IOException {
+        if (response == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginObject();
+        out.name("success").value(response.isSuccess());
+        out.name("message").value(response.getMessage());
+        if (response.getData() != null) {
+            out.name("data");
+            objectAdapter.write(out, response.getData());
+        }
+        if (response.getRequestId() != null) {
+            out.name("requestId").value(response.getRequestId());
+        }
+        out.endObject();
+    }
+
+    /**
+     * Champs de "data" lus au fil du flux, avant que la nature de la trame soit connue
+     */
+    private static final class DataFields {
+        private String action;
+        private String presence;
+        private String transfer;
+        private String transferId;
+        private String from;
+        private String senderField;
+        private String content;
+        private String filename;
+        private String offset;
+        private String size;
+        private String username;
+        private String online;
+        // Autres champs (réponses, signaux d'appel), alloués seulement s'il y en a
+        private Map<String, Object> others;
+
+        private String sender() {
+            return from != null ? from : senderField;
+        }
+
+        private void putOther(String name, Object value) {
+            if (others == null) {
+                others = new HashMap<>();
+            }
+            others.put(name, value);
+        }
+
+        private Map<String, Object> toMap() {
+            Map<String, Object> map = others != null ? others : new HashMap<>();
+            putIfPresent(map, "action", action);
+            putIfPresent(map, "presence", presence);
+            putIfPresent(map, "transfer", transfer);
+            putIfPresent(map, "transferId", transferId);
+            putIfPresent(map, "from", from);
+            putIfPresent(map, "sender", senderField);
+            putIfPresent(map, "content", content);
+            putIfPresent(map, "filename", filename);
+            putIfPresent(map, "offset", offset);
+            putIfPresent(map, "size", size);
+            putIfPresent(map, "username", username);
+            putIfPresent(map, "online", online);
+            return map;
+        }
+
+        private Map<String, String> toStringMap() {
+            Map<String, String> map = new HashMap<>();
+            toMap().forEach((name, value) -> map.put(name, value != null ? value.toString() : null));
+            return map;
+        }
+
+        private static void putIfPresent(Map<String, Object> map, String name, String value) {
+            if (value != null) {
+                map.put(name, value);
+            }
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package org.personnal.client.protocol;
+
+/**
+ * Changement de statut : {"presence": "update", "username": ..., "online": ...}
+ */
+public final class PresenceEvent extends ServerEvent {
+    private final String username;
+    private final boolean online;
+
+    public PresenceEvent(String username, boolean online) {
+        this.username = username;
+        this.online = online;
+    }
+
+    @Override
+    public EventType getType() {
+        return EventType.PRESENCE_UPDATE;
+    }
+
+    public String getUsername() { return username; }
+    public boolean isOnline() { return online; }
+}
@@ -10,5 +10,11 @@ public enum RequestType {
     SEND_FILE,
     CHECK_USER,
     CHECK_ONLINE,
+    HELLO,
+    FILE_BEGIN,
+    FILE_CHUNK,
+    FILE_END,
+    PRESENCE_SUBSCRIBE,
+    PRESENCE_UNSUBSCRIBE,
 
 }
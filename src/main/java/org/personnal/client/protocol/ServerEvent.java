@@ -0,0 +1,9 @@
+package org.personnal.client.protocol;
+
+/**
+ * Notification du serveur décodée dans sa classe propre (voir {@link PeerResponseAdapter})
+ */
+public abstract class ServerEvent {
+
+    public abstract EventType getType();
+}